@@ -18,17 +18,24 @@
 
 package uk.ac.ebi.ampt2d.metadata.importer;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import uk.ac.ebi.ampt2d.metadata.importer.api.SraObjectsImporterThroughApi;
-import uk.ac.ebi.ampt2d.metadata.importer.database.SraObjectsImporterThroughDatabase;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.CircuitOpenException;
+import uk.ac.ebi.ampt2d.metadata.importer.daemon.ImportDaemon;
+import uk.ac.ebi.ampt2d.metadata.importer.plan.ImportPlan;
+import uk.ac.ebi.ampt2d.metadata.importer.plan.PlannedImport;
+import uk.ac.ebi.ampt2d.metadata.importer.progress.ImportProgress;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -42,8 +49,24 @@ public class MetadataImporterMainApplication implements ApplicationRunner {
 
     private ObjectsImporter objectsImporter;
 
-    public MetadataImporterMainApplication(ObjectsImporter objectsImporter) {
+    private NotFoundAccessionCache notFoundAccessionCache;
+
+    private ImportProgress importProgress;
+
+    private ImportDaemon importDaemon;
+
+    private int deferralRounds;
+
+    public MetadataImporterMainApplication(ObjectsImporter objectsImporter,
+                                           NotFoundAccessionCache notFoundAccessionCache,
+                                           ImportProgress importProgress,
+                                           ObjectProvider<ImportDaemon> importDaemon,
+                                           @Value("${import.outage.deferral-rounds:3}") int deferralRounds) {
         this.objectsImporter = objectsImporter;
+        this.notFoundAccessionCache = notFoundAccessionCache;
+        this.importProgress = importProgress;
+        this.importDaemon = importDaemon.getIfAvailable();
+        this.deferralRounds = deferralRounds;
     }
 
     public static void main(String[] args) throws Exception {
@@ -51,37 +74,115 @@ public class MetadataImporterMainApplication implements ApplicationRunner {
     }
 
     /**
-     * This method executes the task of importing studies or analyses based on import source.
+     * This method executes the task of importing projects, studies or analyses based on import source.
      * We are starting with analyses in case of objects import through database because the study xmls in database
-     * do not contain analysis accessions to import.
+     * do not contain analysis accessions to import. Through the API, any mix of projects, studies and analyses can be
+     * given: the import is planned first, so that each study is imported once, see
+     * {@link uk.ac.ebi.ampt2d.metadata.importer.plan.ImportPlanner}.
+     *
+     * In daemon mode (import.daemon.enabled=true), the accessions from the file, if provided, are added to the import
+     * queue, and the application keeps importing accessions from the queue until it is stopped.
+     *
+     * Accessions whose import could not finish because ENA or Entrez was unavailable are not counted as failed: they
+     * are imported again after the other accessions, up to import.outage.deferral-rounds times.
      *
      * @param applicationArguments
      */
     @Override
     public void run(ApplicationArguments applicationArguments) throws Exception {
+        if (importDaemon != null) {
+            Set<String> accessions = applicationArguments.containsOption(ACCESSION_FILE_PATH) ?
+                    readAccessionsFromFile(applicationArguments) : Collections.emptySet();
+            importDaemon.run(accessions);
+            return;
+        }
         Set<String> accessions = readAccessionsFromFile(applicationArguments);
-        if (objectsImporter instanceof SraObjectsImporterThroughDatabase) {
-            accessions.forEach(accession -> {
-                try {
-                    // TODO: EVA will want to import some projects from the DB too
-                    objectsImporter.importAnalysis(accession);
-                } catch (Exception exception) {
-                    LOGGER.severe("Encountered Exception for analysis accession " + accession);
-                    LOGGER.severe(exception.getMessage());
-                }
-            });
-        } else if (objectsImporter instanceof SraObjectsImporterThroughApi) {
-            accessions.forEach(accession -> {
-                try {
-                    objectsImporter.importProject(accession);
-                } catch (Exception exception) {
-                    LOGGER.severe("Encountered Exception for project accession " + accession);
-                    LOGGER.severe(exception.getMessage());
-                }
-            });
-        } else {
-            throw new RuntimeException("ObjectsImporter instance not known/supported");
+        objectsImporter.clearCaches();
+        notFoundAccessionCache.resetStatistics();
+        importProgress.reset();
+        Set<String> deferredAccessions = new LinkedHashSet<>();
+        int failedAccessions = importAccessions(accessions, deferredAccessions, true);
+        for (int round = 1; round <= deferralRounds && !deferredAccessions.isEmpty(); round++) {
+            LOGGER.warning("Importing again " + deferredAccessions.size() + " accessions deferred because a service "
+                                   + "was unavailable (round " + round + " of " + deferralRounds + ")");
+            Set<String> accessionsToRetry = new LinkedHashSet<>(deferredAccessions);
+            deferredAccessions.clear();
+            failedAccessions += importAccessions(accessionsToRetry, deferredAccessions, false);
+        }
+        logSummary(accessions.size(), failedAccessions, deferredAccessions.size());
+    }
+
+    /**
+     * @param deferredAccessions set to which the accessions deferred because of an outage are added
+     * @param queue whether to report the planned imports as queued; deferred imports are still counted as queued
+     * @return number of accessions which failed for any other reason
+     */
+    private int importAccessions(Set<String> accessions, Set<String> deferredAccessions, boolean queue) {
+        ImportPlan importPlan;
+        try {
+            importPlan = objectsImporter.plan(accessions);
+        } catch (Exception exception) {
+            if (CircuitOpenException.isCauseOf(exception)) {
+                deferredAccessions.addAll(accessions);
+                LOGGER.warning("Import of " + accessions.size() + " accessions deferred: " + exception.getMessage());
+                return 0;
+            }
+            LOGGER.severe("Could not plan the import, importing the accessions one at a time: "
+                                  + exception.getMessage());
+            return importAccessionsOneAtATime(accessions, deferredAccessions, queue);
+        }
+        if (!importPlan.getNotFoundAccessions().isEmpty()) {
+            LOGGER.warning("Accessions not found in ENA: " + importPlan.getNotFoundAccessions());
         }
+        int failedAccessions = importPlan.getUnsupportedAccessions().size();
+        if (queue) {
+            importProgress.queued(importPlan.getPlannedImports().size());
+        }
+        for (PlannedImport plannedImport : importPlan.getPlannedImports()) {
+            try {
+                objectsImporter.importPlanned(plannedImport);
+            } catch (Exception exception) {
+                failedAccessions += handleFailure(plannedImport.getRootAccessions(), exception, deferredAccessions);
+            }
+        }
+        return failedAccessions;
+    }
+
+    private int importAccessionsOneAtATime(Set<String> accessions, Set<String> deferredAccessions, boolean queue) {
+        if (queue) {
+            importProgress.queued(accessions.size());
+        }
+        int failedAccessions = 0;
+        for (String accession : accessions) {
+            try {
+                objectsImporter.importAccession(accession);
+            } catch (Exception exception) {
+                failedAccessions += handleFailure(Collections.singletonList(accession), exception,
+                                                  deferredAccessions);
+            }
+        }
+        return failedAccessions;
+    }
+
+    /**
+     * @return number of accessions which failed, unless they were deferred because of an outage
+     */
+    private int handleFailure(List<String> accessions, Exception exception, Set<String> deferredAccessions) {
+        if (CircuitOpenException.isCauseOf(exception)) {
+            deferredAccessions.addAll(accessions);
+            LOGGER.warning("Import of " + String.join(",", accessions) + " deferred: " + exception.getMessage());
+            return 0;
+        }
+        LOGGER.severe(exception.getMessage());
+        return accessions.size();
+    }
+
+    private void logSummary(int accessions, int failedAccessions, int deferredAccessions) {
+        LOGGER.info("Import summary: " + accessions + " accessions processed, " + failedAccessions + " failed, "
+                            + deferredAccessions + " not imported because a service was unavailable; "
+                            + notFoundAccessionCache.getRecordedAccessions() + " objects not found in ENA, "
+                            + notFoundAccessionCache.getSkippedLookups()
+                            + " retrievals skipped for objects previously not found");
     }
 
     private Set<String> readAccessionsFromFile(ApplicationArguments applicationArguments) {
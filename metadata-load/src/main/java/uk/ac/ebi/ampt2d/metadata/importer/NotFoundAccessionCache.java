@@ -0,0 +1,160 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Remembers accessions which ENA reported as not found, so that they are not requested again in every analysis and
+ * in every run. Entries are persisted in the metadata database and expire after a configurable period, after which
+ * the accession is requested again, in case it has been made public in the meantime. Entries are kept per import
+ * source, because the API and the database may not agree on which accessions are missing.
+ */
+public class NotFoundAccessionCache {
+
+    private static final Logger LOGGER = Logger.getLogger(NotFoundAccessionCache.class.getName());
+
+    private static final String SCHEMA_SCRIPT = "schema/not-found-accession.sql";
+
+    private static final String SELECT_VALID =
+            "SELECT accession, expires_at FROM import_not_found_accession WHERE source = ? AND expires_at > ?";
+
+    private static final String DELETE_EXPIRED = "DELETE FROM import_not_found_accession WHERE expires_at <= ?";
+
+    private static final String UPDATE =
+            "UPDATE import_not_found_accession SET recorded_at = ?, expires_at = ? " +
+            "WHERE source = ? AND accession = ?";
+
+    private static final String INSERT =
+            "INSERT INTO import_not_found_accession (source, accession, recorded_at, expires_at) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String source;
+
+    private final Duration expiry;
+
+    private final boolean enabled;
+
+    // Accession -> expiry time in epoch milliseconds
+    private final Map<String, Long> notFoundAccessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong skippedLookups = new AtomicLong();
+
+    private final AtomicLong recordedAccessions = new AtomicLong();
+
+    public NotFoundAccessionCache(JdbcTemplate jdbcTemplate, String source, Duration expiry, boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.source = source;
+        this.expiry = expiry;
+        this.enabled = enabled;
+        if (enabled) {
+            load();
+        }
+    }
+
+    /**
+     * @return cache which never skips a retrieval, but still counts the accessions reported as not found
+     */
+    public static NotFoundAccessionCache disabled() {
+        return new NotFoundAccessionCache(null, null, Duration.ZERO, false);
+    }
+
+    private void load() {
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource(SCHEMA_SCRIPT)),
+                                       jdbcTemplate.getDataSource());
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.update(DELETE_EXPIRED, now);
+        jdbcTemplate.query(SELECT_VALID, resultSet -> {
+            notFoundAccessions.put(resultSet.getString("accession"), resultSet.getTimestamp("expires_at").getTime());
+        }, source, now);
+        LOGGER.info("Loaded " + notFoundAccessions.size() + " accessions previously not found in ENA by the " +
+                            source + " import source");
+    }
+
+    /**
+     * @return true if the accession was recently reported as not found, in which case it should not be requested
+     */
+    public boolean isNotFound(String accession) {
+        if (!enabled) {
+            return false;
+        }
+        Long expiresAt = notFoundAccessions.get(accession);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= System.currentTimeMillis()) {
+            notFoundAccessions.remove(accession, expiresAt);
+            return false;
+        }
+        skippedLookups.incrementAndGet();
+        return true;
+    }
+
+    public void recordNotFound(String accession) {
+        recordedAccessions.incrementAndGet();
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long expiresAt = now + expiry.toMillis();
+        notFoundAccessions.put(accession, expiresAt);
+        Timestamp recordedAtTimestamp = new Timestamp(now);
+        Timestamp expiresAtTimestamp = new Timestamp(expiresAt);
+        if (jdbcTemplate.update(UPDATE, recordedAtTimestamp, expiresAtTimestamp, source, accession) == 0) {
+            try {
+                jdbcTemplate.update(INSERT, source, accession, recordedAtTimestamp, expiresAtTimestamp);
+            } catch (DuplicateKeyException exception) {
+                // Recorded concurrently by another importer, which is just as good
+            }
+        }
+    }
+
+    /**
+     * @return number of retrievals which were skipped because the accession was known to be missing
+     */
+    public long getSkippedLookups() {
+        return skippedLookups.get();
+    }
+
+    /**
+     * @return number of accessions newly reported as not found
+     */
+    public long getRecordedAccessions() {
+        return recordedAccessions.get();
+    }
+
+    public void resetStatistics() {
+        skippedLookups.set(0);
+        recordedAccessions.set(0);
+    }
+
+}
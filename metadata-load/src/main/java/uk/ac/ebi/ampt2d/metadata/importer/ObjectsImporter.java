@@ -19,11 +19,19 @@
 package uk.ac.ebi.ampt2d.metadata.importer;
 
 import org.apache.xmlbeans.XmlAnySimpleType;
+import org.hibernate.Hibernate;
 import org.springframework.core.convert.converter.Converter;
 import uk.ac.ebi.ampt2d.metadata.importer.api.ReferenceSequenceXmlRetrieverThroughEntrezApi;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.CircuitOpenException;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.SingleFlight;
 import uk.ac.ebi.ampt2d.metadata.importer.extractor.FileExtractorFromAnalysis;
 import uk.ac.ebi.ampt2d.metadata.importer.extractor.PublicationExtractor;
 import uk.ac.ebi.ampt2d.metadata.importer.extractor.WebResourceExtractor;
+import uk.ac.ebi.ampt2d.metadata.importer.plan.AccessionType;
+import uk.ac.ebi.ampt2d.metadata.importer.plan.ImportPlan;
+import uk.ac.ebi.ampt2d.metadata.importer.plan.ImportPlanner;
+import uk.ac.ebi.ampt2d.metadata.importer.plan.PlannedImport;
+import uk.ac.ebi.ampt2d.metadata.importer.progress.ImportProgress;
 import uk.ac.ebi.ampt2d.metadata.importer.xml.EntrezAssemblyXmlParser;
 import uk.ac.ebi.ampt2d.metadata.importer.xml.SraXmlParser;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Analysis;
@@ -35,6 +43,7 @@ import uk.ac.ebi.ampt2d.metadata.persistence.entities.Taxonomy;
 import uk.ac.ebi.ampt2d.metadata.persistence.events.AnalysisEventHandler;
 import uk.ac.ebi.ampt2d.metadata.persistence.events.TaxonomyEventHandler;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.AnalysisRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.FileRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ProjectRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ReferenceSequenceRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.SampleRepository;
@@ -48,12 +57,20 @@ import uk.ac.ebi.ena.sra.xml.ReferenceSequenceType;
 import uk.ac.ebi.ena.sra.xml.SampleType;
 import uk.ac.ebi.ena.sra.xml.StudyType;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -80,12 +97,14 @@ public abstract class ObjectsImporter {
 
     protected SampleRepository sampleRepository;
 
+    protected FileRepository fileRepository;
+
     // Entity XML parsers
     protected SraXmlParser<ProjectType> sraProjectXmlParser;
 
     protected SraXmlParser<StudyType> sraStudyXmlParser;
 
-    private SraXmlParser<AnalysisType> sraAnalysisXmlParser;
+    protected SraXmlParser<AnalysisType> sraAnalysisXmlParser;
 
     protected SraXmlParser<SampleType> sraSampleXmlParser;
 
@@ -110,6 +129,24 @@ public abstract class ObjectsImporter {
     //Taxonomy-Event-Handler
     protected TaxonomyEventHandler taxonomyEventHandler;
 
+    // Reference sequences imported in the current run. Many analyses share the same few assemblies, so concurrent
+    // imports of one accession are coalesced into a single Entrez lookup and a single insert.
+    private final SingleFlight<String, ReferenceSequence> referenceSequenceImports = new SingleFlight<>();
+
+    private final Object sampleSaveLock = new Object();
+
+    private final Object taxonomyImportLock = new Object();
+
+    // XMLs retrieved while planning the imports in progress, used instead of retrieving them again
+    private final Map<String, String> plannedXmls = new ConcurrentHashMap<>();
+
+    // Studies which analyses have been saved since their species was last updated, see #updateSpeciesOfStudies()
+    private final Set<Long> studiesWithNewAnalyses = ConcurrentHashMap.newKeySet();
+
+    protected ImportProgress importProgress = new ImportProgress();
+
+    protected boolean boundedMemory;
+
     public ObjectsImporter(
             SraXmlRetrieverByAccession sraXmlRetrieverByAccession,
             ReferenceSequenceXmlRetrieverThroughEntrezApi referenceSequenceXmlRetrieverThroughEntrezApi,
@@ -134,6 +171,7 @@ public abstract class ObjectsImporter {
             AnalysisRepository analysisRepository,
             ReferenceSequenceRepository referenceSequenceRepository,
             SampleRepository sampleRepository,
+            FileRepository fileRepository,
             TaxonomyEventHandler taxonomyEventHandler) {
         this.sraXmlRetrieverByAccession = sraXmlRetrieverByAccession;
         this.referenceSequenceXmlRetrieverThroughEntrezApi = referenceSequenceXmlRetrieverThroughEntrezApi;
@@ -158,12 +196,137 @@ public abstract class ObjectsImporter {
         this.analysisRepository = analysisRepository;
         this.referenceSequenceRepository = referenceSequenceRepository;
         this.sampleRepository = sampleRepository;
+        this.fileRepository = fileRepository;
 
         this.taxonomyEventHandler = taxonomyEventHandler;
     }
 
+    public void setImportProgress(ImportProgress importProgress) {
+        this.importProgress = importProgress;
+    }
+
+    /**
+     * @param boundedMemory whether to keep the memory used by a run bounded however many analyses it imports. An
+     * imported analysis is then not kept in the analyses of its study, which would otherwise hold every analysis
+     * imported in the run, with its samples, for as long as the study is remembered.
+     */
+    public void setBoundedMemory(boolean boundedMemory) {
+        this.boundedMemory = boundedMemory;
+    }
+
+    /**
+     * Imports an accession given as the starting point of an import, together with everything it depends on or
+     * contains, and reports it to the import progress. An import which could not finish because ENA or Entrez has been
+     * unavailable for too long throws an exception caused by a {@link CircuitOpenException}, and is reported as
+     * deferred rather than failed.
+     */
+    public void importAccession(String accession) throws Exception {
+        trackImport(accession, () -> {
+            ImportPlan importPlan = plan(Collections.singleton(accession));
+            if (!importPlan.getUnsupportedAccessions().isEmpty()) {
+                throw new IllegalArgumentException("Accession " + accession + " cannot be imported from this source");
+            }
+            for (PlannedImport plannedImport : importPlan.getPlannedImports()) {
+                importPlannedObjects(plannedImport);
+            }
+        });
+    }
+
+    /**
+     * Plans the import of the given projects, studies and analyses, see {@link ImportPlanner}.
+     */
+    public ImportPlan plan(Collection<String> accessions) throws Exception {
+        return new ImportPlanner(sraXmlRetrieverByAccession, sraProjectXmlParser, sraStudyXmlParser,
+                                 sraAnalysisXmlParser, getSupportedAccessionTypes()).plan(accessions);
+    }
+
+    /**
+     * Types of accession which can be the starting point of an import from this source
+     */
+    protected Set<AccessionType> getSupportedAccessionTypes() {
+        return EnumSet.allOf(AccessionType.class);
+    }
+
+    /**
+     * Imports one unit of an import plan, like {@link #importAccession(String)} imports one accession.
+     */
+    public void importPlanned(PlannedImport plannedImport) throws Exception {
+        trackImport(plannedImport.getName(), () -> importPlannedObjects(plannedImport));
+    }
+
+    private void trackImport(String name, ImportTask importTask) throws Exception {
+        importProgress.start(name);
+        try {
+            importTask.run();
+        } catch (Throwable throwable) {
+            if (CircuitOpenException.isCauseOf(throwable)) {
+                importProgress.defer();
+            } else {
+                importProgress.finish(false);
+            }
+            throw throwable;
+        }
+        importProgress.finish(true);
+    }
+
+    /**
+     * Imports the project or study of a planned import, with all its analyses or only the planned ones, or the
+     * planned analyses on their own if their study is not known. Within each of them, objects are saved after those
+     * they depend on: taxa, then reference sequences, samples and files, then the study, and the analysis last.
+     */
+    protected void importPlannedObjects(PlannedImport plannedImport) throws Exception {
+        plannedXmls.putAll(plannedImport.getRetrievedXmls());
+        try {
+            String studyAccession = plannedImport.getStudyAccession();
+            if (plannedImport.getProjectAccession() != null) {
+                importProject(plannedImport.getProjectAccession());
+            } else if (studyAccession == null) {
+                for (String analysisAccession : plannedImport.getAnalysisAccessions()) {
+                    importAnalysis(analysisAccession);
+                }
+            } else {
+                LOGGER.log(Level.INFO, "Importing study " + studyAccession);
+                importProgress.stage("importing study " + studyAccession);
+                StudyType studyType = retrieveSraType(studyAccession, sraStudyXmlParser);
+                if (studyType == null) {
+                    throw new RuntimeException("Study " + studyAccession + " of analyses "
+                                                       + plannedImport.getName() + " could not be retrieved");
+                }
+                importStudy(studyAccession, studyType,
+                            plannedImport.importsAllAnalyses() ? null : plannedImport.getAnalysisAccessions());
+            }
+        } finally {
+            plannedXmls.keySet().removeAll(plannedImport.getRetrievedXmls().keySet());
+            updateSpeciesOfStudies();
+        }
+    }
+
+    /**
+     * Updates the species of the studies which analyses have been saved since it was last updated, and of their
+     * projects. The species of a study is derived from all its analyses, so it is updated once all of them are saved
+     * rather than after each of them.
+     */
+    protected void updateSpeciesOfStudies() {
+        List<Long> studyIds = new ArrayList<>();
+        for (Iterator<Long> iterator = studiesWithNewAnalyses.iterator(); iterator.hasNext(); ) {
+            studyIds.add(iterator.next());
+            iterator.remove();
+        }
+        if (!studyIds.isEmpty()) {
+            studyRepository.updateSpecies(studyIds);
+            projectRepository.updateSpeciesOfStudies(studyIds);
+        }
+    }
+
+    private interface ImportTask {
+
+        void run() throws Exception;
+
+    }
+
     public Project importProject(String accession) throws Exception {
         LOGGER.info("Importing project " + accession);
+        importProgress.stage("importing project " + accession);
         ProjectType projectType = retrieveSraType(accession, sraProjectXmlParser);
         if (projectType == null) {
             return null;    // TODO jmmut: return null is bad practice. Some clients will forget to check for null.
@@ -171,6 +334,7 @@ public abstract class ObjectsImporter {
                             // retrieved, or throw an exception to call our attention to an unexpected scenario.
         }
         Project project = convertProject(projectType);
+        importProgress.objectImported();
 
         String studyAccession = projectType.getIDENTIFIERS().getSECONDARYIDArray(0).getStringValue();
         StudyType studyType = retrieveSraType(studyAccession, sraStudyXmlParser);
@@ -183,11 +347,39 @@ public abstract class ObjectsImporter {
     }
 
     public <T> T retrieveSraType(String accession, SraXmlParser<T> parser) throws Exception {
-        String xml = sraXmlRetrieverByAccession.getXml(accession);
+        String xml = retrieveXml(accession);
         if (xml == null) { return null; }
         return parser.parseXml(xml, accession);
     }
 
+    /**
+     * Retrieves the XML of an object, unless it has been retrieved while planning the import
+     */
+    protected String retrieveXml(String accession) {
+        String xml = plannedXmls.remove(accession);
+        return xml != null ? xml : sraXmlRetrieverByAccession.getXml(accession);
+    }
+
+    /**
+     * Retrieves the XMLs of several objects together, except those retrieved while planning the import
+     */
+    protected Map<String, String> retrieveXmls(Collection<String> accessions) {
+        Map<String, String> xmls = new LinkedHashMap<>();
+        List<String> accessionsToRetrieve = new ArrayList<>();
+        for (String accession : accessions) {
+            String xml = plannedXmls.remove(accession);
+            if (xml != null) {
+                xmls.put(accession, xml);
+            } else {
+                accessionsToRetrieve.add(accession);
+            }
+        }
+        if (!accessionsToRetrieve.isEmpty()) {
+            xmls.putAll(sraXmlRetrieverByAccession.getXmls(accessionsToRetrieve));
+        }
+        return xmls;
+    }
+
     public Project convertProject(ProjectType projectType) throws Exception {
         Project project = projectConverter.convert(projectType);
         ProjectType.PROJECTLINKS projectlinks = projectType.getPROJECTLINKS();
@@ -198,12 +390,28 @@ public abstract class ObjectsImporter {
 
     public Study importStudy(String accession) throws Exception {
         LOGGER.log(Level.INFO, "Importing study " + accession);
+        importProgress.stage("importing study " + accession);
         StudyType studyType = retrieveSraType(accession, sraStudyXmlParser);
         if (studyType == null) {
             return null;    // TODO jmmut: return null is bad practice. Some clients will forget to check for null.
                             // This should either return an Optional if it's expected that some studies won't be
                             // retrieved, or throw an exception to call our attention to an unexpected scenario.
         }
+        return importStudy(accession, studyType);
+    }
+
+    /**
+     * Imports a study which has already been retrieved, together with its project, if any.
+     */
+    protected Study importStudy(String accession, StudyType studyType) throws Exception {
+        return importStudy(accession, studyType, null);
+    }
+
+    /**
+     * @param analysisAccessions analyses of the study to import, or null to import all of them
+     */
+    protected Study importStudy(String accession, StudyType studyType,
+                                Set<String> analysisAccessions) throws Exception {
         Study study = convertStudy(studyType);
 
         NameType[] secondaryIdArray = studyType.getIDENTIFIERS().getSECONDARYIDArray();
@@ -221,15 +429,16 @@ public abstract class ObjectsImporter {
                                                    + "', but the project could not be retrieved");
             }
             Project project = convertProject(projectType);
-            study = extractAnalysisFromStudy(studyType, study, project);
+            study = extractAnalysisFromStudy(studyType, study, project, analysisAccessions);
         } else {
-            study = extractAnalysisFromStudy(studyType, study);
+            study = extractAnalysisFromStudy(studyType, study, analysisAccessions);
         }
         return study;
     }
 
     private Study convertStudy(StudyType studyType) {
         Study study = studyConverter.convert(studyType);
+        importProgress.objectImported();
         StudyType.STUDYLINKS studylinks = studyType.getSTUDYLINKS();
         study.setPublications(publicationExtractor.getPublicationsFromStudy(studylinks));
         study.setResources(webResourceExtractor.getWebResourcesFromStudy(studylinks));
@@ -238,20 +447,77 @@ public abstract class ObjectsImporter {
 
     protected abstract Project extractAnalysisFromProject(ProjectType projectType, Project project,
                                                           Study study) throws Exception;
-    protected abstract Study extractAnalysisFromStudy(StudyType studyType, Study study) throws Exception;
     protected abstract Study extractAnalysisFromStudy(StudyType studyType, Study study,
-                                                      Project project) throws Exception;
+                                                      Set<String> analysisAccessions) throws Exception;
+    protected abstract Study extractAnalysisFromStudy(StudyType studyType, Study study, Project project,
+                                                      Set<String> analysisAccessions) throws Exception;
 
 
     public Analysis importAnalysis(String accession) throws Exception {
         LOGGER.log(Level.INFO, "Importing analysis " + accession);
-        String xml = sraXmlRetrieverByAccession.getXml(accession);
+        importProgress.stage("importing analysis " + accession);
+        String xml = retrieveXml(accession);
         if (xml == null) {
             return null;    // TODO jmmut: return null is bad practice. Some clients will forget to check for null.
                             // This should either return an Optional if it's expected that some studies won't be
                             // retrieved, or throw an exception to call our attention to an unexpected scenario.
         }
+        return importAnalysis(accession, xml);
+    }
+
+    /**
+     * Imports an analysis which has already been retrieved, together with its samples.
+     */
+    protected Analysis importAnalysis(String accession, String xml) throws Exception {
         AnalysisType analysisType = sraAnalysisXmlParser.parseXml(xml, accession);
+        Analysis analysis = convertAnalysis(analysisType);
+        importProgress.stage("importing samples of analysis " + accession);
+        List<Sample> samples = importSamples(analysisType);
+        analysis.setSamples(samples);
+        analysis = extractStudyFromAnalysis(analysisType, analysis);
+        importProgress.objectImported();
+        return analysis;
+    }
+
+    /**
+     * Saves an analysis of the given study, and updates the release date and study ids of the samples and files of
+     * the analysis, which are derived from their analyses. The species of the study and its project is updated
+     * once all the analyses of the import are saved, by {@link #updateSpeciesOfStudies()}. Linking the analysis to
+     * the study adds it to the analyses of the study, which is shared by the analyses of the study imported
+     * concurrently, so the study is locked meanwhile. In bounded memory mode, the analysis is removed from the
+     * analyses of the study once saved.
+     */
+    protected Analysis saveAnalysis(Analysis analysis, Study study) {
+        synchronized (study) {
+            analysis.setStudy(study);
+        }
+        try {
+            Analysis savedAnalysis = analysisRepository.save(analysis);
+            studiesWithNewAnalyses.add(study.getId());
+            updateReleaseDateAndStudyIds(savedAnalysis);
+            return savedAnalysis;
+        } finally {
+            if (boundedMemory && Hibernate.isInitialized(study.getAnalyses())) {
+                synchronized (study) {
+                    study.getAnalyses().remove(analysis);
+                }
+            }
+        }
+    }
+
+    private void updateReleaseDateAndStudyIds(Analysis analysis) {
+        if (analysis.getSamples() != null && !analysis.getSamples().isEmpty()) {
+            sampleRepository.updateReleaseDateAndStudyIdsOfAnalysis(analysis.getId());
+        }
+        if (analysis.getFiles() != null && !analysis.getFiles().isEmpty()) {
+            fileRepository.updateReleaseDateAndStudyIdsOfAnalysis(analysis.getId());
+        }
+    }
+
+    /**
+     * Converts an analysis, importing its reference sequences and files, but not its samples or study.
+     */
+    protected Analysis convertAnalysis(AnalysisType analysisType) throws Exception {
         Analysis analysis = analysisConverter.convert(analysisType);
 
         // Import everything related to reference sequences
@@ -270,9 +536,6 @@ public abstract class ObjectsImporter {
         AnalysisEventHandler.validateReferenceSequenceLink(analysis);
 
         analysis.setFiles(fileExtractorFromAnalysis.getFiles(analysisType));
-        List<Sample> samples = importSamples(analysisType);
-        analysis.setSamples(samples);
-        analysis = extractStudyFromAnalysis(analysisType, analysis);
         return analysis;
     }
 
@@ -280,13 +543,21 @@ public abstract class ObjectsImporter {
             throws Exception;
 
     /**
-     * Based on an accession and type, imports a reference sequence.
+     * Based on an accession and type, imports a reference sequence. Each accession is imported at most once per run;
+     * concurrent calls for the same accession wait for and share the result of the first one.
      * @param accession: INSDC accession of a reference sequence.
      * @param referenceSequenceKind: Reference sequence kind; can be either "assembly" or "nuccore".
      * @return Ready ReferenceSequence entity
      */
     public ReferenceSequence importReferenceSequence(String accession, String referenceSequenceKind) throws Exception {
+        return referenceSequenceImports.get(accession,
+                () -> importReferenceSequenceIfAbsent(accession, referenceSequenceKind));
+    }
+
+    private ReferenceSequence importReferenceSequenceIfAbsent(String accession,
+                                                              String referenceSequenceKind) throws Exception {
         LOGGER.log(Level.INFO, "Importing reference sequence " + accession + " of kind " + referenceSequenceKind);
+        importProgress.stage("importing reference sequence " + accession);
         ReferenceSequence referenceSequence = referenceSequenceRepository.findByAccession(accession);
         if (referenceSequence != null) {
             return referenceSequence;
@@ -297,9 +568,10 @@ public abstract class ObjectsImporter {
             String assemblyXml = referenceSequenceXmlRetrieverThroughEntrezApi.getXml(accession, referenceSequenceKind);
             referenceSequence = entrezAssemblyXmlParser.parseXml(assemblyXml, accession, referenceSequenceKind);
             // Taxonomy of a reference sequence might already be saved in the database
-            taxonomy = taxonomyEventHandler.importTaxonomyTree(referenceSequence.getTaxonomy());
+            taxonomy = importTaxonomyTree(referenceSequence.getTaxonomy());
             referenceSequence.setTaxonomy(taxonomy);
             referenceSequence = referenceSequenceRepository.findOrSave(referenceSequence);
+            importProgress.objectImported();
         } catch (Exception exception) {
             LOGGER.log(Level.SEVERE, "Encountered Exception for ReferenceSequence accession " + accession);
             LOGGER.log(Level.SEVERE, exception.getMessage());
@@ -308,6 +580,22 @@ public abstract class ObjectsImporter {
         return referenceSequence;
     }
 
+    /**
+     * Forgets all objects remembered during the current run, so that the next run looks them up in the database
+     * again. Should be called whenever the database may have been changed by something other than this importer.
+     */
+    public void clearCaches() {
+        referenceSequenceImports.clear();
+    }
+
+    /**
+     * Forgets the objects remembered longer than the given age ago. Unlike {@link #clearCaches()}, it can be called
+     * while other imports are in progress without making them look up again the objects they share.
+     */
+    public void clearCachesOlderThan(Duration maxAge) {
+        referenceSequenceImports.clearOlderThan(maxAge);
+    }
+
     private ReferenceSequenceType getReferenceSequenceType(AnalysisType analysis) {
         AnalysisType.ANALYSISTYPE analysisType = analysis.getANALYSISTYPE();
         // Analysis records can contain a reference sequence in either of the three analysis categories:
@@ -352,28 +640,84 @@ public abstract class ObjectsImporter {
         return sequenceAndTsaAccessions;
     }
 
+    /**
+     * Samples which are not in the database yet are retrieved together, see
+     * {@link SraXmlRetrieverByAccession#getXmls}, as an analysis can reference thousands of them.
+     */
     public List<Sample> importSamples(AnalysisType analysisType) throws Exception {
         List<Sample> samples = new ArrayList<>();
+        List<String> sampleAccessionsToRetrieve = new ArrayList<>();
         for (String sampleAccession : getSampleAccessions(analysisType)) {
-            Sample sample = importSample(sampleAccession);
-            if (sample != null) { samples.add(sample); }
+            Sample sample = findSample(sampleAccession);
+            if (sample != null) {
+                samples.add(sample);
+            } else {
+                sampleAccessionsToRetrieve.add(sampleAccession);
+            }
         }
-        samples = sampleRepository.findOrSave(samples);
+        if (!sampleAccessionsToRetrieve.isEmpty()) {
+            LOGGER.log(Level.INFO, "Importing " + sampleAccessionsToRetrieve.size() + " samples of analysis "
+                    + analysisType.getAccession());
+            Map<String, String> sampleXmls = retrieveXmls(sampleAccessionsToRetrieve);
+            for (String sampleAccession : sampleAccessionsToRetrieve) {
+                String xml = sampleXmls.get(sampleAccession);
+                if (xml != null) {
+                    samples.add(convertSample(sampleAccession, xml));
+                }
+            }
+        }
+        samples = saveSamples(samples);
         return samples;
     }
 
+    /**
+     * Saves the samples which are not in the database yet. Analyses imported concurrently often share samples, so
+     * samples are saved one batch at a time to avoid saving the same sample twice.
+     */
+    protected List<Sample> saveSamples(List<Sample> samples) {
+        synchronized (sampleSaveLock) {
+            return sampleRepository.findOrSave(samples);
+        }
+    }
+
+    /**
+     * Imports a taxonomy and its ancestors, one tree at a time, as concurrent imports often share taxa.
+     */
+    protected Taxonomy importTaxonomyTree(Taxonomy taxonomy) throws Exception {
+        synchronized (taxonomyImportLock) {
+            return taxonomyEventHandler.importTaxonomyTree(taxonomy);
+        }
+    }
+
     public Sample importSample(String accession) throws Exception {
         LOGGER.log(Level.INFO, "Importing sample " + accession);
-        Sample sample = sampleRepository.findFirstByAccessionVersionId_AccessionOrderByAccessionVersionId_VersionDesc(
-                accession);
+        Sample sample = findSample(accession);
         if (sample != null) { return sample; }
+        String xml;
+        try {
+            xml = sraXmlRetrieverByAccession.getXml(accession);
+        } catch (Exception exception) {
+            LOGGER.log(Level.SEVERE, "Encountered exception for sample accession " + accession);
+            LOGGER.log(Level.SEVERE, exception.getMessage());
+            throw exception;
+        }
+        if (xml == null) { return null; }
+        return convertSample(accession, xml);
+    }
+
+    private Sample findSample(String accession) {
+        return sampleRepository.findFirstByAccessionVersionId_AccessionOrderByAccessionVersionId_VersionDesc(
+                accession);
+    }
+
+    private Sample convertSample(String accession, String xml) throws Exception {
+        Sample sample;
         try {
-            String xml = sraXmlRetrieverByAccession.getXml(accession);
-            if (xml == null) { return null; }
             SampleType sampleType = sraSampleXmlParser.parseXml(xml, accession);
             sample = sampleConverter.convert(sampleType);
-            Taxonomy taxonomy = taxonomyEventHandler.importTaxonomyTree(extractTaxonomyFromSample(sampleType));
+            Taxonomy taxonomy = importTaxonomyTree(extractTaxonomyFromSample(sampleType));
             sample.setTaxonomies(Arrays.asList(taxonomy));
+            importProgress.objectImported();
         } catch (Exception exception) {
             LOGGER.log(Level.SEVERE, "Encountered exception for sample accession " + accession);
             LOGGER.log(Level.SEVERE, exception.getMessage());
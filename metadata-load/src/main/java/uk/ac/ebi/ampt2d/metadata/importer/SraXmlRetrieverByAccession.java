@@ -17,8 +17,28 @@
  */
 package uk.ac.ebi.ampt2d.metadata.importer;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public interface SraXmlRetrieverByAccession {
 
     String getXml(String accession);
 
+    /**
+     * Retrieves the XMLs of several objects of the same type, by default one at a time.
+     *
+     * @return XML of each object found, by accession; objects which are not found are left out
+     */
+    default Map<String, String> getXmls(Collection<String> accessions) {
+        Map<String, String> xmls = new LinkedHashMap<>();
+        for (String accession : accessions) {
+            String xml = getXml(accession);
+            if (xml != null) {
+                xmls.put(accession, xml);
+            }
+        }
+        return xmls;
+    }
+
 }
@@ -21,6 +21,7 @@ package uk.ac.ebi.ampt2d.metadata.importer.api;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.web.client.RestTemplate;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.CircuitOpenException;
 
 public class ReferenceSequenceXmlRetrieverThroughEntrezApi {
 
@@ -34,23 +35,41 @@ public class ReferenceSequenceXmlRetrieverThroughEntrezApi {
 
     private static final String ENTREZ_API_KEY_QUERY = "&api_key={entrezApiKey}";
 
+    public static final String ENTREZ_API_URL = "https://eutils.ncbi.nlm.nih.gov/entrez/eutils";
+
     /*
      *  URL to obtain an internal Entrez ID from, given an NCBI database and a sequence accession
     */
-    private String entrezApiIdRetrievalUrl =
-            "https://eutils.ncbi.nlm.nih.gov/entrez/eutils/esearch.fcgi?db={entrezDatabase}&term={accession}";
+    private String entrezApiIdRetrievalUrl = "/esearch.fcgi?db={entrezDatabase}&term={accession}";
 
     /*
      *  URL to obtain assembly metadata from, given its internal Entrez ID.
     */
-    private String entrezApiAssemblyRetrievalUrl =
-            "https://eutils.ncbi.nlm.nih.gov/entrez/eutils/esummary.fcgi?db={entrezDatabase}&id={id}";
+    private String entrezApiAssemblyRetrievalUrl = "/esummary.fcgi?db={entrezDatabase}&id={id}";
 
-    private RestTemplate restTemplate = new RestTemplate();
+    private RestTemplate restTemplate;
 
     private String entrezApiKey;
 
     public ReferenceSequenceXmlRetrieverThroughEntrezApi(String entrezApiKey) {
+        this(entrezApiKey, ENTREZ_API_URL);
+    }
+
+    /**
+     * @param entrezApiUrl base URL of the Entrez E-utilities, which can point to a stub server when load testing
+     */
+    public ReferenceSequenceXmlRetrieverThroughEntrezApi(String entrezApiKey, String entrezApiUrl) {
+        this(entrezApiKey, entrezApiUrl, new RestTemplate());
+    }
+
+    /**
+     * @param restTemplate template shared with the other retrievers, e.g. to apply a common HTTP concurrency limit
+     */
+    public ReferenceSequenceXmlRetrieverThroughEntrezApi(String entrezApiKey, String entrezApiUrl,
+                                                         RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+        entrezApiIdRetrievalUrl = entrezApiUrl + entrezApiIdRetrievalUrl;
+        entrezApiAssemblyRetrievalUrl = entrezApiUrl + entrezApiAssemblyRetrievalUrl;
         if (entrezApiKey != null && !entrezApiKey.isEmpty()) {
             this.entrezApiKey = entrezApiKey;
             entrezApiIdRetrievalUrl = entrezApiIdRetrievalUrl + ENTREZ_API_KEY_QUERY;
@@ -69,7 +88,8 @@ public class ReferenceSequenceXmlRetrieverThroughEntrezApi {
     }
 
     @Retryable(maxAttemptsExpression="#{${entrez.api.attempts}}",
-            backoff=@Backoff(delayExpression="#{${entrez.api.delay}}"))
+            backoff=@Backoff(delayExpression="#{${entrez.api.delay}}"), include=Exception.class,
+            exclude=CircuitOpenException.class)
     public String getXml(String accession, String entrezDatabase) {
         // First we query the appropriate Entrez database with an accession to find out the corresponding internal ID.
         // For example, if we have AJPT01332946.1 and query the nuccore database, it'll return an ID of 428325741.
@@ -32,6 +32,7 @@ import uk.ac.ebi.ampt2d.metadata.persistence.entities.Sample;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
 import uk.ac.ebi.ampt2d.metadata.persistence.events.TaxonomyEventHandler;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.AnalysisRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.FileRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ProjectRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ReferenceSequenceRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.SampleRepository;
@@ -43,11 +44,18 @@ import uk.ac.ebi.ena.sra.xml.SampleType;
 import uk.ac.ebi.ena.sra.xml.StudyType;
 import uk.ac.ebi.ena.sra.xml.XRefType;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
@@ -56,6 +64,13 @@ public class SraObjectsImporterThroughApi extends ObjectsImporter {
 
     private static final Logger IMPORT_LOGGER = Logger.getLogger(SraObjectsImporterThroughApi.class.getName());
 
+    // Analyses of a study whose XMLs are retrieved together before they are imported
+    private static final int ANALYSES_RETRIEVED_AT_ONCE = 50;
+
+    private ExecutorService analysisImportExecutor;
+
+    private int maxPendingAnalyses = Integer.MAX_VALUE;
+
     public SraObjectsImporterThroughApi(
             SraXmlRetrieverByAccession sraXmlRetrieverByAccession,
             ReferenceSequenceXmlRetrieverThroughEntrezApi referenceSequenceXmlRetrieverThroughEntrezApi,
@@ -80,6 +95,7 @@ public class SraObjectsImporterThroughApi extends ObjectsImporter {
             AnalysisRepository analysisRepository,
             ReferenceSequenceRepository referenceSequenceRepository,
             SampleRepository sampleRepository,
+            FileRepository fileRepository,
             TaxonomyEventHandler taxonomyEventHandler) {
         super(
                 sraXmlRetrieverByAccession,
@@ -105,6 +121,7 @@ public class SraObjectsImporterThroughApi extends ObjectsImporter {
                 analysisRepository,
                 referenceSequenceRepository,
                 sampleRepository,
+                fileRepository,
                 taxonomyEventHandler
         );
     }
@@ -116,54 +133,137 @@ public class SraObjectsImporterThroughApi extends ObjectsImporter {
         project.setStudy(study);
         study.setProject(project);
         studyRepository.save(study);
-        for (String analysisAccession : getAnalysisAccessions(projectType)) {
-            Analysis analysis = importAnalysis(analysisAccession);
-            try {
-                analysis.setStudy(study);
-                analysisRepository.save(analysis);
-            } catch (Exception exception) {
-                IMPORT_LOGGER.log(Level.SEVERE, "Encountered Exception for analysis accession " + analysisAccession);
-                IMPORT_LOGGER.log(Level.SEVERE, exception.getMessage(), exception);
-                throw exception;
-            }
-        }
+        importAnalyses(getAnalysisAccessions(projectType), study);
         return project;
     }
 
     @Override
-    protected Study extractAnalysisFromStudy(StudyType studyType, Study study,
-                                             Project project) throws Exception {
+    protected Study extractAnalysisFromStudy(StudyType studyType, Study study, Project project,
+                                             Set<String> analysisAccessions) throws Exception {
         studyRepository.save(study);
         project.setStudy(study);
         study.setProject(project);
         projectRepository.save(project);
-        for (String analysisAccession : getAnalysisAccessions(studyType)) {
-            Analysis analysis = importAnalysis(analysisAccession);
-            analysis.setStudy(study);
-            try {
-                analysisRepository.save(analysis);
-            } catch (Exception cause) {
-                throw new RuntimeException("Encountered Exception saving analysis accession " + analysisAccession,
-                                           cause);
-            }
-        }
+        importAnalyses(analysisAccessions != null ? analysisAccessions : getAnalysisAccessions(studyType), study);
         return study;
     }
 
     @Override
-    protected Study extractAnalysisFromStudy(StudyType studyType, Study study) throws Exception {
+    protected Study extractAnalysisFromStudy(StudyType studyType, Study study,
+                                             Set<String> analysisAccessions) throws Exception {
         studyRepository.save(study);
-        for (String analysisAccession : getAnalysisAccessions(studyType)) {
-            Analysis analysis = importAnalysis(analysisAccession);
-            analysis.setStudy(study);
+        importAnalyses(analysisAccessions != null ? analysisAccessions : getAnalysisAccessions(studyType), study);
+        return study;
+    }
+
+    /**
+     * Imports the analyses of a study, concurrently in the analysis import executor if one is set. A project can have
+     * thousands of analyses, and importing each of them is mostly waiting for ENA; how many requests are sent at
+     * once is bounded by the RestTemplate of the retrievers, not here. The analysis XMLs are retrieved in batches
+     * by the calling thread while the analyses of the previous batches are being imported, as long as fewer than
+     * {@link #setMaxPendingAnalyses(int)} analyses are waiting to be imported or being imported. If an analysis
+     * fails, the analyses not started yet are cancelled and the failure is thrown once the running ones are finished.
+     */
+    private void importAnalyses(Set<String> analysisAccessions, Study study) throws Exception {
+        List<String> accessions = new ArrayList<>(analysisAccessions);
+        if (analysisImportExecutor == null || accessions.size() < 2) {
+            for (int start = 0; start < accessions.size(); start += ANALYSES_RETRIEVED_AT_ONCE) {
+                List<String> batch = getBatch(accessions, start);
+                Map<String, String> analysisXmls = retrieveXmls(batch);
+                for (String analysisAccession : batch) {
+                    importAnalysis(analysisAccession, analysisXmls.get(analysisAccession), study);
+                }
+                importProgress.chunkImported(batch.size() + " analyses of study "
+                                                     + study.getAccessionVersionId().getAccession());
+            }
+            return;
+        }
+        importProgress.stage("importing " + accessions.size() + " analyses of study "
+                                     + study.getAccessionVersionId().getAccession());
+        List<Future<?>> imports = new ArrayList<>();
+        Exception failure = null;
+        int finished = 0;
+        try {
+            for (int start = 0; start < accessions.size(); start += ANALYSES_RETRIEVED_AT_ONCE) {
+                // The XMLs of pending analyses are held in memory, so wait for the oldest ones first if needed
+                while (imports.size() - finished >= maxPendingAnalyses) {
+                    imports.get(finished++).get();
+                }
+                List<String> batch = getBatch(accessions, start);
+                Map<String, String> analysisXmls = retrieveXmls(batch);
+                for (String analysisAccession : batch) {
+                    String analysisXml = analysisXmls.get(analysisAccession);
+                    imports.add(analysisImportExecutor.submit(importProgress.inCurrentImport(() -> {
+                        importAnalysis(analysisAccession, analysisXml, study);
+                        return null;
+                    })));
+                }
+                importProgress.chunkImported(batch.size() + " analyses of study "
+                                                     + study.getAccessionVersionId().getAccession());
+            }
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            failure = cause instanceof Exception ? (Exception) cause : exception;
+            imports.forEach(pendingImport -> pendingImport.cancel(false));
+        } catch (Exception exception) {
+            failure = exception;
+            imports.forEach(pendingImport -> pendingImport.cancel(false));
+        }
+        for (Future<?> analysisImport : imports) {
             try {
-                analysisRepository.save(analysis);
-            } catch (Exception cause) {
-                throw new RuntimeException("Encountered Exception saving analysis accession " + analysisAccession,
-                                           cause);
+                analysisImport.get();
+            } catch (CancellationException exception) {
+                // Cancelled after an earlier failure
+            } catch (ExecutionException exception) {
+                if (failure == null) {
+                    Throwable cause = exception.getCause();
+                    failure = cause instanceof Exception ? (Exception) cause : exception;
+                    imports.forEach(pendingImport -> pendingImport.cancel(false));
+                }
             }
         }
-        return study;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static List<String> getBatch(List<String> accessions, int start) {
+        return accessions.subList(start, Math.min(start + ANALYSES_RETRIEVED_AT_ONCE, accessions.size()));
+    }
+
+    private void importAnalysis(String analysisAccession, String analysisXml, Study study) throws Exception {
+        if (analysisXml == null) {
+            throw new RuntimeException("Analysis " + analysisAccession + " of study "
+                                               + study.getAccessionVersionId().getAccession()
+                                               + " could not be retrieved");
+        }
+        IMPORT_LOGGER.log(Level.INFO, "Importing analysis " + analysisAccession);
+        importProgress.stage("importing analysis " + analysisAccession);
+        Analysis analysis = importAnalysis(analysisAccession, analysisXml);
+        try {
+            saveAnalysis(analysis, study);
+        } catch (Exception exception) {
+            IMPORT_LOGGER.log(Level.SEVERE, "Encountered Exception for analysis accession " + analysisAccession);
+            IMPORT_LOGGER.log(Level.SEVERE, exception.getMessage(), exception);
+            throw new RuntimeException("Encountered Exception saving analysis accession " + analysisAccession,
+                                       exception);
+        }
+    }
+
+    /**
+     * @param analysisImportExecutor executor in which the analyses of a study are imported concurrently, or null to
+     * import them one after another in the calling thread
+     */
+    public void setAnalysisImportExecutor(ExecutorService analysisImportExecutor) {
+        this.analysisImportExecutor = analysisImportExecutor;
+    }
+
+    /**
+     * @param maxPendingAnalyses maximum number of analyses of a study retrieved but not imported yet, which bounds
+     * the memory used by the XMLs of a study with many analyses; at least one batch is always retrieved at once
+     */
+    public void setMaxPendingAnalyses(int maxPendingAnalyses) {
+        this.maxPendingAnalyses = Math.max(maxPendingAnalyses, ANALYSES_RETRIEVED_AT_ONCE);
     }
 
     @Override
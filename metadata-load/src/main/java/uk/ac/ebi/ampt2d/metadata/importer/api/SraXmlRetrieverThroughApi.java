@@ -20,33 +20,168 @@ package uk.ac.ebi.ampt2d.metadata.importer.api;
 import org.springframework.http.HttpStatus;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.policy.NeverRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import uk.ac.ebi.ampt2d.metadata.importer.NotFoundAccessionCache;
 import uk.ac.ebi.ampt2d.metadata.importer.ObjectsImporter;
 import uk.ac.ebi.ampt2d.metadata.importer.SraXmlRetrieverByAccession;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.CircuitOpenException;
+import uk.ac.ebi.ampt2d.metadata.importer.xml.SraXmlSetSplitter;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class SraXmlRetrieverThroughApi implements SraXmlRetrieverByAccession {
 
-    public static final String ENA_API_URL = "https://www.ebi.ac.uk/ena/browser/api/xml/{accessionId}";
+    public static final String ENA_API_URL = "https://www.ebi.ac.uk/ena/browser/api";
+
+    private static final String XML_PATH = "/xml/{accessionId}";
+
+    public static final int DEFAULT_BATCH_SIZE = 50;
 
     private static final Logger XML_RETRIEVE_LOGGER = Logger.getLogger(ObjectsImporter.class.getName());
 
-    private RestTemplate restTemplate = new RestTemplate();
+    private RestTemplate restTemplate;
+
+    private NotFoundAccessionCache notFoundAccessionCache;
+
+    private String enaApiXmlUrl;
+
+    private int batchSize;
+
+    private SraXmlSetSplitter sraXmlSetSplitter = new SraXmlSetSplitter();
+
+    private RetryTemplate batchRetryTemplate = new RetryTemplate();
+
+    public SraXmlRetrieverThroughApi(NotFoundAccessionCache notFoundAccessionCache) {
+        this(notFoundAccessionCache, ENA_API_URL);
+    }
+
+    /**
+     * @param enaApiUrl base URL of the ENA browser API, which can point to a stub server when load testing
+     */
+    public SraXmlRetrieverThroughApi(NotFoundAccessionCache notFoundAccessionCache, String enaApiUrl) {
+        this(notFoundAccessionCache, enaApiUrl, new RestTemplate());
+    }
 
-    @Retryable(maxAttemptsExpression="#{${ena.api.attempts}}", backoff=@Backoff(delayExpression="#{${ena.api.delay}}"))
+    /**
+     * @param restTemplate template shared with the other retrievers, e.g. to apply a common HTTP concurrency limit
+     */
+    public SraXmlRetrieverThroughApi(NotFoundAccessionCache notFoundAccessionCache, String enaApiUrl,
+                                     RestTemplate restTemplate) {
+        this(notFoundAccessionCache, enaApiUrl, restTemplate, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize maximum number of accessions requested at once by {@link #getXmls(Collection)}
+     */
+    public SraXmlRetrieverThroughApi(NotFoundAccessionCache notFoundAccessionCache, String enaApiUrl,
+                                     RestTemplate restTemplate, int batchSize) {
+        this.notFoundAccessionCache = notFoundAccessionCache;
+        this.enaApiXmlUrl = enaApiUrl + XML_PATH;
+        this.restTemplate = restTemplate;
+        this.batchSize = batchSize;
+        this.batchRetryTemplate.setRetryPolicy(new NeverRetryPolicy());
+    }
+
+    // Without include, an exclude alone makes no exception retryable
+    @Retryable(maxAttemptsExpression="#{${ena.api.attempts}}", backoff=@Backoff(delayExpression="#{${ena.api.delay}}"),
+            include=Exception.class, exclude=CircuitOpenException.class)
     @Override
     public String getXml(String accession) {
+        if (notFoundAccessionCache.isNotFound(accession)) {
+            XML_RETRIEVE_LOGGER.log(Level.WARNING, "Accession recently not found in ENA, skipping " + accession);
+            return null;
+        }
+        return fetchXml(accession);
+    }
+
+    /**
+     * Requests the accessions in batches, as the ENA browser API accepts a comma-separated list of accessions of the
+     * same type and returns them all in one set. Accessions missing from the set of their batch are requested on
+     * their own, so that objects which do not exist are told apart from, e.g., objects listed under another ID. Each
+     * batch is retried on its own, see {@link #setBatchRetryTemplate(RetryTemplate)}, so that a failure does not
+     * request again the batches already retrieved.
+     */
+    @Override
+    public Map<String, String> getXmls(Collection<String> accessions) {
+        List<String> accessionsToRequest = new ArrayList<>();
+        for (String accession : new LinkedHashSet<>(accessions)) {
+            if (notFoundAccessionCache.isNotFound(accession)) {
+                XML_RETRIEVE_LOGGER.log(Level.WARNING, "Accession recently not found in ENA, skipping " + accession);
+            } else {
+                accessionsToRequest.add(accession);
+            }
+        }
+        Map<String, String> xmls = new LinkedHashMap<>();
+        for (int start = 0; start < accessionsToRequest.size(); start += batchSize) {
+            List<String> batch = accessionsToRequest.subList(start,
+                                                             Math.min(start + batchSize, accessionsToRequest.size()));
+            xmls.putAll(batchRetryTemplate.execute(context -> fetchXmls(batch)));
+        }
+        return xmls;
+    }
+
+    private Map<String, String> fetchXmls(List<String> batch) {
+        Map<String, String> batchXmls = batch.size() > 1 ? fetchXmlBatch(batch) : Collections.emptyMap();
+        Map<String, String> xmls = new LinkedHashMap<>();
+        for (String accession : batch) {
+            String xml = batchXmls.get(accession);
+            if (xml == null) {
+                xml = fetchXml(accession);
+            }
+            if (xml != null) {
+                xmls.put(accession, xml);
+            }
+        }
+        return xmls;
+    }
+
+    /**
+     * @param batchRetryTemplate template with which each batch requested by {@link #getXmls(Collection)} is retried;
+     * batches are not retried by default
+     */
+    public void setBatchRetryTemplate(RetryTemplate batchRetryTemplate) {
+        this.batchRetryTemplate = batchRetryTemplate;
+    }
+
+    private Map<String, String> fetchXmlBatch(List<String> accessions) {
+        String setXml;
+        try {
+            setXml = restTemplate.getForEntity(enaApiXmlUrl, String.class, String.join(",", accessions)).getBody();
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
+                // None of them was found; they are requested again one by one to record which do not exist
+                return Collections.emptyMap();
+            }
+            throw e;
+        }
+        try {
+            return sraXmlSetSplitter.split(setXml);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not split the XML set returned for accessions " + accessions, e);
+        }
+    }
+
+    private String fetchXml(String accession) {
         try {
-            return restTemplate.getForEntity(ENA_API_URL, String.class, accession).getBody();
+            return restTemplate.getForEntity(enaApiXmlUrl, String.class, accession).getBody();
         } catch (HttpClientErrorException e) {
             // When ENA XML API returns a 404 Not Found response, it represents a special non-critical class of errors.
             // In this case, import of the object should not be aborted and the transaction should not be rolled back.
             // Hence, in this case the method will return `null` in place of an XML and will not raise an excepion.
             if (e.getStatusCode() == HttpStatus.NOT_FOUND) {
                 XML_RETRIEVE_LOGGER.log(Level.WARNING, "Accession not found in ENA " + accession);
+                notFoundAccessionCache.recordNotFound(accession);
                 return null;
             }
             throw e;
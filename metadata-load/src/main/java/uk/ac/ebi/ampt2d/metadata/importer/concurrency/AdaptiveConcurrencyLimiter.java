@@ -0,0 +1,219 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.importer.concurrency;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Bounds the number of requests in flight to a service with a limit which follows what the service can take, in the
+ * way TCP congestion control does (additive increase, multiplicative decrease):
+ * <ul>
+ * <li>Each healthy response, sent while the limit was being used, raises the limit by 1/limit, i.e. by about one
+ * request per round of limit requests.</li>
+ * <li>A server error, a 429 Too Many Requests, an I/O error, or a response much slower than usual cuts the limit by
+ * the backoff ratio. Only requests sent after the last cut can cut it again, so that a burst of errors caused by the
+ * same overload only counts once.</li>
+ * </ul>
+ * Usual latency is an exponentially weighted average of past latencies. Requests of different kinds, e.g. of one or
+ * many accessions, can be given separate averages with {@link #setLatencyClassifier(Function)}. When other
+ * interceptors which may hold requests back, e.g. a {@link HttpConcurrencyLimiter}, come after this one, the
+ * {@link #latencyTimer()} should come last, so that the time requests spend waiting in them is not taken for latency
+ * of the service.
+ */
+public class AdaptiveConcurrencyLimiter implements ClientHttpRequestInterceptor {
+
+    private static final Logger LOGGER = Logger.getLogger(AdaptiveConcurrencyLimiter.class.getName());
+
+    private static final double LATENCY_SMOOTHING = 0.05;
+
+    private final String name;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    private final double latencyTolerance;
+
+    private Function<HttpRequest, String> latencyClassifier = request -> "";
+
+    private double limit;
+
+    private int inFlight;
+
+    // Requests are numbered as they are sent, so that responses to requests sent before the last cut are recognised
+    private long sentRequests;
+
+    private long sentRequestsAtLastDecrease;
+
+    private long decreases;
+
+    private final Map<String, Double> usualLatencyMillis = new HashMap<>();
+
+    // Time at which the request of the current thread was actually sent, if recorded by the latency timer
+    private final ThreadLocal<Long> sendTime = new ThreadLocal<>();
+
+    /**
+     * @param latencyTolerance how many times slower than usual a response has to be to count as a latency spike
+     * @param backoffRatio ratio by which the limit is multiplied when the service shows signs of overload
+     */
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, double latencyTolerance) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits of " + name + " must satisfy 1 <= min (" + minLimit +
+                                                       ") <= initial (" + initialLimit + ") <= max (" + maxLimit + ")");
+        }
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    public void setLatencyClassifier(Function<HttpRequest, String> latencyClassifier) {
+        this.latencyClassifier = latencyClassifier;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        long sequence = acquire(request);
+        boolean limitInUse = isLimitInUse();
+        long start = System.nanoTime();
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException exception) {
+            release();
+            onOverload(sequence, "I/O error");
+            throw exception;
+        } finally {
+            Long sent = sendTime.get();
+            sendTime.remove();
+            if (sent != null) {
+                start = sent;
+            }
+        }
+        double latencyMillis = (System.nanoTime() - start) / 1e6;
+        int status;
+        try {
+            status = response.getRawStatusCode();
+        } catch (IOException | RuntimeException exception) {
+            response.close();
+            release();
+            onOverload(sequence, "I/O error");
+            throw exception;
+        }
+        if (status >= 500 || status == 429) {
+            onOverload(sequence, "status " + status);
+        } else {
+            onResponse(sequence, latencyClassifier.apply(request), latencyMillis, limitInUse);
+        }
+        return new ReleasingClientHttpResponse(response, this::release);
+    }
+
+    /**
+     * @return interceptor which records when requests passed by this limiter are actually sent, to be added after
+     * every interceptor which may hold them back
+     */
+    public ClientHttpRequestInterceptor latencyTimer() {
+        return (request, body, execution) -> {
+            sendTime.set(System.nanoTime());
+            return execution.execute(request, body);
+        };
+    }
+
+    private synchronized long acquire(HttpRequest request) throws IOException {
+        try {
+            while (inFlight >= (int) limit) {
+                wait();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to send " + request.getURI(), exception);
+        }
+        inFlight++;
+        return ++sentRequests;
+    }
+
+    private synchronized boolean isLimitInUse() {
+        // Without this, the limit would keep growing while the importer is not even using it
+        return inFlight * 2 >= (int) limit;
+    }
+
+    private synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    private synchronized void onResponse(long sequence, String latencyClass, double latencyMillis,
+                                         boolean limitInUse) {
+        Double usualLatency = usualLatencyMillis.get(latencyClass);
+        usualLatencyMillis.put(latencyClass, usualLatency == null ? latencyMillis :
+                usualLatency + LATENCY_SMOOTHING * (latencyMillis - usualLatency));
+        if (usualLatency != null && latencyMillis > latencyTolerance * usualLatency) {
+            onOverload(sequence, String.format("latency of %.0f ms, usually %.0f ms", latencyMillis,
+                                               usualLatency));
+        } else if (limitInUse) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+            notifyAll();
+        }
+    }
+
+    private synchronized void onOverload(long sequence, String reason) {
+        if (sequence <= sentRequestsAtLastDecrease) {
+            return;
+        }
+        double previousLimit = limit;
+        limit = Math.max(minLimit, limit * backoffRatio);
+        sentRequestsAtLastDecrease = sentRequests;
+        decreases++;
+        LOGGER.info(String.format("Concurrency limit of %s cut from %.1f to %.1f after %s", name, previousLimit, limit,
+                                  reason));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getRequestsInFlight() {
+        return inFlight;
+    }
+
+    public synchronized long getDecreases() {
+        return decreases;
+    }
+
+}
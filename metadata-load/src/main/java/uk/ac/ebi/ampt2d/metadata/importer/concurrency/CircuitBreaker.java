@@ -0,0 +1,173 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.importer.concurrency;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.logging.Logger;
+
+/**
+ * Stops sending requests to a service which appears to be down, rather than letting every import retry against it.
+ * <p>
+ * After a number of consecutive failures (I/O errors or 5xx responses), the circuit opens and requests wait instead
+ * of being sent, which pauses the threads importing. Once the open period has elapsed, a single waiting request is
+ * sent as a probe: if it succeeds, the circuit closes and every waiting request goes ahead; if it fails, the circuit
+ * opens again. A request which has waited for longer than the maximum wait fails with {@link CircuitOpenException},
+ * so that its import can be deferred rather than marked as failed.
+ */
+public class CircuitBreaker implements ClientHttpRequestInterceptor {
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private final long maxWaitMillis;
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openUntil;
+
+    private long openings;
+
+    /**
+     * @param failureThreshold consecutive failures after which the circuit opens
+     * @param openDuration time after which a probe is sent to an open circuit
+     * @param maxWait time a request waits for an open circuit to close before failing
+     */
+    public CircuitBreaker(String name, int failureThreshold, Duration openDuration, Duration maxWait) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openDuration.toMillis();
+        this.maxWaitMillis = maxWait.toMillis();
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        boolean probe = admit(request);
+        ClientHttpResponse response;
+        int status;
+        try {
+            response = execution.execute(request, body);
+            status = response.getRawStatusCode();
+        } catch (IOException | RuntimeException exception) {
+            recordFailure(probe);
+            throw exception;
+        }
+        if (status >= 500) {
+            recordFailure(probe);
+        } else {
+            recordSuccess(probe);
+        }
+        return response;
+    }
+
+    /**
+     * Waits until the request can be sent.
+     *
+     * @return whether the request is the probe of a half-open circuit
+     */
+    private synchronized boolean admit(HttpRequest request) throws IOException {
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        while (true) {
+            if (state == State.CLOSED) {
+                return false;
+            }
+            long now = System.currentTimeMillis();
+            if (state == State.OPEN && now >= openUntil) {
+                state = State.HALF_OPEN;
+                LOGGER.info(name + " circuit half-open, probing with " + request.getURI());
+                return true;
+            }
+            if (now >= deadline) {
+                throw new CircuitOpenException(name + " has been unavailable for longer than "
+                                                       + maxWaitMillis / 1000 + " s, not sending " + request.getURI());
+            }
+            // While half-open, wait for the outcome of the probe, which notifies the waiting requests
+            long until = state == State.OPEN ? Math.min(openUntil, deadline) : deadline;
+            try {
+                wait(Math.max(1, until - now));
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to send " + request.getURI());
+            }
+        }
+    }
+
+    private synchronized void recordFailure(boolean probe) {
+        if (probe) {
+            open("probe failed");
+        } else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+            open(consecutiveFailures + " consecutive failures");
+        }
+    }
+
+    private synchronized void recordSuccess(boolean probe) {
+        consecutiveFailures = 0;
+        if (probe) {
+            state = State.CLOSED;
+            LOGGER.info(name + " circuit closed, resuming requests");
+            notifyAll();
+        }
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + openMillis;
+        consecutiveFailures = 0;
+        openings++;
+        LOGGER.warning(name + " circuit open after " + reason + ", pausing requests for " + openMillis / 1000 + " s");
+        notifyAll();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return number of times the circuit has opened since the start
+     */
+    public synchronized long getOpenings() {
+        return openings;
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.importer.concurrency;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounds the number of HTTP requests in flight across every RestTemplate it is added to, however many threads are
+ * importing. A request holds its permit until its response is closed, i.e. until its body has been read.
+ */
+public class HttpConcurrencyLimiter implements ClientHttpRequestInterceptor {
+
+    private final Semaphore permits;
+
+    private final int maxConcurrentRequests;
+
+    public HttpConcurrencyLimiter(int maxConcurrentRequests) {
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to send " + request.getURI(), exception);
+        }
+        try {
+            return new ReleasingClientHttpResponse(execution.execute(request, body), permits::release);
+        } catch (IOException | RuntimeException exception) {
+            permits.release();
+            throw exception;
+        }
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getRequestsInFlight() {
+        return maxConcurrentRequests - permits.availablePermits();
+    }
+
+}
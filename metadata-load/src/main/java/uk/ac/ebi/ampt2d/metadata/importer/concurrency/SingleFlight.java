@@ -0,0 +1,96 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.concurrency;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader, while every other caller asking for
+ * the same key in the meantime waits for, and shares, its result. Successful results are kept until {@link #clear()}
+ * is called, or until they are older than the age given to {@link #clearOlderThan(Duration)}, so later callers do not
+ * trigger a load at all. Failed loads are not kept, and the next caller retries.
+ *
+ * @param <K> key type, e.g. an accession
+ * @param <V> loaded value type
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+
+    public V get(K key, Callable<V> loader) throws Exception {
+        Flight<V> flight = new Flight<>();
+        Flight<V> existingFlight = flights.putIfAbsent(key, flight);
+        if (existingFlight != null) {
+            return await(existingFlight.result);
+        }
+        try {
+            V value = loader.call();
+            flight.result.complete(value);
+            return value;
+        } catch (Exception | Error exception) {
+            // Only forget the failed flight; a concurrent clear() may already have removed it
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(exception);
+            throw exception;
+        }
+    }
+
+    public void clear() {
+        flights.clear();
+    }
+
+    /**
+     * Forgets the results of the loads which started longer than the given age ago. Callers already waiting for them
+     * still get them.
+     */
+    public void clearOlderThan(Duration maxAge) {
+        long oldestStartTime = System.nanoTime() - maxAge.toNanos();
+        flights.values().removeIf(flight -> flight.startTime - oldestStartTime < 0);
+    }
+
+    public int size() {
+        return flights.size();
+    }
+
+    private V await(CompletableFuture<V> flight) throws Exception {
+        try {
+            return flight.get();
+        } catch (ExecutionException executionException) {
+            Throwable cause = executionException.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    private static class Flight<V> {
+
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private final long startTime = System.nanoTime();
+
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.configuration;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import uk.ac.ebi.ampt2d.metadata.importer.ObjectsImporter;
+import uk.ac.ebi.ampt2d.metadata.importer.daemon.ImportDaemon;
+import uk.ac.ebi.ampt2d.metadata.importer.daemon.ImportRequestQueue;
+import uk.ac.ebi.ampt2d.metadata.importer.progress.ImportProgress;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "import.daemon.enabled", havingValue = "true")
+public class ImportDaemonConfiguration {
+
+    @Bean
+    public ImportRequestQueue importRequestQueue(@Qualifier("metadataJdbcTemplate") JdbcTemplate jdbcTemplate) {
+        return new ImportRequestQueue(jdbcTemplate);
+    }
+
+    @Bean(destroyMethod = "stop")
+    public ImportDaemon importDaemon(
+            ImportRequestQueue importRequestQueue, ObjectsImporter objectsImporter, ImportProgress importProgress,
+            @Value("${import.daemon.workers:1}") int workers,
+            @Value("${import.daemon.poll-interval-ms:1000}") long pollIntervalMillis,
+            @Value("${import.daemon.max-attempts:3}") int maxAttempts,
+            @Value("${import.daemon.stale-after-minutes:360}") long staleAfterMinutes,
+            @Value("${import.daemon.stale-check-interval-minutes:10}") long staleCheckIntervalMinutes,
+            @Value("${import.daemon.shutdown-timeout-seconds:60}") long shutdownTimeoutSeconds,
+            @Value("${import.daemon.cache-max-age-minutes:10}") long cacheMaxAgeMinutes) {
+        return new ImportDaemon(importRequestQueue, objectsImporter, importProgress, workers, pollIntervalMillis,
+                                maxAttempts, Duration.ofMinutes(staleAfterMinutes),
+                                Duration.ofMinutes(staleCheckIntervalMinutes),
+                                Duration.ofSeconds(shutdownTimeoutSeconds), Duration.ofMinutes(cacheMaxAgeMinutes));
+    }
+
+}
@@ -30,10 +30,12 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetQueryDslJpaRepository;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
@@ -43,6 +45,7 @@ import javax.sql.DataSource;
 @EntityScan(basePackages = "uk.ac.ebi.ampt2d.metadata.persistence.entities")
 @EnableJpaRepositories(entityManagerFactoryRef = "metadataEntityManagerFactory",
         basePackages = "uk.ac.ebi.ampt2d.metadata.persistence.repositories",
+        repositoryBaseClass = KeysetQueryDslJpaRepository.class,
         transactionManagerRef = "metadataTransactionManager")
 @EnableJpaAuditing
 public class MetadataDatabaseConfiguration {
@@ -57,6 +60,11 @@ public class MetadataDatabaseConfiguration {
         return DataSourceBuilder.create().build();
     }
 
+    @Bean(name = "metadataJdbcTemplate")
+    public JdbcTemplate jdbcTemplate(@Qualifier("metadataDatasource") DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
     @Bean(name = "metadataEntityManagerFactory")
     @ConfigurationProperties(prefix = "metadata")
     public LocalContainerEntityManagerFactoryBean entityManagerFactory(EntityManagerFactoryBuilder builder,
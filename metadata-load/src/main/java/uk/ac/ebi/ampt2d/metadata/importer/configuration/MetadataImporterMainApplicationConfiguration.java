@@ -18,16 +18,27 @@
 
 package uk.ac.ebi.ampt2d.metadata.importer.configuration;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.backoff.FixedBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.client.RestTemplate;
+import uk.ac.ebi.ampt2d.metadata.importer.NotFoundAccessionCache;
 import uk.ac.ebi.ampt2d.metadata.importer.ObjectsImporter;
 import uk.ac.ebi.ampt2d.metadata.importer.SraXmlRetrieverByAccession;
 import uk.ac.ebi.ampt2d.metadata.importer.api.ReferenceSequenceXmlRetrieverThroughEntrezApi;
 import uk.ac.ebi.ampt2d.metadata.importer.api.SraObjectsImporterThroughApi;
 import uk.ac.ebi.ampt2d.metadata.importer.api.SraXmlRetrieverThroughApi;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.AdaptiveConcurrencyLimiter;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.CircuitBreaker;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.CircuitOpenException;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.HttpConcurrencyLimiter;
 import uk.ac.ebi.ampt2d.metadata.importer.converter.AnalysisConverter;
 import uk.ac.ebi.ampt2d.metadata.importer.converter.ProjectConverter;
 import uk.ac.ebi.ampt2d.metadata.importer.converter.SampleConverter;
@@ -37,6 +48,9 @@ import uk.ac.ebi.ampt2d.metadata.importer.database.SraXmlRetrieverThroughDatabas
 import uk.ac.ebi.ampt2d.metadata.importer.extractor.FileExtractorFromAnalysis;
 import uk.ac.ebi.ampt2d.metadata.importer.extractor.PublicationExtractor;
 import uk.ac.ebi.ampt2d.metadata.importer.extractor.WebResourceExtractor;
+import uk.ac.ebi.ampt2d.metadata.importer.progress.ImportHttpMetrics;
+import uk.ac.ebi.ampt2d.metadata.importer.progress.ImportProgress;
+import uk.ac.ebi.ampt2d.metadata.importer.progress.ImportProgressEndpoint;
 import uk.ac.ebi.ampt2d.metadata.importer.xml.EntrezAssemblyXmlParser;
 import uk.ac.ebi.ampt2d.metadata.importer.xml.SraAnalysisXmlParser;
 import uk.ac.ebi.ampt2d.metadata.importer.xml.SraProjectXmlParser;
@@ -53,19 +67,161 @@ import uk.ac.ebi.ampt2d.metadata.persistence.repositories.StudyRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.TaxonomyRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.WebResourceRepository;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
 @Configuration
 @EnableRetry
 public class MetadataImporterMainApplicationConfiguration {
 
     @Bean
-    public SraXmlRetrieverThroughApi sraXmlRetrieverThroughApi() {
-        return new SraXmlRetrieverThroughApi();
+    public NotFoundAccessionCache notFoundAccessionCache(
+            @Qualifier("metadataJdbcTemplate") JdbcTemplate metadataJdbcTemplate,
+            @Value("${import.source}") String importSource,
+            @Value("${import.not-found-cache.enabled:true}") boolean enabled,
+            @Value("${import.not-found-cache.expiry-days:30}") long expiryDays) {
+        return new NotFoundAccessionCache(metadataJdbcTemplate, importSource, Duration.ofDays(expiryDays), enabled);
+    }
+
+    @Bean
+    public ImportProgress importProgress() {
+        return new ImportProgress();
+    }
+
+    @Bean
+    public ImportProgressEndpoint importProgressEndpoint(ImportProgress importProgress) {
+        return new ImportProgressEndpoint(importProgress);
+    }
+
+    @Bean
+    public HttpConcurrencyLimiter httpConcurrencyLimiter(
+            @Value("${import.http.max-concurrent-requests:8}") int maxConcurrentRequests) {
+        return new HttpConcurrencyLimiter(maxConcurrentRequests);
+    }
+
+    /**
+     * Limit of the requests sent at once to ENA, which follows how loaded ENA is, up to its own maximum. ENA requests
+     * also count towards the overall HTTP limit, so a maximum above it only lets more ENA requests wait for it.
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter enaConcurrencyLimiter(
+            @Value("${ena.concurrency.initial:4}") int initialLimit,
+            @Value("${ena.concurrency.min:1}") int minLimit,
+            @Value("${ena.concurrency.max:8}") int maxLimit,
+            @Value("${ena.concurrency.backoff-ratio:0.5}") double backoffRatio,
+            @Value("${ena.concurrency.latency-tolerance:3}") double latencyTolerance) {
+        AdaptiveConcurrencyLimiter enaConcurrencyLimiter = new AdaptiveConcurrencyLimiter(
+                "ENA", Math.min(initialLimit, maxLimit), Math.min(minLimit, maxLimit), maxLimit, backoffRatio,
+                latencyTolerance);
+        // Requests for a list of accessions take longer than for a single one, so they are only compared together
+        enaConcurrencyLimiter.setLatencyClassifier(
+                request -> request.getURI().getPath().contains(",") ? "batch" : "single");
+        return enaConcurrencyLimiter;
+    }
+
+    @Bean
+    public CircuitBreaker enaCircuitBreaker(
+            @Value("${import.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${import.circuit-breaker.open-seconds:30}") long openSeconds,
+            @Value("${import.circuit-breaker.max-wait-minutes:10}") long maxWaitMinutes) {
+        return new CircuitBreaker("ENA", failureThreshold, Duration.ofSeconds(openSeconds),
+                                  Duration.ofMinutes(maxWaitMinutes));
+    }
+
+    @Bean
+    public CircuitBreaker entrezCircuitBreaker(
+            @Value("${import.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${import.circuit-breaker.open-seconds:30}") long openSeconds,
+            @Value("${import.circuit-breaker.max-wait-minutes:10}") long maxWaitMinutes) {
+        return new CircuitBreaker("Entrez", failureThreshold, Duration.ofSeconds(openSeconds),
+                                  Duration.ofMinutes(maxWaitMinutes));
+    }
+
+    @Bean
+    public ImportHttpMetrics importHttpMetrics(HttpConcurrencyLimiter httpConcurrencyLimiter,
+                                               AdaptiveConcurrencyLimiter enaConcurrencyLimiter,
+                                               @Qualifier("enaCircuitBreaker") CircuitBreaker enaCircuitBreaker,
+                                               @Qualifier("entrezCircuitBreaker") CircuitBreaker entrezCircuitBreaker) {
+        return new ImportHttpMetrics(httpConcurrencyLimiter, enaConcurrencyLimiter,
+                                     Arrays.asList(enaCircuitBreaker, entrezCircuitBreaker));
+    }
+
+    /**
+     * Template of the Entrez retriever, which applies the overall HTTP concurrency limit. Requests wait for the
+     * circuit breaker first, so that they do not hold a place in the limit while Entrez is unavailable.
+     */
+    @Bean
+    public RestTemplate importRestTemplate(@Qualifier("entrezCircuitBreaker") CircuitBreaker entrezCircuitBreaker,
+                                           HttpConcurrencyLimiter httpConcurrencyLimiter) {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setInterceptors(Arrays.asList(entrezCircuitBreaker, httpConcurrencyLimiter));
+        return restTemplate;
+    }
+
+    /**
+     * Template shared by the ENA retriever and taxonomy lookups. Requests wait for the circuit breaker, then for the
+     * ENA limit, before taking a place in the overall one, so that they do not hold the latter while ENA is
+     * unavailable or backing off. The ENA latency is timed from when requests get their place in the overall limit.
+     */
+    @Bean
+    public RestTemplate enaRestTemplate(@Qualifier("enaCircuitBreaker") CircuitBreaker enaCircuitBreaker,
+                                        AdaptiveConcurrencyLimiter enaConcurrencyLimiter,
+                                        HttpConcurrencyLimiter httpConcurrencyLimiter) {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setInterceptors(Arrays.asList(enaCircuitBreaker, enaConcurrencyLimiter,
+                                                   httpConcurrencyLimiter, enaConcurrencyLimiter.latencyTimer()));
+        return restTemplate;
+    }
+
+    @Bean
+    public SraXmlRetrieverThroughApi sraXmlRetrieverThroughApi(
+            NotFoundAccessionCache notFoundAccessionCache,
+            @Value("${ena.api.url:" + SraXmlRetrieverThroughApi.ENA_API_URL + "}") String enaApiUrl,
+            @Value("${ena.api.batch-size:" + SraXmlRetrieverThroughApi.DEFAULT_BATCH_SIZE + "}") int batchSize,
+            @Value("${ena.api.attempts}") int attempts,
+            @Value("${ena.api.delay}") long delay,
+            @Qualifier("enaRestTemplate") RestTemplate enaRestTemplate) {
+        SraXmlRetrieverThroughApi sraXmlRetrieverThroughApi = new SraXmlRetrieverThroughApi(
+                notFoundAccessionCache, enaApiUrl, enaRestTemplate, batchSize);
+        // Same retries as single accessions, but for each batch rather than for all the accessions requested at once
+        RetryTemplate batchRetryTemplate = new RetryTemplate();
+        batchRetryTemplate.setRetryPolicy(new SimpleRetryPolicy(
+                attempts, Collections.singletonMap(CircuitOpenException.class, false), true, true));
+        FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
+        backOffPolicy.setBackOffPeriod(delay);
+        batchRetryTemplate.setBackOffPolicy(backOffPolicy);
+        sraXmlRetrieverThroughApi.setBatchRetryTemplate(batchRetryTemplate);
+        return sraXmlRetrieverThroughApi;
     }
 
     @Bean
     public ReferenceSequenceXmlRetrieverThroughEntrezApi assemblyXmlRetrieverThroughEntrezApi(
-            @Value("${entrez.api.key:}") String entrezApiKey) {
-        return new ReferenceSequenceXmlRetrieverThroughEntrezApi(entrezApiKey);
+            @Value("${entrez.api.key:}") String entrezApiKey,
+            @Value("${entrez.api.url:" + ReferenceSequenceXmlRetrieverThroughEntrezApi.ENTREZ_API_URL + "}")
+                    String entrezApiUrl,
+            @Qualifier("importRestTemplate") RestTemplate importRestTemplate) {
+        return new ReferenceSequenceXmlRetrieverThroughEntrezApi(entrezApiKey, entrezApiUrl, importRestTemplate);
+    }
+
+    @Bean
+    public TaxonomyEventHandler taxonomyEventHandler(
+            TaxonomyRepository taxonomyRepository,
+            @Value("${ena.taxon.url:" + TaxonomyEventHandler.ENA_TAXON_URL + "}") String enaTaxonUrl,
+            @Qualifier("enaRestTemplate") RestTemplate enaRestTemplate) {
+        return new TaxonomyEventHandler(taxonomyRepository, enaTaxonUrl, enaRestTemplate);
+    }
+
+    /**
+     * Pool in which the analyses of a study are imported, shared by all the accessions imported concurrently
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "import.source", havingValue = "API")
+    public ExecutorService analysisImportExecutor(@Value("${import.analysis.parallelism:4}") int parallelism) {
+        return Executors.newFixedThreadPool(Math.max(1, parallelism));
     }
 
     @Bean
@@ -75,13 +231,18 @@ public class MetadataImporterMainApplicationConfiguration {
                                                        PublicationRepository publicationRepository,
                                                        WebResourceRepository webResourceRepository,
                                                        FileRepository fileRepository,
-                                                       TaxonomyRepository taxonomyRepository,
+                                                       TaxonomyEventHandler taxonomyEventHandler,
                                                        ReferenceSequenceRepository referenceSequenceRepository,
                                                        AnalysisRepository analysisRepository,
                                                        ProjectRepository projectRepository,
                                                        StudyRepository studyRepository,
-                                                       SampleRepository sampleRepository) {
-        return new SraObjectsImporterThroughApi(
+                                                       SampleRepository sampleRepository,
+                                                       ImportProgress importProgress,
+                                                       @Value("${import.analysis.parallelism:4}") int analysisParallelism,
+                                                       @Qualifier("analysisImportExecutor") ExecutorService analysisImportExecutor,
+                                                       @Value("${import.bounded-memory.enabled:true}") boolean boundedMemory,
+                                                       @Value("${import.bounded-memory.max-pending-analyses:200}") int maxPendingAnalyses) {
+        SraObjectsImporterThroughApi objectsImporter = new SraObjectsImporterThroughApi(
                 sraXmlRetrieverThroughApi,
                 referenceSequenceXmlRetrieverThroughEntrezApi,
 
@@ -105,8 +266,27 @@ public class MetadataImporterMainApplicationConfiguration {
                 analysisRepository,
                 referenceSequenceRepository,
                 sampleRepository,
-                taxonomyEventHandler(taxonomyRepository)
+                fileRepository,
+                taxonomyEventHandler
         );
+        if (analysisParallelism > 1) {
+            objectsImporter.setAnalysisImportExecutor(analysisImportExecutor);
+        }
+        objectsImporter.setBoundedMemory(boundedMemory);
+        if (boundedMemory) {
+            objectsImporter.setMaxPendingAnalyses(maxPendingAnalyses);
+        }
+        objectsImporter.setImportProgress(importProgress);
+        return objectsImporter;
+    }
+
+    /**
+     * Pool in which the samples of an analysis are parsed and converted; by default, one thread per processor
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "import.source", havingValue = "DB")
+    public ForkJoinPool sampleConversionPool(@Value("${import.sample-conversion.parallelism:0}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
     }
 
     @Bean
@@ -117,13 +297,17 @@ public class MetadataImporterMainApplicationConfiguration {
             PublicationRepository publicationRepository,
             WebResourceRepository webResourceRepository,
             FileRepository fileRepository,
-            TaxonomyRepository taxonomyRepository,
+            TaxonomyEventHandler taxonomyEventHandler,
             ReferenceSequenceRepository referenceSequenceRepository,
             AnalysisRepository analysisRepository,
             ProjectRepository projectRepository,
             StudyRepository studyRepository,
-            SampleRepository sampleRepository) {
-        return new SraObjectsImporterThroughDatabase(
+            SampleRepository sampleRepository,
+            ImportProgress importProgress,
+            @Value("${import.sample-chunk-size:1000}") int sampleChunkSize,
+            @Qualifier("sampleConversionPool") ForkJoinPool sampleConversionPool,
+            @Value("${import.bounded-memory.enabled:true}") boolean boundedMemory) {
+        SraObjectsImporterThroughDatabase objectsImporter = new SraObjectsImporterThroughDatabase(
                 sraXmlRetrieverThroughDatabase,
                 referenceSequenceXmlRetrieverThroughEntrezApi,
 
@@ -147,8 +331,14 @@ public class MetadataImporterMainApplicationConfiguration {
                 analysisRepository,
                 referenceSequenceRepository,
                 sampleRepository,
-                taxonomyEventHandler(taxonomyRepository)
+                fileRepository,
+                taxonomyEventHandler
         );
+        objectsImporter.setSampleChunkSize(sampleChunkSize);
+        objectsImporter.setSampleConversionPool(sampleConversionPool);
+        objectsImporter.setBoundedMemory(boundedMemory);
+        objectsImporter.setImportProgress(importProgress);
+        return objectsImporter;
     }
 
     // Parser factories
@@ -205,8 +395,4 @@ public class MetadataImporterMainApplicationConfiguration {
         return new FileExtractorFromAnalysis(fileRepository);
     }
 
-    private TaxonomyEventHandler taxonomyEventHandler(TaxonomyRepository taxonomyRepository) {
-        return new TaxonomyEventHandler(taxonomyRepository);
-    }
-
 }
@@ -0,0 +1,213 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.daemon;
+
+import uk.ac.ebi.ampt2d.metadata.importer.ObjectsImporter;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.CircuitOpenException;
+import uk.ac.ebi.ampt2d.metadata.importer.progress.ImportProgress;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Long-running importer: a pool of workers takes accessions from the import_request queue one at a time and imports
+ * them, recording the outcome and duration of each request. Keeping the application running avoids paying the Spring
+ * and JPA start-up cost for every batch of accessions, and lets new requests be picked up within a poll interval.
+ */
+public class ImportDaemon {
+
+    private static final Logger LOGGER = Logger.getLogger(ImportDaemon.class.getName());
+
+    private final ImportRequestQueue importRequestQueue;
+
+    private final ObjectsImporter objectsImporter;
+
+    private final ImportProgress importProgress;
+
+    private final int workers;
+
+    private final long pollIntervalMillis;
+
+    private final int maxAttempts;
+
+    private final Duration staleAfter;
+
+    private final Duration staleCheckInterval;
+
+    private final Duration shutdownTimeout;
+
+    private final Duration cacheMaxAge;
+
+    private final AtomicLong nextStaleCheckMillis = new AtomicLong();
+
+    private volatile boolean running;
+
+    private volatile ExecutorService executorService;
+
+    public ImportDaemon(ImportRequestQueue importRequestQueue, ObjectsImporter objectsImporter,
+                        ImportProgress importProgress, int workers, long pollIntervalMillis, int maxAttempts,
+                        Duration staleAfter, Duration staleCheckInterval, Duration shutdownTimeout,
+                        Duration cacheMaxAge) {
+        this.importRequestQueue = importRequestQueue;
+        this.objectsImporter = objectsImporter;
+        this.importProgress = importProgress;
+        this.workers = workers;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.maxAttempts = maxAttempts;
+        this.staleAfter = staleAfter;
+        this.staleCheckInterval = staleCheckInterval;
+        this.shutdownTimeout = shutdownTimeout;
+        this.cacheMaxAge = cacheMaxAge;
+    }
+
+    /**
+     * Enqueues the given accessions, if any, and then processes the queue until {@link #stop()} is called.
+     */
+    public void run(Collection<String> accessionsToEnqueue) throws InterruptedException {
+        importRequestQueue.initialize(staleAfter);
+        if (!accessionsToEnqueue.isEmpty()) {
+            importRequestQueue.enqueue(accessionsToEnqueue);
+            LOGGER.info("Enqueued " + accessionsToEnqueue.size() + " accessions");
+        }
+
+        nextStaleCheckMillis.set(System.currentTimeMillis() + staleCheckInterval.toMillis());
+        running = true;
+        executorService = Executors.newFixedThreadPool(workers);
+        String processName = ManagementFactory.getRuntimeMXBean().getName();
+        for (int i = 0; i < workers; i++) {
+            String workerName = processName + "/" + i;
+            executorService.execute(() -> work(workerName));
+        }
+        LOGGER.info("Import daemon started with " + workers + " workers");
+        executorService.shutdown();
+        while (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+            // Workers only finish when the daemon is stopped
+        }
+        LOGGER.info("Import daemon stopped");
+    }
+
+    /**
+     * Lets the workers finish the requests they are processing, for up to the shutdown timeout, and interrupts them
+     * afterwards. The requests they are then interrupted in stay in progress until they become stale.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        if (executorService == null) {
+            return;
+        }
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                LOGGER.warning("Import workers still running after " + shutdownTimeout + ", interrupting them");
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException exception) {
+            executorService.shutdownNow();
+            throw exception;
+        }
+    }
+
+    private void work(String workerName) {
+        while (running) {
+            try {
+                requeueStaleIfDue();
+                if (!processNext(workerName)) {
+                    Thread.sleep(pollIntervalMillis);
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception exception) {
+                // Most likely the queue database is not reachable; wait for it rather than spin
+                LOGGER.log(Level.SEVERE, "Could not process the import queue: " + exception.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMillis);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts stale requests back in the queue once per stale check interval, whichever worker gets to do it, so that the
+     * requests of a daemon which was killed are picked up without waiting for a daemon to start.
+     */
+    void requeueStaleIfDue() {
+        long now = System.currentTimeMillis();
+        long nextStaleCheck = nextStaleCheckMillis.get();
+        if (now >= nextStaleCheck &&
+                nextStaleCheckMillis.compareAndSet(nextStaleCheck, now + staleCheckInterval.toMillis())) {
+            importRequestQueue.requeueStale(staleAfter);
+        }
+    }
+
+    /**
+     * Claims and imports one request from the queue. The objects remembered by the importer for longer than the cache
+     * maximum age are then forgotten, as other daemons sharing the queue may have changed the database since, and the
+     * caches would otherwise grow for as long as the daemon runs. The more recent ones are kept, as the other workers
+     * of this daemon may be using them. The pending requests are reported as queued, whichever daemon they were
+     * added by.
+     *
+     * @return false if there was no pending request
+     */
+    boolean processNext(String workerName) {
+        List<ImportRequest> requests = importRequestQueue.claim(workerName, 1);
+        if (requests.isEmpty()) {
+            importProgress.setQueued(0);
+            return false;
+        }
+        // The claimed requests are counted as queued until their import starts
+        importProgress.setQueued(importRequestQueue.countPending() + requests.size());
+        for (ImportRequest request : requests) {
+            process(request);
+        }
+        objectsImporter.clearCachesOlderThan(cacheMaxAge);
+        return true;
+    }
+
+    private void process(ImportRequest request) {
+        long start = System.currentTimeMillis();
+        try {
+            objectsImporter.importAccession(request.getAccession());
+            importRequestQueue.complete(request, System.currentTimeMillis() - start);
+        } catch (Exception exception) {
+            if (CircuitOpenException.isCauseOf(exception)) {
+                // The outage is not the fault of the request, which should not use up its attempts because of it
+                LOGGER.warning("Import of " + request.getAccession() + " deferred: " + exception.getMessage());
+                importRequestQueue.defer(request, System.currentTimeMillis() - start, String.valueOf(exception));
+                return;
+            }
+            boolean retry = request.getAttempts() < maxAttempts;
+            LOGGER.log(Level.SEVERE, "Import of " + request.getAccession() + " failed (attempt "
+                    + request.getAttempts() + " of " + maxAttempts + "): " + exception.getMessage());
+            importRequestQueue.fail(request, System.currentTimeMillis() - start, String.valueOf(exception), retry);
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.daemon;
+
+/**
+ * A row of the import_request work queue which has been claimed by a worker.
+ */
+public class ImportRequest {
+
+    public enum Status {
+        PENDING,
+        IN_PROGRESS,
+        DONE,
+        FAILED
+    }
+
+    private final long id;
+
+    private final String accession;
+
+    private final int attempts;
+
+    public ImportRequest(long id, String accession, int attempts) {
+        this.id = id;
+        this.accession = accession;
+        this.attempts = attempts;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getAccession() {
+        return accession;
+    }
+
+    /**
+     * @return number of times this request has been claimed, including the current one
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+}
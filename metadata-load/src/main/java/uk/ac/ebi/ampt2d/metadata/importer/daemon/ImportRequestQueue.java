@@ -0,0 +1,146 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.daemon;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Postgres-backed work queue of accessions to import. Any number of daemons can share the queue: requests are
+ * claimed with SELECT ... FOR UPDATE SKIP LOCKED, so each pending request is handed to exactly one worker without
+ * workers blocking each other.
+ */
+public class ImportRequestQueue {
+
+    private static final Logger LOGGER = Logger.getLogger(ImportRequestQueue.class.getName());
+
+    private static final String SCHEMA_SCRIPT = "schema/import-request.sql";
+
+    private static final String INSERT = "INSERT INTO import_request (accession) VALUES (?)";
+
+    private static final String CLAIM =
+            "UPDATE import_request SET status = 'IN_PROGRESS', attempts = attempts + 1, worker = ?, " +
+            "started_at = CURRENT_TIMESTAMP, finished_at = NULL, duration_ms = NULL, message = NULL " +
+            "WHERE id IN (" +
+            "SELECT id FROM import_request WHERE status = 'PENDING' ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, accession, attempts";
+
+    private static final String FINISH =
+            "UPDATE import_request SET status = ?, finished_at = CURRENT_TIMESTAMP, duration_ms = ?, message = ? " +
+            "WHERE id = ?";
+
+    private static final String DEFER =
+            "UPDATE import_request SET status = 'PENDING', attempts = attempts - 1, " +
+            "finished_at = CURRENT_TIMESTAMP, duration_ms = ?, message = ? WHERE id = ?";
+
+    private static final String COUNT_PENDING = "SELECT COUNT(*) FROM import_request WHERE status = 'PENDING'";
+
+    private static final String REQUEUE_STALE =
+            "UPDATE import_request SET status = 'PENDING', worker = NULL " +
+            "WHERE status = 'IN_PROGRESS' AND started_at < CURRENT_TIMESTAMP - CAST(? AS INTERVAL)";
+
+    private static final int MAX_MESSAGE_LENGTH = 4000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ImportRequestQueue(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Creates the queue table if needed, and puts back in the queue the requests which have been in progress for
+     * longer than the given period, see {@link #requeueStale(Duration)}.
+     */
+    public void initialize(Duration staleAfter) {
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource(SCHEMA_SCRIPT)),
+                                       jdbcTemplate.getDataSource());
+        requeueStale(staleAfter);
+    }
+
+    /**
+     * Puts back in the queue the requests which have been in progress for longer than the given period, presumably
+     * because the daemon processing them was killed.
+     *
+     * @return the number of requests put back in the queue
+     */
+    public int requeueStale(Duration staleAfter) {
+        int requeued = jdbcTemplate.update(REQUEUE_STALE, staleAfter.getSeconds() + " seconds");
+        if (requeued > 0) {
+            LOGGER.warning("Put back in the queue " + requeued + " stale import requests");
+        }
+        return requeued;
+    }
+
+    public void enqueue(Collection<String> accessions) {
+        List<Object[]> batchArguments = accessions.stream()
+                                                  .map(accession -> new Object[]{accession})
+                                                  .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(INSERT, batchArguments);
+    }
+
+    public List<ImportRequest> claim(String worker, int limit) {
+        return jdbcTemplate.query(CLAIM, (resultSet, rowNumber) -> new ImportRequest(
+                resultSet.getLong("id"), resultSet.getString("accession"), resultSet.getInt("attempts")),
+                                  worker, limit);
+    }
+
+    public long countPending() {
+        return jdbcTemplate.queryForObject(COUNT_PENDING, Long.class);
+    }
+
+    public void complete(ImportRequest request, long durationMillis) {
+        finish(request, ImportRequest.Status.DONE, durationMillis, null);
+    }
+
+    /**
+     * @param retry whether the request should be put back in the queue, rather than be marked as failed
+     */
+    public void fail(ImportRequest request, long durationMillis, String message, boolean retry) {
+        finish(request, retry ? ImportRequest.Status.PENDING : ImportRequest.Status.FAILED, durationMillis,
+               message);
+    }
+
+    /**
+     * Puts the request back in the queue without counting the current attempt, e.g. because a service it needs is
+     * unavailable and the request would fail for reasons unrelated to it.
+     */
+    public void defer(ImportRequest request, long durationMillis, String message) {
+        jdbcTemplate.update(DEFER, durationMillis, truncate(message), request.getId());
+    }
+
+    private void finish(ImportRequest request, ImportRequest.Status status, long durationMillis, String message) {
+        jdbcTemplate.update(FINISH, status.name(), durationMillis, truncate(message), request.getId());
+    }
+
+    private static String truncate(String message) {
+        if (message != null && message.length() > MAX_MESSAGE_LENGTH) {
+            return message.substring(0, MAX_MESSAGE_LENGTH);
+        }
+        return message;
+    }
+
+}
@@ -31,4 +31,30 @@ public interface EnaObjectQuery {
         "WHERE ANALYSIS_SAMPLE.ANALYSIS_ID = :accession " +
         "ORDER BY ANALYSIS_SAMPLE.SAMPLE_ID";
 
+    int ANALYSIS_RECORD = 1;
+
+    int STUDY_RECORD = 2;
+
+    int SAMPLE_RECORD = 3;
+
+    /**
+     * An analysis, its study and its samples, in this order, so that all of them are fetched with one statement.
+     */
+    String ANALYSIS_RECORD_QUERY =
+        "SELECT " + ANALYSIS_RECORD + " AS RECORD_TYPE, ANALYSIS.ANALYSIS_ID AS OBJECT_ID, " +
+        "CAST(NULL AS VARCHAR2(15)) AS BIOSAMPLE_ID, ANALYSIS.ANALYSIS_XML AS OBJECT_XML " +
+        "FROM ERA.ANALYSIS " +
+        "WHERE ANALYSIS.ANALYSIS_ID = :accession " +
+        "UNION ALL " +
+        "SELECT " + STUDY_RECORD + ", STUDY.STUDY_ID, CAST(NULL AS VARCHAR2(15)), STUDY.STUDY_XML " +
+        "FROM ERA.ANALYSIS " +
+        "INNER JOIN ERA.STUDY ON ANALYSIS.STUDY_ID = STUDY.STUDY_ID " +
+        "WHERE ANALYSIS.ANALYSIS_ID = :accession " +
+        "UNION ALL " +
+        "SELECT " + SAMPLE_RECORD + ", ANALYSIS_SAMPLE.SAMPLE_ID, SAMPLE.BIOSAMPLE_ID, SAMPLE.SAMPLE_XML " +
+        "FROM ANALYSIS_SAMPLE " +
+        "INNER JOIN SAMPLE ON ANALYSIS_SAMPLE.SAMPLE_ID = SAMPLE.SAMPLE_ID " +
+        "WHERE ANALYSIS_SAMPLE.ANALYSIS_ID = :accession " +
+        "ORDER BY 1, 2";
+
 }
@@ -17,14 +17,19 @@
  */
 package uk.ac.ebi.ampt2d.metadata.importer.database;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import uk.ac.ebi.ampt2d.metadata.importer.NotFoundAccessionCache;
 
 import javax.sql.DataSource;
 
@@ -50,13 +55,25 @@ public class SraDatabaseConfiguration {
         return new DataSourceTransactionManager(dbDataSource());
     }
 
+    /**
+     * @param fetchSize rows fetched per round trip, which matters when streaming the samples of large analyses
+     */
     @Bean("enaJdbcTemplate")
-    public NamedParameterJdbcTemplate enaJdbcTemplate() {
-        return new NamedParameterJdbcTemplate(dbDataSource());
+    public NamedParameterJdbcTemplate enaJdbcTemplate(@Value("${ena.jdbc.fetch-size:500}") int fetchSize) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dbDataSource());
+        jdbcTemplate.setFetchSize(fetchSize);
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
     }
 
     @Bean
-    public SraXmlRetrieverThroughDatabase sraXmlRetrieverThroughDatabase() {
-        return new SraXmlRetrieverThroughDatabase(enaJdbcTemplate(), EnaObjectQuery.STUDY_QUERY);
+    public SraXmlRetrieverThroughDatabase sraXmlRetrieverThroughDatabase(
+            @Qualifier("enaJdbcTemplate") NamedParameterJdbcTemplate enaJdbcTemplate,
+            ObjectProvider<NotFoundAccessionCache> notFoundAccessionCache) {
+        // The cache lives in the metadata database, which is not available when this configuration is used alone
+        NotFoundAccessionCache cache = notFoundAccessionCache.getIfAvailable();
+        if (cache == null) {
+            cache = NotFoundAccessionCache.disabled();
+        }
+        return new SraXmlRetrieverThroughDatabase(enaJdbcTemplate, cache);
     }
 }
\ No newline at end of file
@@ -18,12 +18,14 @@
 
 package uk.ac.ebi.ampt2d.metadata.importer.database;
 
+import org.hibernate.Hibernate;
 import org.springframework.core.convert.converter.Converter;
 import uk.ac.ebi.ampt2d.metadata.importer.ObjectsImporter;
 import uk.ac.ebi.ampt2d.metadata.importer.api.ReferenceSequenceXmlRetrieverThroughEntrezApi;
 import uk.ac.ebi.ampt2d.metadata.importer.extractor.FileExtractorFromAnalysis;
 import uk.ac.ebi.ampt2d.metadata.importer.extractor.PublicationExtractor;
 import uk.ac.ebi.ampt2d.metadata.importer.extractor.WebResourceExtractor;
+import uk.ac.ebi.ampt2d.metadata.importer.plan.AccessionType;
 import uk.ac.ebi.ampt2d.metadata.importer.xml.EntrezAssemblyXmlParser;
 import uk.ac.ebi.ampt2d.metadata.importer.xml.SraXmlParser;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Analysis;
@@ -33,6 +35,7 @@ import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Taxonomy;
 import uk.ac.ebi.ampt2d.metadata.persistence.events.TaxonomyEventHandler;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.AnalysisRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.FileRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ProjectRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ReferenceSequenceRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.SampleRepository;
@@ -42,14 +45,20 @@ import uk.ac.ebi.ena.sra.xml.ProjectType;
 import uk.ac.ebi.ena.sra.xml.SampleType;
 import uk.ac.ebi.ena.sra.xml.StudyType;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * This importer is mainly used for EGA studies where Study XML doesn't have analysis accessions
@@ -58,6 +67,13 @@ public class SraObjectsImporterThroughDatabase extends ObjectsImporter {
 
     private Map<String, Study> accessionsToStudy = new HashMap<>();
 
+    // When each study was added to accessionsToStudy, from System.nanoTime()
+    private Map<String, Long> studyCacheTimes = new HashMap<>();
+
+    private int sampleChunkSize = 1000;
+
+    private ForkJoinPool sampleConversionPool = ForkJoinPool.commonPool();
+
     private static final Logger IMPORT_LOGGER = Logger.getLogger(SraObjectsImporterThroughDatabase.class.getName());
 
     public SraObjectsImporterThroughDatabase(
@@ -84,6 +100,7 @@ public class SraObjectsImporterThroughDatabase extends ObjectsImporter {
             AnalysisRepository analysisRepository,
             ReferenceSequenceRepository referenceSequenceRepository,
             SampleRepository sampleRepository,
+            FileRepository fileRepository,
             TaxonomyEventHandler taxonomyEventHandler) {
         super(
                 sraXmlRetrieverThroughDatabase,
@@ -109,62 +126,104 @@ public class SraObjectsImporterThroughDatabase extends ObjectsImporter {
                 analysisRepository,
                 referenceSequenceRepository,
                 sampleRepository,
+                fileRepository,
                 taxonomyEventHandler
         );
     }
 
+    /**
+     * We are starting with analyses because the study XMLs in the database do not contain analysis accessions.
+     */
     @Override
-    public Study importStudy(String accession) throws Exception {
-        setEnaObjectQuery(EnaObjectQuery.STUDY_QUERY);
-        Study study = super.importStudy(accession);
-        setEnaObjectQuery(EnaObjectQuery.ANALYSIS_QUERY);
-        return study;
+    protected Set<AccessionType> getSupportedAccessionTypes() {
+        // TODO: EVA will want to import some projects from the DB too
+        return EnumSet.of(AccessionType.ANALYSIS);
     }
 
+    /**
+     * The analysis, its study and its samples are retrieved with a single statement rather than one per object, see
+     * {@link SraXmlRetrieverThroughDatabase#streamAnalysisRecord}. The samples are imported in chunks as they are
+     * fetched, like in {@link #importSamples(AnalysisType)}.
+     */
     @Override
     public Analysis importAnalysis(String accession) throws Exception {
-        setEnaObjectQuery(EnaObjectQuery.ANALYSIS_QUERY);
-        return super.importAnalysis(accession);
+        IMPORT_LOGGER.log(Level.INFO, "Importing analysis " + accession);
+        importProgress.stage("importing analysis " + accession);
+        AnalysisRecordImport analysisRecordImport = new AnalysisRecordImport(accession);
+        if (!((SraXmlRetrieverThroughDatabase) sraXmlRetrieverByAccession).streamAnalysisRecord(
+                accession, analysisRecordImport)) {
+            return null;
+        }
+        return analysisRecordImport.finish();
     }
 
+    /**
+     * Samples are streamed from the database and imported in chunks of {@link #setSampleChunkSize(int)} samples, so
+     * that only the XMLs of one chunk are held in memory. The samples of a chunk are parsed and converted in parallel
+     * in the sample conversion pool, and the taxonomy of each distinct taxon of the chunk is then imported once.
+     */
     @Override
     public List<Sample> importSamples(AnalysisType analysisType) throws Exception {
-        setEnaObjectQuery(EnaObjectQuery.SAMPLE_QUERY);
         String analysisAccession = analysisType.getAccession();
-        List<Sample> samples = new ArrayList<>();
-        List<String[]> sampleData = ((SraXmlRetrieverThroughDatabase) sraXmlRetrieverByAccession)
-                .getSampleXmls(analysisAccession);
-        SampleType sampleType;
-        for (String[] currentSampleData : sampleData) {
-            try {
-                String sampleId = currentSampleData[0];
-                String bioSampleAccession = currentSampleData[1];
-                String sqlXmlString = currentSampleData[2];
-                sampleType = sraSampleXmlParser.parseXml(sqlXmlString, sampleId);
-                Sample sampleElement = sampleConverter.convert(sampleType);
-                // In the database case, BioSample cross-reference is not stored in the XML, but is instead retrieved
-                // using a separate SQL field. Hence, we need to update the newly converted Sample element with this
-                // value.
-                sampleElement.setBioSampleAccession(bioSampleAccession);
-                Taxonomy taxonomy = taxonomyEventHandler.importTaxonomyTree(extractTaxonomyFromSample(sampleType));
-                sampleElement.setTaxonomies(Arrays.asList(taxonomy));
-                samples.add(sampleElement);
-            } catch (Exception exception) {
-                IMPORT_LOGGER.log(Level.SEVERE, "Encountered Exception for Sample accession " + currentSampleData[0]);
-                IMPORT_LOGGER.log(Level.SEVERE, exception.getMessage());
-                throw exception;
+        SampleChunks sampleChunks = new SampleChunks();
+        ((SraXmlRetrieverThroughDatabase) sraXmlRetrieverByAccession).streamSampleXmls(analysisAccession,
+                                                                                        sampleChunks::add);
+        return sampleChunks.finish();
+    }
+
+    private List<Sample> importSampleChunk(List<String[]> sampleData) throws Exception {
+        List<Sample> samples;
+        try {
+            samples = sampleConversionPool.submit(() -> sampleData.parallelStream()
+                                                                  .map(this::convertSample)
+                                                                  .collect(Collectors.toList())).get();
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            throw cause instanceof Exception ? (Exception) cause : exception;
+        }
+
+        // Samples of an analysis nearly always share a handful of taxa, so each of them is only imported once
+        Map<Long, Taxonomy> taxonomies = new HashMap<>();
+        for (Sample sample : samples) {
+            long taxonomyId = sample.getTaxonomies().get(0).getTaxonomyId();
+            Taxonomy taxonomy = taxonomies.get(taxonomyId);
+            if (taxonomy == null) {
+                taxonomy = importTaxonomyTree(new Taxonomy(taxonomyId));
+                taxonomies.put(taxonomyId, taxonomy);
             }
+            sample.setTaxonomies(Arrays.asList(taxonomy));
+            importProgress.objectImported();
+        }
+        return saveSamples(samples);
+    }
+
+    /**
+     * @return the converted sample, with a taxonomy which only has the taxon ID set
+     */
+    private Sample convertSample(String[] currentSampleData) {
+        try {
+            String sampleId = currentSampleData[0];
+            String bioSampleAccession = currentSampleData[1];
+            String sqlXmlString = currentSampleData[2];
+            SampleType sampleType = sraSampleXmlParser.parseXml(sqlXmlString, sampleId);
+            Sample sampleElement = sampleConverter.convert(sampleType);
+            // In the database case, BioSample cross-reference is not stored in the XML, but is instead retrieved
+            // using a separate SQL field. Hence, we need to update the newly converted Sample element with this
+            // value.
+            sampleElement.setBioSampleAccession(bioSampleAccession);
+            sampleElement.setTaxonomies(Arrays.asList(extractTaxonomyFromSample(sampleType)));
+            return sampleElement;
+        } catch (Exception exception) {
+            IMPORT_LOGGER.log(Level.SEVERE, "Encountered Exception for Sample accession " + currentSampleData[0]);
+            IMPORT_LOGGER.log(Level.SEVERE, exception.getMessage());
+            throw new RuntimeException(exception);
         }
-        samples = sampleRepository.findOrSave(samples);
-        setEnaObjectQuery(EnaObjectQuery.ANALYSIS_QUERY);
-        return samples;
     }
 
     @Override
     protected Analysis extractStudyFromAnalysis(AnalysisType analysisType, Analysis analysis) throws Exception {
-        Study study = importStudyFromAnalysis(analysisType.getSTUDYREF().getAccession());
-        analysis.setStudy(study);
-        return analysisRepository.save(analysis);
+        Study study = importStudyFromAnalysis(analysisType.getSTUDYREF().getAccession(), null);
+        return saveAnalysis(analysis, study);
     }
 
     @Override
@@ -174,37 +233,160 @@ public class SraObjectsImporterThroughDatabase extends ObjectsImporter {
     }
 
     @Override
-    protected Study extractAnalysisFromStudy(StudyType studyType, Study study, Project project) {
+    protected Study extractAnalysisFromStudy(StudyType studyType, Study study, Project project,
+                                             Set<String> analysisAccessions) {
         return study;
     }
 
     @Override
-    protected Study extractAnalysisFromStudy(StudyType studyType, Study study) {
+    protected Study extractAnalysisFromStudy(StudyType studyType, Study study, Set<String> analysisAccessions) {
         return study;
     }
 
-    private synchronized Study importStudyFromAnalysis(String studyAccession) throws Exception {
+    /**
+     * @param studyXml XML of the study if it has already been retrieved, or null to retrieve it
+     */
+    private synchronized Study importStudyFromAnalysis(String studyAccession, String studyXml) throws Exception {
         /* The below get will make sure to return shared study when analyses sharing same study are imported
           in current run */
         Study sharedStudy = accessionsToStudy.get(studyAccession);
         if (sharedStudy != null) {
             return sharedStudy;
         }
-        Study study = importStudy(studyAccession);
+        Study study;
+        if (studyXml == null) {
+            study = importStudy(studyAccession);
+        } else {
+            IMPORT_LOGGER.log(Level.INFO, "Importing study " + studyAccession);
+            importProgress.stage("importing study " + studyAccession);
+            study = importStudy(studyAccession, sraStudyXmlParser.parseXml(studyXml, studyAccession));
+        }
+        if (study == null) {
+            throw new RuntimeException("Study " + studyAccession + " could not be retrieved");
+        }
 
         /* The below find query will make sure to return shared study when analyses sharing same study are imported
           in different runs */
         study = studyRepository.findOrSave(study);
+        if (boundedMemory && study.getAnalyses() != null && Hibernate.isInitialized(study.getAnalyses())) {
+            // The analyses of a study are not needed to import new ones
+            study.getAnalyses().clear();
+        }
         accessionsToStudy.put(studyAccession, study);
+        studyCacheTimes.put(studyAccession, System.nanoTime());
         return study;
     }
 
-    private void setEnaObjectQuery(String query) {
-        ((SraXmlRetrieverThroughDatabase) sraXmlRetrieverByAccession).setEnaObjectQuery(query);
+    @Override
+    public synchronized void clearCaches() {
+        super.clearCaches();
+        accessionsToStudy.clear();
+        studyCacheTimes.clear();
+    }
+
+    @Override
+    public synchronized void clearCachesOlderThan(Duration maxAge) {
+        super.clearCachesOlderThan(maxAge);
+        long oldestCacheTime = System.nanoTime() - maxAge.toNanos();
+        studyCacheTimes.entrySet().removeIf(studyCacheTime -> {
+            boolean old = studyCacheTime.getValue() - oldestCacheTime < 0;
+            if (old) {
+                accessionsToStudy.remove(studyCacheTime.getKey());
+            }
+            return old;
+        });
+    }
+
+    public void setSampleChunkSize(int sampleChunkSize) {
+        this.sampleChunkSize = sampleChunkSize;
+    }
+
+    public void setSampleConversionPool(ForkJoinPool sampleConversionPool) {
+        this.sampleConversionPool = sampleConversionPool;
     }
 
     public Map<String, Study> getAccessionsToStudy() {
         return accessionsToStudy;
     }
 
+    /**
+     * Collects the samples of an analysis as they are streamed from the database, importing them in chunks.
+     */
+    private class SampleChunks {
+
+        private final List<Sample> samples = new ArrayList<>();
+
+        private final List<String[]> chunk = new ArrayList<>();
+
+        void add(String sampleId, String bioSampleAccession, String sampleXml) throws Exception {
+            chunk.add(new String[]{sampleId, bioSampleAccession, sampleXml});
+            if (chunk.size() >= sampleChunkSize) {
+                samples.addAll(importSampleChunk(chunk));
+                chunk.clear();
+                importProgress.chunkImported(sampleChunkSize + " samples");
+            }
+        }
+
+        List<Sample> finish() throws Exception {
+            samples.addAll(importSampleChunk(chunk));
+            chunk.clear();
+            return samples;
+        }
+
+    }
+
+    /**
+     * Imports an analysis from the rows of {@link EnaObjectQuery#ANALYSIS_RECORD_QUERY}, which come in order: the
+     * analysis is converted first, then its study XML is kept aside, and then its samples are imported in chunks.
+     */
+    private class AnalysisRecordImport implements SraXmlRetrieverThroughDatabase.AnalysisRecordHandler {
+
+        private final String accession;
+
+        private final SampleChunks sampleChunks = new SampleChunks();
+
+        private AnalysisType analysisType;
+
+        private Analysis analysis;
+
+        private String studyAccession;
+
+        private String studyXml;
+
+        AnalysisRecordImport(String accession) {
+            this.accession = accession;
+        }
+
+        @Override
+        public void analysis(String analysisXml) throws Exception {
+            analysisType = sraAnalysisXmlParser.parseXml(analysisXml, accession);
+            analysis = convertAnalysis(analysisType);
+            importProgress.stage("importing samples of analysis " + accession);
+        }
+
+        @Override
+        public void study(String studyAccession, String studyXml) {
+            this.studyAccession = studyAccession;
+            this.studyXml = studyXml;
+        }
+
+        @Override
+        public void sample(String sampleId, String bioSampleAccession, String sampleXml) throws Exception {
+            sampleChunks.add(sampleId, bioSampleAccession, sampleXml);
+        }
+
+        Analysis finish() throws Exception {
+            analysis.setSamples(sampleChunks.finish());
+            // The study is only missing from the record if ERA.ANALYSIS has no study ID, in which case it is
+            // retrieved separately from the reference in the analysis XML
+            Study study = studyAccession != null ? importStudyFromAnalysis(studyAccession, studyXml)
+                                                 : importStudyFromAnalysis(
+                                                         analysisType.getSTUDYREF().getAccession(), null);
+            analysis = saveAnalysis(analysis, study);
+            importProgress.objectImported();
+            return analysis;
+        }
+
+    }
+
 }
@@ -17,33 +17,68 @@
  */
 package uk.ac.ebi.ampt2d.metadata.importer.database;
 
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import uk.ac.ebi.ampt2d.metadata.importer.NotFoundAccessionCache;
+import uk.ac.ebi.ampt2d.metadata.importer.ObjectsImporter;
 import uk.ac.ebi.ampt2d.metadata.importer.SraXmlRetrieverByAccession;
+import uk.ac.ebi.ampt2d.metadata.importer.plan.AccessionType;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLXML;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Retrieves XMLs from the ENA database. Instances are immutable: the query is chosen from the accession of each
+ * request, so a single retriever can be shared by any number of importing threads.
+ */
 public class SraXmlRetrieverThroughDatabase implements SraXmlRetrieverByAccession {
 
-    private NamedParameterJdbcTemplate jdbcTemplate;
+    private static final Logger XML_RETRIEVE_LOGGER = Logger.getLogger(ObjectsImporter.class.getName());
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
 
-    private String enaObjectQuery;
+    private final NotFoundAccessionCache notFoundAccessionCache;
 
-    public SraXmlRetrieverThroughDatabase(NamedParameterJdbcTemplate jdbcTemplate, String enaObjectQuery) {
+    public SraXmlRetrieverThroughDatabase(NamedParameterJdbcTemplate jdbcTemplate,
+                                          NotFoundAccessionCache notFoundAccessionCache) {
         this.jdbcTemplate = jdbcTemplate;
-        this.enaObjectQuery = enaObjectQuery;
+        this.notFoundAccessionCache = notFoundAccessionCache;
     }
 
+    /**
+     * @return XML of the study or analysis, or null if the object is not present in the database
+     */
     @Override
     public String getXml(String accession) {
+        String enaObjectQuery;
+        if (AccessionType.STUDY.matches(accession)) {
+            enaObjectQuery = EnaObjectQuery.STUDY_QUERY;
+        } else if (AccessionType.ANALYSIS.matches(accession)) {
+            enaObjectQuery = EnaObjectQuery.ANALYSIS_QUERY;
+        } else {
+            XML_RETRIEVE_LOGGER.log(Level.WARNING, "Only studies and analyses can be retrieved from the ENA " +
+                    "database, skipping " + accession);
+            return null;
+        }
+        if (notFoundAccessionCache.isNotFound(accession)) {
+            XML_RETRIEVE_LOGGER.log(Level.WARNING, "Accession recently not found in ENA, skipping " + accession);
+            return null;
+        }
         MapSqlParameterSource parameters = new MapSqlParameterSource();
         parameters.addValue("accession", accession);
-        SQLXML sqlxml = jdbcTemplate.queryForObject(enaObjectQuery, parameters, SQLXML.class);
+        SQLXML sqlxml;
+        try {
+            sqlxml = jdbcTemplate.queryForObject(enaObjectQuery, parameters, SQLXML.class);
+        } catch (EmptyResultDataAccessException exception) {
+            XML_RETRIEVE_LOGGER.log(Level.WARNING, "Accession not found in ENA " + accession);
+            notFoundAccessionCache.recordNotFound(accession);
+            return null;
+        }
         try {
             return sqlxml.getString();
         } catch (SQLException e) {
@@ -52,33 +87,103 @@ public class SraXmlRetrieverThroughDatabase implements SraXmlRetrieverByAccessio
     }
 
     /*
-    In DB requests ObjectImporter.java->importAnalysis()->importSamples()->importSample() will invoke this method
-    to retrieve Sample XMLs by providing an "Analysis accession".
-    Prepared statement will be made with SQL query EnaObjectQuery.SAMPLE_QUERY.
-    A list of Sample XMLs with associated Sample accession and BioSample ID will be returned.
+    In DB requests ObjectImporter.java->importAnalysis()->importSamples() will invoke this method to retrieve the
+    Sample XMLs of an "Analysis accession", with SQL query EnaObjectQuery.SAMPLE_QUERY.
+    Rows are handed over one at a time as they are fetched, together with the Sample accession and BioSample ID, so
+    that analyses with hundreds of thousands of samples never have all their XMLs in memory at once. How many rows are
+    fetched per round trip is set by the fetch size of the JdbcTemplate.
     */
-    List<String[]> getSampleXmls(String analysisAccession) {
-        Map<String, String> paramMap = new HashMap<>();
-        String samplesQuery = enaObjectQuery;
-        paramMap.put("accession", analysisAccession);
-        List<String[]> sampleData = new ArrayList<>();
-        try {
-            List<Map<String, Object>> idSqlxmls = jdbcTemplate.queryForList(samplesQuery, paramMap);
-            for (Map<String, Object> xmlId : idSqlxmls) {
-                String sampleId = (String) xmlId.get("SAMPLE_ID");
-                String bioSampleAccession = (String) xmlId.get("BIOSAMPLE_ID");
-                String sqlXmlString = ((SQLXML) xmlId.get("SAMPLE_XML")).getString();
-                String[] currentSampleData = new String[] {sampleId, bioSampleAccession, sqlXmlString};
-                sampleData.add(currentSampleData);
+    void streamSampleXmls(String analysisAccession, SampleXmlHandler sampleXmlHandler) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        parameters.addValue("accession", analysisAccession);
+        jdbcTemplate.query(EnaObjectQuery.SAMPLE_QUERY, parameters, (RowCallbackHandler) resultSet -> {
+            String sampleId = resultSet.getString("SAMPLE_ID");
+            String bioSampleAccession = resultSet.getString("BIOSAMPLE_ID");
+            String sqlXmlString = getXmlString(resultSet, "SAMPLE_XML");
+            handle(() -> sampleXmlHandler.handle(sampleId, bioSampleAccession, sqlXmlString));
+        });
+    }
+
+    /**
+     * Retrieves an analysis, its study and its samples with a single statement, EnaObjectQuery.ANALYSIS_RECORD_QUERY,
+     * whose rows are handed over as they are fetched: first the analysis, then its study, then its samples.
+     *
+     * @return false if the analysis is not present in the database, in which case the handler is not called
+     */
+    boolean streamAnalysisRecord(String analysisAccession, AnalysisRecordHandler analysisRecordHandler) {
+        if (notFoundAccessionCache.isNotFound(analysisAccession)) {
+            XML_RETRIEVE_LOGGER.log(Level.WARNING, "Accession recently not found in ENA, skipping "
+                    + analysisAccession);
+            return false;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        parameters.addValue("accession", analysisAccession);
+        boolean[] analysisFound = {false};
+        jdbcTemplate.query(EnaObjectQuery.ANALYSIS_RECORD_QUERY, parameters, (RowCallbackHandler) resultSet -> {
+            String objectId = resultSet.getString("OBJECT_ID");
+            String xml = getXmlString(resultSet, "OBJECT_XML");
+            switch (resultSet.getInt("RECORD_TYPE")) {
+                case EnaObjectQuery.ANALYSIS_RECORD:
+                    analysisFound[0] = true;
+                    handle(() -> analysisRecordHandler.analysis(xml));
+                    break;
+                case EnaObjectQuery.STUDY_RECORD:
+                    handle(() -> analysisRecordHandler.study(objectId, xml));
+                    break;
+                default:
+                    String bioSampleAccession = resultSet.getString("BIOSAMPLE_ID");
+                    handle(() -> analysisRecordHandler.sample(objectId, bioSampleAccession, xml));
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        });
+        if (!analysisFound[0]) {
+            XML_RETRIEVE_LOGGER.log(Level.WARNING, "Accession not found in ENA " + analysisAccession);
+            notFoundAccessionCache.recordNotFound(analysisAccession);
+        }
+        return analysisFound[0];
+    }
+
+    private static String getXmlString(ResultSet resultSet, String column) throws SQLException {
+        SQLXML sqlxml = resultSet.getSQLXML(column);
+        if (sqlxml == null) {
+            return null;
         }
-        return sampleData;
+        String xml = sqlxml.getString();
+        sqlxml.free();
+        return xml;
     }
 
-    void setEnaObjectQuery(String enaObjectQuery) {
-        this.enaObjectQuery = enaObjectQuery;
+    private static void handle(RecordHandling recordHandling) {
+        try {
+            recordHandling.handle();
+        } catch (RuntimeException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordHandling {
+
+        void handle() throws Exception;
+
+    }
+
+    @FunctionalInterface
+    interface SampleXmlHandler {
+
+        void handle(String sampleId, String bioSampleAccession, String sampleXml) throws Exception;
+
+    }
+
+    interface AnalysisRecordHandler {
+
+        void analysis(String analysisXml) throws Exception;
+
+        void study(String studyAccession, String studyXml) throws Exception;
+
+        void sample(String sampleId, String bioSampleAccession, String sampleXml) throws Exception;
+
     }
 
 }
@@ -0,0 +1,58 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.importer.plan;
+
+import java.util.regex.Pattern;
+
+/**
+ * Types of object which can be given as the starting point of an import, told apart by the prefix of their INSDC
+ * accession.
+ */
+public enum AccessionType {
+
+    PROJECT("^PRJ[EDN][A-Z]\\d+$"),
+
+    STUDY("^[EDS]RP\\d+$"),
+
+    ANALYSIS("^[EDS]RZ\\d+$");
+
+    private final Pattern pattern;
+
+    AccessionType(String regex) {
+        this.pattern = Pattern.compile(regex);
+    }
+
+    public boolean matches(String accession) {
+        return pattern.matcher(accession).matches();
+    }
+
+    /**
+     * @return type of the given accession, or null if it is not one of these types
+     */
+    public static AccessionType of(String accession) {
+        for (AccessionType accessionType : values()) {
+            if (accessionType.matches(accession)) {
+                return accessionType;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.importer.plan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of planning an import: the {@link PlannedImport}s which cover the given accessions, each study being
+ * imported once however many of the given accessions lead to it, and the accessions which cannot be imported.
+ */
+public class ImportPlan {
+
+    private final List<PlannedImport> plannedImports = new ArrayList<>();
+
+    private final List<String> unsupportedAccessions = new ArrayList<>();
+
+    private final List<String> notFoundAccessions = new ArrayList<>();
+
+    void addPlannedImport(PlannedImport plannedImport) {
+        plannedImports.add(plannedImport);
+    }
+
+    void addUnsupportedAccession(String accession) {
+        unsupportedAccessions.add(accession);
+    }
+
+    void addNotFoundAccession(String accession) {
+        notFoundAccessions.add(accession);
+    }
+
+    public List<PlannedImport> getPlannedImports() {
+        return Collections.unmodifiableList(plannedImports);
+    }
+
+    /**
+     * @return accessions whose type is not known, or cannot be the starting point of an import from this source
+     */
+    public List<String> getUnsupportedAccessions() {
+        return Collections.unmodifiableList(unsupportedAccessions);
+    }
+
+    /**
+     * @return accessions which were not found in ENA
+     */
+    public List<String> getNotFoundAccessions() {
+        return Collections.unmodifiableList(notFoundAccessions);
+    }
+
+}
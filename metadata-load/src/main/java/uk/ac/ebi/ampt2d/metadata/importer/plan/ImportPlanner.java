@@ -0,0 +1,196 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.importer.plan;
+
+import uk.ac.ebi.ampt2d.metadata.importer.SraXmlRetrieverByAccession;
+import uk.ac.ebi.ampt2d.metadata.importer.xml.SraXmlParser;
+import uk.ac.ebi.ena.sra.xml.AnalysisType;
+import uk.ac.ebi.ena.sra.xml.NameType;
+import uk.ac.ebi.ena.sra.xml.ProjectType;
+import uk.ac.ebi.ena.sra.xml.StudyType;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Plans the import of a list of projects, studies and analyses, given in any mix. Related accessions often lead to
+ * the same objects, e.g. a project and its study, or a study and some of its analyses; the planner retrieves the
+ * given objects, finds out which study each of them belongs to, and groups them so that each study is imported once.
+ * <p>
+ * The given objects are retrieved in batches, one type at a time, and their XMLs are kept in the plan to be used by
+ * the import rather than retrieved again. The objects they depend on (reference sequences, samples, taxa) are
+ * shared between the planned imports, and are imported once each by {@link
+ * uk.ac.ebi.ampt2d.metadata.importer.ObjectsImporter}.
+ */
+public class ImportPlanner {
+
+    private static final Logger LOGGER = Logger.getLogger(ImportPlanner.class.getName());
+
+    private final SraXmlRetrieverByAccession sraXmlRetrieverByAccession;
+
+    private final SraXmlParser<ProjectType> sraProjectXmlParser;
+
+    private final SraXmlParser<StudyType> sraStudyXmlParser;
+
+    private final SraXmlParser<AnalysisType> sraAnalysisXmlParser;
+
+    private final Set<AccessionType> supportedTypes;
+
+    /**
+     * @param supportedTypes types of accession which can be imported from the import source. Analyses are only
+     * grouped by study if studies are supported, as otherwise their XMLs would be retrieved for nothing.
+     */
+    public ImportPlanner(SraXmlRetrieverByAccession sraXmlRetrieverByAccession,
+                         SraXmlParser<ProjectType> sraProjectXmlParser,
+                         SraXmlParser<StudyType> sraStudyXmlParser,
+                         SraXmlParser<AnalysisType> sraAnalysisXmlParser,
+                         Set<AccessionType> supportedTypes) {
+        this.sraXmlRetrieverByAccession = sraXmlRetrieverByAccession;
+        this.sraProjectXmlParser = sraProjectXmlParser;
+        this.sraStudyXmlParser = sraStudyXmlParser;
+        this.sraAnalysisXmlParser = sraAnalysisXmlParser;
+        this.supportedTypes = supportedTypes;
+    }
+
+    public ImportPlan plan(Collection<String> accessions) throws Exception {
+        ImportPlan importPlan = new ImportPlan();
+        Map<AccessionType, Set<String>> accessionsByType = new EnumMap<>(AccessionType.class);
+        for (String accession : accessions) {
+            accession = accession.trim();
+            if (accession.isEmpty()) {
+                continue;
+            }
+            AccessionType accessionType = AccessionType.of(accession);
+            if (accessionType == null || !supportedTypes.contains(accessionType)) {
+                LOGGER.warning("Accession " + accession + " cannot be imported from this source");
+                importPlan.addUnsupportedAccession(accession);
+            } else {
+                accessionsByType.computeIfAbsent(accessionType, type -> new LinkedHashSet<>()).add(accession);
+            }
+        }
+
+        // Planned imports by study, and by project for the studies and analyses which reference their project
+        Map<String, PlannedImport> importsByStudy = new LinkedHashMap<>();
+        Map<String, PlannedImport> importsByProject = new HashMap<>();
+        planProjects(accessionsByType, importPlan, importsByStudy, importsByProject);
+        planStudies(accessionsByType, importPlan, importsByStudy, importsByProject);
+        planAnalyses(accessionsByType, importPlan, importsByStudy, importsByProject);
+        importsByStudy.values().forEach(importPlan::addPlannedImport);
+
+        LOGGER.info("Planned " + importPlan.getPlannedImports().size() + " imports for " + accessions.size()
+                            + " accessions");
+        return importPlan;
+    }
+
+    private void planProjects(Map<AccessionType, Set<String>> accessionsByType, ImportPlan importPlan,
+                              Map<String, PlannedImport> importsByStudy,
+                              Map<String, PlannedImport> importsByProject) throws Exception {
+        Set<String> projectAccessions = accessionsByType.getOrDefault(AccessionType.PROJECT, Collections.emptySet());
+        Map<String, String> projectXmls = retrieveXmls(projectAccessions);
+        for (String projectAccession : projectAccessions) {
+            String projectXml = projectXmls.get(projectAccession);
+            if (projectXml == null) {
+                importPlan.addNotFoundAccession(projectAccession);
+                continue;
+            }
+            ProjectType projectType = sraProjectXmlParser.parseXml(projectXml, projectAccession);
+            NameType[] secondaryIds = projectType.getIDENTIFIERS().getSECONDARYIDArray();
+            // A project without a study cannot be imported, which the import of the project itself reports
+            String studyAccession = secondaryIds.length > 0 ? secondaryIds[0].getStringValue() : projectAccession;
+            PlannedImport plannedImport = importsByStudy.computeIfAbsent(studyAccession, PlannedImport::new);
+            plannedImport.addProject(projectAccession);
+            plannedImport.addRetrievedXml(projectAccession, projectXml);
+            importsByProject.put(projectAccession, plannedImport);
+        }
+    }
+
+    private void planStudies(Map<AccessionType, Set<String>> accessionsByType, ImportPlan importPlan,
+                             Map<String, PlannedImport> importsByStudy,
+                             Map<String, PlannedImport> importsByProject) throws Exception {
+        Set<String> studyAccessions = accessionsByType.getOrDefault(AccessionType.STUDY, Collections.emptySet());
+        Map<String, String> studyXmls = retrieveXmls(studyAccessions);
+        for (String studyAccession : studyAccessions) {
+            String studyXml = studyXmls.get(studyAccession);
+            if (studyXml == null) {
+                importPlan.addNotFoundAccession(studyAccession);
+                continue;
+            }
+            StudyType studyType = sraStudyXmlParser.parseXml(studyXml, studyAccession);
+            PlannedImport plannedImport = importsByStudy.computeIfAbsent(studyAccession, PlannedImport::new);
+            plannedImport.addStudy();
+            plannedImport.addRetrievedXml(studyAccession, studyXml);
+            for (NameType secondaryId : studyType.getIDENTIFIERS().getSECONDARYIDArray()) {
+                importsByProject.putIfAbsent(secondaryId.getStringValue(), plannedImport);
+            }
+        }
+    }
+
+    private void planAnalyses(Map<AccessionType, Set<String>> accessionsByType, ImportPlan importPlan,
+                              Map<String, PlannedImport> importsByStudy,
+                              Map<String, PlannedImport> importsByProject) throws Exception {
+        Set<String> analysisAccessions = accessionsByType.getOrDefault(AccessionType.ANALYSIS,
+                                                                       Collections.emptySet());
+        if (!supportedTypes.contains(AccessionType.STUDY)) {
+            for (String analysisAccession : analysisAccessions) {
+                PlannedImport plannedImport = new PlannedImport(null);
+                plannedImport.addAnalysis(analysisAccession);
+                importsByStudy.put(analysisAccession, plannedImport);
+            }
+            return;
+        }
+        Map<String, String> analysisXmls = retrieveXmls(analysisAccessions);
+        for (String analysisAccession : analysisAccessions) {
+            String analysisXml = analysisXmls.get(analysisAccession);
+            if (analysisXml == null) {
+                importPlan.addNotFoundAccession(analysisAccession);
+                continue;
+            }
+            AnalysisType analysisType = sraAnalysisXmlParser.parseXml(analysisXml, analysisAccession);
+            if (analysisType.getSTUDYREF() == null) {
+                LOGGER.warning("Analysis " + analysisAccession + " does not reference a study");
+                importPlan.addUnsupportedAccession(analysisAccession);
+                continue;
+            }
+            String studyAccession = analysisType.getSTUDYREF().getAccession();
+            PlannedImport plannedImport = importsByStudy.get(studyAccession);
+            if (plannedImport == null) {
+                plannedImport = importsByProject.get(studyAccession);
+            }
+            if (plannedImport == null) {
+                plannedImport = new PlannedImport(studyAccession);
+                importsByStudy.put(studyAccession, plannedImport);
+            }
+            plannedImport.addAnalysis(analysisAccession);
+            plannedImport.addRetrievedXml(analysisAccession, analysisXml);
+        }
+    }
+
+    private Map<String, String> retrieveXmls(Set<String> accessions) {
+        return accessions.isEmpty() ? Collections.emptyMap() : sraXmlRetrieverByAccession.getXmls(accessions);
+    }
+
+}
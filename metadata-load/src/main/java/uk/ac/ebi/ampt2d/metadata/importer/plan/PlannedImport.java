@@ -0,0 +1,116 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.importer.plan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One unit of an {@link ImportPlan}: a study, with its project, and either all its analyses or only some of them,
+ * which are imported together. It records which of the accessions given to the planner it covers, and the XMLs the
+ * planner has already retrieved, so that they are not retrieved again during the import.
+ * <p>
+ * When the study of the analyses is not known, because the import source cannot retrieve analysis XMLs before the
+ * import, the study accession is null and each analysis is imported on its own.
+ */
+public class PlannedImport {
+
+    private final String studyAccession;
+
+    private String projectAccession;
+
+    private boolean allAnalyses;
+
+    private final Set<String> analysisAccessions = new LinkedHashSet<>();
+
+    private final List<String> rootAccessions = new ArrayList<>();
+
+    private final Map<String, String> retrievedXmls = new LinkedHashMap<>();
+
+    PlannedImport(String studyAccession) {
+        this.studyAccession = studyAccession;
+    }
+
+    void addProject(String projectAccession) {
+        this.projectAccession = projectAccession;
+        this.allAnalyses = true;
+        rootAccessions.add(projectAccession);
+    }
+
+    void addStudy() {
+        this.allAnalyses = true;
+        rootAccessions.add(studyAccession);
+    }
+
+    void addAnalysis(String analysisAccession) {
+        analysisAccessions.add(analysisAccession);
+        rootAccessions.add(analysisAccession);
+    }
+
+    void addRetrievedXml(String accession, String xml) {
+        retrievedXmls.put(accession, xml);
+    }
+
+    /**
+     * @return a name for the planned import, made of the accessions it covers
+     */
+    public String getName() {
+        return String.join(",", rootAccessions);
+    }
+
+    public String getStudyAccession() {
+        return studyAccession;
+    }
+
+    /**
+     * @return accession of the project given to the planner, if any, in which case the import starts from it
+     */
+    public String getProjectAccession() {
+        return projectAccession;
+    }
+
+    /**
+     * @return whether all the analyses of the study are imported, because its project or itself was given
+     */
+    public boolean importsAllAnalyses() {
+        return allAnalyses;
+    }
+
+    /**
+     * @return analyses to import, when not all the analyses of the study are imported
+     */
+    public Set<String> getAnalysisAccessions() {
+        return Collections.unmodifiableSet(analysisAccessions);
+    }
+
+    public List<String> getRootAccessions() {
+        return Collections.unmodifiableList(rootAccessions);
+    }
+
+    public Map<String, String> getRetrievedXmls() {
+        return Collections.unmodifiableMap(retrievedXmls);
+    }
+
+}
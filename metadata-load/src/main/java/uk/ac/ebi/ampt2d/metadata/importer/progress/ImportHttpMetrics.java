@@ -0,0 +1,79 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.importer.progress;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.AdaptiveConcurrencyLimiter;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.CircuitBreaker;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.HttpConcurrencyLimiter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Metrics of the requests sent by the importer, available over JMX from the "metricsEndpoint" bean of the
+ * metadata-import domain:
+ * <ul>
+ * <li>import.http.in-flight and import.http.max-concurrent-requests: requests in flight to any service, and the
+ * overall limit</li>
+ * <li>import.http.ena.in-flight, import.http.ena.limit and import.http.ena.decreases: requests in flight to ENA, the
+ * current adaptive limit, and how many times it has been cut since the start</li>
+ * <li>import.http.ena.circuit-open and import.http.entrez.circuit-open: 1 while requests to the service are paused
+ * because it appears to be down, 0 otherwise; import.http.ena.circuit-openings and
+ * import.http.entrez.circuit-openings: how many times that has happened since the start</li>
+ * </ul>
+ */
+public class ImportHttpMetrics implements PublicMetrics {
+
+    private final HttpConcurrencyLimiter httpConcurrencyLimiter;
+
+    private final AdaptiveConcurrencyLimiter enaConcurrencyLimiter;
+
+    private final List<CircuitBreaker> circuitBreakers;
+
+    public ImportHttpMetrics(HttpConcurrencyLimiter httpConcurrencyLimiter,
+                             AdaptiveConcurrencyLimiter enaConcurrencyLimiter, List<CircuitBreaker> circuitBreakers) {
+        this.httpConcurrencyLimiter = httpConcurrencyLimiter;
+        this.enaConcurrencyLimiter = enaConcurrencyLimiter;
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("import.http.in-flight", httpConcurrencyLimiter.getRequestsInFlight()));
+        metrics.add(new Metric<>("import.http.max-concurrent-requests",
+                                 httpConcurrencyLimiter.getMaxConcurrentRequests()));
+        metrics.add(new Metric<>("import.http.ena.in-flight", enaConcurrencyLimiter.getRequestsInFlight()));
+        metrics.add(new Metric<>("import.http.ena.limit", enaConcurrencyLimiter.getLimit()));
+        metrics.add(new Metric<>("import.http.ena.decreases", enaConcurrencyLimiter.getDecreases()));
+        for (CircuitBreaker circuitBreaker : circuitBreakers) {
+            String prefix = "import.http." + circuitBreaker.getName().toLowerCase(Locale.ROOT);
+            boolean open = circuitBreaker.getState() != CircuitBreaker.State.CLOSED;
+            metrics.add(new Metric<>(prefix + ".circuit-open", open ? 1 : 0));
+            metrics.add(new Metric<>(prefix + ".circuit-openings", circuitBreaker.getOpenings()));
+        }
+        return metrics;
+    }
+
+}
@@ -0,0 +1,325 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.progress;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Live progress of an import: how many accessions are queued, in flight, done and failed, how fast objects are being
+ * imported, and what each in-flight accession is currently doing. Accessions are tracked per thread: a worker calls
+ * {@link #start(String)}, then any number of {@link #stage(String)}, and finally {@link #finish(boolean)}. Tasks
+ * which import part of an accession in other threads are wrapped with {@link #inCurrentImport(Callable)}, so that
+ * their stages are recorded for the accession too.
+ * <p>
+ * The heap in use is also sampled after each chunk of objects, see {@link #chunkImported(String)}, and its
+ * high-water mark is logged whenever it grows noticeably, to tell whether a long run fits in its heap.
+ */
+public class ImportProgress {
+
+    private static final Logger LOGGER = Logger.getLogger(ImportProgress.class.getName());
+
+    // Growth of the heap high-water mark, as a fraction of the maximum heap, which is worth logging
+    private static final double HEAP_HIGH_WATER_MARK_STEP = 0.01;
+
+    private static final int RATE_WINDOW_SECONDS = 60;
+
+    private static final int SLOWEST_IN_FLIGHT = 5;
+
+    private final AtomicLong queued = new AtomicLong();
+
+    private final AtomicLong done = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong deferred = new AtomicLong();
+
+    private final AtomicLong objects = new AtomicLong();
+
+    private final Set<InFlightAccession> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Accession being imported by each thread, or on whose behalf it is running a task
+    private final ThreadLocal<InFlightAccession> current = new ThreadLocal<>();
+
+    // Number of objects imported during each of the last seconds, indexed by epoch second modulo window size
+    private final long[] objectsPerSecond = new long[RATE_WINDOW_SECONDS];
+
+    private final long[] objectsPerSecondEpoch = new long[RATE_WINDOW_SECONDS];
+
+    private volatile long startTime = System.currentTimeMillis();
+
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+
+    private final AtomicLong heapHighWaterMark = new AtomicLong();
+
+    private volatile long loggedHeapHighWaterMark;
+
+    /**
+     * Starts tracking a new run, forgetting everything about the previous one.
+     */
+    public void reset() {
+        queued.set(0);
+        done.set(0);
+        failed.set(0);
+        deferred.set(0);
+        objects.set(0);
+        inFlight.clear();
+        heapHighWaterMark.set(0);
+        loggedHeapHighWaterMark = 0;
+        synchronized (objectsPerSecond) {
+            Arrays.fill(objectsPerSecondEpoch, 0);
+        }
+        startTime = System.currentTimeMillis();
+    }
+
+    public void queued(long accessions) {
+        queued.addAndGet(accessions);
+    }
+
+    /**
+     * Replaces the number of queued accessions, e.g. by the number of pending requests of a queue which other
+     * importers also add to and take from.
+     */
+    public void setQueued(long accessions) {
+        queued.set(accessions);
+    }
+
+    public void start(String accession) {
+        if (queued.get() > 0) {
+            queued.decrementAndGet();
+        }
+        InFlightAccession inFlightAccession = new InFlightAccession(accession);
+        inFlight.add(inFlightAccession);
+        current.set(inFlightAccession);
+    }
+
+    /**
+     * Records what the accession being imported by the current thread is doing, e.g. "importing samples".
+     */
+    public void stage(String stage) {
+        InFlightAccession inFlightAccession = current.get();
+        if (inFlightAccession != null) {
+            inFlightAccession.setStage(stage);
+        }
+    }
+
+    /**
+     * Wraps a task submitted by the thread importing an accession, so that the stages it records while running in
+     * another thread are recorded for that accession.
+     */
+    public <T> Callable<T> inCurrentImport(Callable<T> task) {
+        InFlightAccession inFlightAccession = current.get();
+        return () -> {
+            InFlightAccession previous = current.get();
+            current.set(inFlightAccession);
+            try {
+                return task.call();
+            } finally {
+                current.set(previous);
+            }
+        };
+    }
+
+    public void objectImported() {
+        objects.incrementAndGet();
+        long second = System.currentTimeMillis() / 1000;
+        int bucket = (int) (second % RATE_WINDOW_SECONDS);
+        synchronized (objectsPerSecond) {
+            if (objectsPerSecondEpoch[bucket] != second) {
+                objectsPerSecondEpoch[bucket] = second;
+                objectsPerSecond[bucket] = 0;
+            }
+            objectsPerSecond[bucket]++;
+        }
+    }
+
+    /**
+     * Samples the heap in use after a chunk of objects has been imported, e.g. a batch of analyses or a chunk of
+     * samples, and logs the high-water mark if it has grown noticeably since it was last logged.
+     */
+    public void chunkImported(String chunk) {
+        MemoryUsage heap = memoryMXBean.getHeapMemoryUsage();
+        long used = heap.getUsed();
+        LOGGER.fine("Heap in use after " + chunk + ": " + toMegabytes(used) + " MB");
+        long highWaterMark = heapHighWaterMark.accumulateAndGet(used, Math::max);
+        long maxHeap = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+        if (highWaterMark == used && used - loggedHeapHighWaterMark >= maxHeap * HEAP_HIGH_WATER_MARK_STEP) {
+            loggedHeapHighWaterMark = used;
+            LOGGER.info("Heap high-water mark: " + toMegabytes(used) + " MB of " + toMegabytes(maxHeap)
+                                + " MB, after " + chunk);
+        }
+    }
+
+    private static long toMegabytes(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+
+    public void finish(boolean successful) {
+        forgetCurrent();
+        (successful ? done : failed).incrementAndGet();
+    }
+
+    /**
+     * Records that the accession being imported by the current thread will be imported again later, e.g. because a
+     * service it needs is unavailable. It is counted as queued again rather than as failed.
+     */
+    public void defer() {
+        forgetCurrent();
+        queued.incrementAndGet();
+        deferred.incrementAndGet();
+    }
+
+    private void forgetCurrent() {
+        InFlightAccession inFlightAccession = current.get();
+        current.remove();
+        if (inFlightAccession != null) {
+            inFlight.remove(inFlightAccession);
+        }
+    }
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    public long getInFlight() {
+        return inFlight.size();
+    }
+
+    public long getDone() {
+        return done.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return number of times an import has been deferred since the start
+     */
+    public long getDeferred() {
+        return deferred.get();
+    }
+
+    /**
+     * @return highest heap in use sampled after a chunk since the start, in megabytes
+     */
+    public long getHeapHighWaterMarkMegabytes() {
+        return toMegabytes(heapHighWaterMark.get());
+    }
+
+    public long getObjects() {
+        return objects.get();
+    }
+
+    /**
+     * @return objects imported per second, averaged over the last minute (or since the start, if more recent)
+     */
+    public double getObjectsPerSecond() {
+        long now = System.currentTimeMillis();
+        long currentSecond = now / 1000;
+        long total = 0;
+        synchronized (objectsPerSecond) {
+            for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+                if (currentSecond - objectsPerSecondEpoch[i] < RATE_WINDOW_SECONDS) {
+                    total += objectsPerSecond[i];
+                }
+            }
+        }
+        double windowSeconds = Math.min(RATE_WINDOW_SECONDS, Math.max(1, (now - startTime) / 1000.0));
+        return total / windowSeconds;
+    }
+
+    /**
+     * @return estimated seconds until all queued and in-flight accessions are finished, based on the rate at which
+     * accessions have been finished so far, or null if no estimate can be made yet
+     */
+    public Long getEtaSeconds() {
+        long finished = done.get() + failed.get();
+        long remaining = queued.get() + inFlight.size();
+        if (remaining == 0) {
+            return 0L;
+        }
+        if (finished == 0) {
+            return null;
+        }
+        double elapsedSeconds = Math.max(1, (System.currentTimeMillis() - startTime) / 1000.0);
+        return Math.round(remaining * elapsedSeconds / finished);
+    }
+
+    /**
+     * @return the in-flight accessions which have been running for the longest time, longest first
+     */
+    public List<Map<String, Object>> getSlowestInFlight() {
+        long now = System.currentTimeMillis();
+        return inFlight.stream()
+                       .sorted(Comparator.comparingLong(InFlightAccession::getStartTime))
+                       .limit(SLOWEST_IN_FLIGHT)
+                       .map(inFlightAccession -> inFlightAccession.describe(now))
+                       .collect(Collectors.toList());
+    }
+
+    private static class InFlightAccession {
+
+        private final String accession;
+
+        private final long startTime;
+
+        private volatile String stage = "starting";
+
+        private volatile long stageStartTime;
+
+        InFlightAccession(String accession) {
+            this.accession = accession;
+            this.startTime = System.currentTimeMillis();
+            this.stageStartTime = startTime;
+        }
+
+        long getStartTime() {
+            return startTime;
+        }
+
+        void setStage(String stage) {
+            this.stage = stage;
+            this.stageStartTime = System.currentTimeMillis();
+        }
+
+        Map<String, Object> describe(long now) {
+            Map<String, Object> description = new LinkedHashMap<>();
+            description.put("accession", accession);
+            description.put("stage", stage);
+            description.put("seconds", (now - startTime) / 1000);
+            description.put("stageSeconds", (now - stageStartTime) / 1000);
+            return description;
+        }
+
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.progress;
+
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing the progress of the running import. The importer does not run a web server, so the
+ * endpoint is available over JMX, as the "importProgressEndpoint" bean of the metadata-import domain.
+ */
+public class ImportProgressEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    private final ImportProgress importProgress;
+
+    public ImportProgressEndpoint(ImportProgress importProgress) {
+        super("importProgress", false);
+        this.importProgress = importProgress;
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("queued", importProgress.getQueued());
+        progress.put("inFlight", importProgress.getInFlight());
+        progress.put("done", importProgress.getDone());
+        progress.put("failed", importProgress.getFailed());
+        progress.put("deferred", importProgress.getDeferred());
+        progress.put("objects", importProgress.getObjects());
+        progress.put("objectsPerSecond", importProgress.getObjectsPerSecond());
+        progress.put("etaSeconds", importProgress.getEtaSeconds());
+        progress.put("slowestInFlight", importProgress.getSlowestInFlight());
+        progress.put("heapHighWaterMarkMegabytes", importProgress.getHeapHighWaterMarkMegabytes());
+        return progress;
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.importer.xml;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a set of SRA objects, as returned by the ENA browser API for a list of accessions (e.g. a SAMPLE_SET with
+ * several SAMPLE elements), into one document per object, each wrapped in its own set as if it had been requested
+ * alone.
+ */
+public class SraXmlSetSplitter {
+
+    private static final String IDENTIFIERS = "IDENTIFIERS";
+
+    private static final String PRIMARY_ID = "PRIMARY_ID";
+
+    private static final String SECONDARY_ID = "SECONDARY_ID";
+
+    /**
+     * @return document of each object of the set, under its accession attribute and each of its primary and
+     * secondary IDs, so that an object can be found under whichever accession it was requested with
+     */
+    public Map<String, String> split(String setXml) throws Exception {
+        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+        Document setDocument = documentBuilder.parse(new InputSource(new StringReader(setXml)));
+        Element set = setDocument.getDocumentElement();
+
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+
+        Map<String, String> xmls = new LinkedHashMap<>();
+        NodeList objects = set.getChildNodes();
+        for (int i = 0; i < objects.getLength(); i++) {
+            if (objects.item(i).getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+            Element object = (Element) objects.item(i);
+            Document objectDocument = documentBuilder.newDocument();
+            Element objectSet = objectDocument.createElement(set.getTagName());
+            objectDocument.appendChild(objectSet);
+            objectSet.appendChild(objectDocument.importNode(object, true));
+            StringWriter objectXml = new StringWriter();
+            transformer.transform(new DOMSource(objectDocument), new StreamResult(objectXml));
+
+            String xml = objectXml.toString();
+            if (object.hasAttribute("accession")) {
+                xmls.put(object.getAttribute("accession"), xml);
+            }
+            for (Element identifiers : childElements(object, IDENTIFIERS)) {
+                for (Element id : childElements(identifiers, PRIMARY_ID)) {
+                    xmls.putIfAbsent(id.getTextContent().trim(), xml);
+                }
+                for (Element id : childElements(identifiers, SECONDARY_ID)) {
+                    xmls.putIfAbsent(id.getTextContent().trim(), xml);
+                }
+            }
+        }
+        return xmls;
+    }
+
+    private static List<Element> childElements(Element parent, String tagName) {
+        List<Element> children = new ArrayList<>();
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node.getNodeType() == Node.ELEMENT_NODE && ((Element) node).getTagName().equals(tagName)) {
+                children.add((Element) node);
+            }
+        }
+        return children;
+    }
+
+}
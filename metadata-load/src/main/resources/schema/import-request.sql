@@ -0,0 +1,16 @@
+-- Work queue of accessions for the import daemon. Rows are inserted as PENDING, claimed by a daemon worker using
+-- SELECT ... FOR UPDATE SKIP LOCKED, and finally marked as DONE or FAILED together with the time it took.
+CREATE TABLE IF NOT EXISTS import_request (
+    id          BIGSERIAL    PRIMARY KEY,
+    accession   VARCHAR(255) NOT NULL,
+    status      VARCHAR(16)  NOT NULL DEFAULT 'PENDING',
+    attempts    INTEGER      NOT NULL DEFAULT 0,
+    created_at  TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at  TIMESTAMP,
+    finished_at TIMESTAMP,
+    duration_ms BIGINT,
+    worker      VARCHAR(255),
+    message     TEXT
+);
+
+CREATE INDEX IF NOT EXISTS import_request_pending_idx ON import_request (id) WHERE status = 'PENDING';
@@ -0,0 +1,9 @@
+-- Accessions which ENA reported as missing (suppressed, retracted or never existing), per import source (API or DB).
+-- Rows are only a hint which expires: once expires_at has passed, the accession is requested from ENA again.
+CREATE TABLE IF NOT EXISTS import_not_found_accession (
+    source      VARCHAR(16)  NOT NULL,
+    accession   VARCHAR(255) NOT NULL,
+    recorded_at TIMESTAMP    NOT NULL,
+    expires_at  TIMESTAMP    NOT NULL,
+    PRIMARY KEY (source, accession)
+);
@@ -0,0 +1,104 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NotFoundAccessionCacheTest {
+
+    private EmbeddedDatabase database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void notFoundAccessionIsRememberedAcrossRuns() {
+        NotFoundAccessionCache cache = new NotFoundAccessionCache(jdbcTemplate, "API", Duration.ofDays(30), true);
+        assertFalse(cache.isNotFound("ERS000001"));
+        cache.recordNotFound("ERS000001");
+        cache.recordNotFound("ERS000001");
+        assertTrue(cache.isNotFound("ERS000001"));
+        assertEquals(2, cache.getRecordedAccessions());
+        assertEquals(1, cache.getSkippedLookups());
+
+        NotFoundAccessionCache nextRunCache = new NotFoundAccessionCache(jdbcTemplate, "API", Duration.ofDays(30), true);
+        assertTrue(nextRunCache.isNotFound("ERS000001"));
+        assertFalse(nextRunCache.isNotFound("ERS000002"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM import_not_found_accession",
+                                                    Integer.class).intValue());
+    }
+
+    @Test
+    public void expiredAccessionIsRequestedAgain() {
+        NotFoundAccessionCache cache = new NotFoundAccessionCache(jdbcTemplate, "API", Duration.ZERO, true);
+        cache.recordNotFound("ERS000001");
+        assertFalse(cache.isNotFound("ERS000001"));
+
+        new NotFoundAccessionCache(jdbcTemplate, "API", Duration.ofDays(30), true);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM import_not_found_accession",
+                                                    Integer.class).intValue());
+    }
+
+    @Test
+    public void notFoundAccessionIsRememberedPerImportSource() {
+        new NotFoundAccessionCache(jdbcTemplate, "API", Duration.ofDays(30), true).recordNotFound("ERS000001");
+        NotFoundAccessionCache databaseCache = new NotFoundAccessionCache(jdbcTemplate, "DB", Duration.ofDays(30),
+                                                                          true);
+        assertFalse(databaseCache.isNotFound("ERS000001"));
+        databaseCache.recordNotFound("ERS000001");
+
+        assertTrue(new NotFoundAccessionCache(jdbcTemplate, "API", Duration.ofDays(30), true)
+                           .isNotFound("ERS000001"));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM import_not_found_accession",
+                                                    Integer.class).intValue());
+    }
+
+    @Test
+    public void disabledCacheOnlyCounts() {
+        NotFoundAccessionCache cache = NotFoundAccessionCache.disabled();
+        cache.recordNotFound("ERS000001");
+        assertFalse(cache.isNotFound("ERS000001"));
+        assertEquals(1, cache.getRecordedAccessions());
+        cache.resetStatistics();
+        assertEquals(0, cache.getRecordedAccessions());
+    }
+
+}
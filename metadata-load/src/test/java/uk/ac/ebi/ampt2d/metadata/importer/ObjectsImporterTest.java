@@ -0,0 +1,154 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.ampt2d.metadata.importer.api.SraObjectsImporterThroughApi;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.AccessionVersionId;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Analysis;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.ReferenceSequence;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Sample;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Taxonomy;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.AnalysisRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ProjectRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ReferenceSequenceRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.SampleRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.StudyRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.TaxonomyRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(SpringRunner.class)
+@TestPropertySource(value = "classpath:application.properties", properties = {"import.source=API"})
+@ContextConfiguration(classes = {MetadataImporterMainApplication.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+public class ObjectsImporterTest {
+
+    @Autowired
+    private SraObjectsImporterThroughApi sraObjectImporter;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private StudyRepository studyRepository;
+
+    @Autowired
+    private AnalysisRepository analysisRepository;
+
+    @Autowired
+    private ReferenceSequenceRepository referenceSequenceRepository;
+
+    @Autowired
+    private SampleRepository sampleRepository;
+
+    @Autowired
+    private TaxonomyRepository taxonomyRepository;
+
+    @Value("${import.sample-chunk-size:1000}")
+    private int sampleChunkSize;
+
+    @Before
+    public void setUp() {
+        analysisRepository.deleteAll();
+        studyRepository.deleteAll();
+        projectRepository.deleteAll();
+        referenceSequenceRepository.deleteAll();
+        sampleRepository.deleteAll();
+        taxonomyRepository.deleteAll();
+        sraObjectImporter.clearCaches();
+    }
+
+    @Test
+    public void saveAnalysisWithMoreSamplesThanAChunk() {
+        Taxonomy taxonomy = new Taxonomy(9606);
+        taxonomy.setName("Homo sapiens");
+        taxonomy.setRank("species");
+        taxonomy = taxonomyRepository.save(taxonomy);
+        ReferenceSequence referenceSequence = new ReferenceSequence("GRCh38", "p12", "GCA_000001405.27",
+                ReferenceSequence.Type.GENOME_ASSEMBLY);
+        referenceSequence.setTaxonomy(taxonomy);
+        referenceSequence = referenceSequenceRepository.save(referenceSequence);
+        LocalDate releaseDate = LocalDate.of(2019, 6, 1);
+        Study study = studyRepository.save(new Study(new AccessionVersionId("ERP000001", 1), "Study", "Study",
+                "EBI", releaseDate));
+
+        List<Sample> samples = new ArrayList<>();
+        for (int i = 0; i < 2 * sampleChunkSize + 1; i++) {
+            Sample sample = new Sample(new AccessionVersionId("ERS" + i, 1), "Sample " + i, "SAMEA" + i);
+            sample.setTaxonomies(Collections.singletonList(taxonomy));
+            samples.add(sampleRepository.save(sample));
+        }
+
+        Analysis analysis = new Analysis(new AccessionVersionId("ERZ000001", 1), "Analysis", "Analysis",
+                Analysis.Type.CASE_CONTROL, Analysis.Technology.GWAS, "Illumina");
+        analysis.setReferenceSequences(Collections.singletonList(referenceSequence));
+        analysis.setSamples(samples);
+        sraObjectImporter.saveAnalysis(analysis, study);
+
+        for (Sample sample : sampleRepository.findAll()) {
+            assertEquals(releaseDate, sample.getReleaseDate());
+            assertEquals("ERP000001", sample.getStudyIds());
+        }
+        assertEquals(2 * sampleChunkSize + 1, sampleRepository.count());
+    }
+
+    @Test
+    public void updateSpeciesOfStudyOnceItsAnalysesAreSaved() {
+        Taxonomy taxonomy = new Taxonomy(9606);
+        taxonomy.setName("Homo sapiens");
+        taxonomy.setRank("species");
+        taxonomy = taxonomyRepository.save(taxonomy);
+        taxonomy.setTaxonomySpecies(taxonomy);
+        taxonomy = taxonomyRepository.save(taxonomy);
+        ReferenceSequence referenceSequence = new ReferenceSequence("GRCh38", "p12", "GCA_000001405.27",
+                ReferenceSequence.Type.GENOME_ASSEMBLY);
+        referenceSequence.setTaxonomy(taxonomy);
+        referenceSequence = referenceSequenceRepository.save(referenceSequence);
+        Study study = studyRepository.save(new Study(new AccessionVersionId("ERP000001", 1), "Study", "Study",
+                "EBI", LocalDate.of(2019, 6, 1)));
+
+        for (int i = 0; i < 2; i++) {
+            Analysis analysis = new Analysis(new AccessionVersionId("ERZ00000" + i, 1), "Analysis", "Analysis",
+                    Analysis.Type.CASE_CONTROL, Analysis.Technology.GWAS, "Illumina");
+            analysis.setReferenceSequences(Collections.singletonList(referenceSequence));
+            sraObjectImporter.saveAnalysis(analysis, study);
+        }
+        assertNull(studyRepository.findOne(study.getId()).getTaxonomy());
+
+        sraObjectImporter.updateSpeciesOfStudies();
+        assertEquals(9606, studyRepository.findOne(study.getId()).getTaxonomy().getTaxonomyId());
+    }
+
+}
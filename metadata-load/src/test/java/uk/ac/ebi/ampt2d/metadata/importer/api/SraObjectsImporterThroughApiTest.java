@@ -93,6 +93,7 @@ public class SraObjectsImporterThroughApiTest {
         referenceSequenceRepository.deleteAll();
         sampleRepository.deleteAll();
         taxonomyRepository.deleteAll();
+        sraObjectImporter.clearCaches();
     }
 
     @Test
@@ -115,6 +116,7 @@ public class SraObjectsImporterThroughApiTest {
         assertEquals(LocalDate.of(2014, 8, 4), study.getReleaseDate());
         assertEquals("Sanger Institute Mouse Genomes Project v3", study.getName());
         assertEquals(2, study.getAnalyses().size());
+        assertEquals(10090, studyRepository.findOne(study.getId()).getTaxonomy().getTaxonomyId());
 
         // Below two studies doesn't have analysis associated with it
         study = sraObjectImporter.importStudy("SRP000392");
@@ -0,0 +1,153 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.api;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.http.MediaType;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+import uk.ac.ebi.ampt2d.metadata.importer.NotFoundAccessionCache;
+import uk.ac.ebi.ampt2d.metadata.importer.SraXmlRetrieverByAccession;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.CircuitOpenException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class SraXmlRetrieverThroughApiTest {
+
+    private static final String ENA_API_URL = "http://localhost/ena";
+
+    private MockRestServiceServer server;
+
+    private SraXmlRetrieverThroughApi sraXmlRetriever;
+
+    @Before
+    public void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        sraXmlRetriever = new SraXmlRetrieverThroughApi(NotFoundAccessionCache.disabled(), ENA_API_URL,
+                                                        restTemplate, 2);
+    }
+
+    @Test
+    public void onlyTheFailedBatchIsRetried() {
+        RetryTemplate batchRetryTemplate = new RetryTemplate();
+        batchRetryTemplate.setRetryPolicy(new SimpleRetryPolicy(3));
+        sraXmlRetriever.setBatchRetryTemplate(batchRetryTemplate);
+        server.expect(requestTo(ENA_API_URL + "/xml/ERS1,ERS2"))
+              .andRespond(withSuccess(sampleSet("ERS1", "ERS2"), MediaType.APPLICATION_XML));
+        server.expect(requestTo(ENA_API_URL + "/xml/ERS3,ERS4")).andRespond(withServerError());
+        server.expect(requestTo(ENA_API_URL + "/xml/ERS3,ERS4"))
+              .andRespond(withSuccess(sampleSet("ERS3", "ERS4"), MediaType.APPLICATION_XML));
+
+        Map<String, String> xmls = sraXmlRetriever.getXmls(Arrays.asList("ERS1", "ERS2", "ERS3", "ERS4"));
+        assertEquals(Arrays.asList("ERS1", "ERS2", "ERS3", "ERS4"), new ArrayList<>(xmls.keySet()));
+        server.verify();
+    }
+
+    @Test(expected = HttpServerErrorException.class)
+    public void batchesAreNotRetriedByDefault() {
+        server.expect(requestTo(ENA_API_URL + "/xml/ERS1,ERS2")).andRespond(withServerError());
+        sraXmlRetriever.getXmls(Arrays.asList("ERS1", "ERS2"));
+    }
+
+    @Test
+    public void failedRequestIsRetried() {
+        server.expect(requestTo(ENA_API_URL + "/xml/ERZ1")).andRespond(withServerError());
+        server.expect(requestTo(ENA_API_URL + "/xml/ERZ1"))
+              .andRespond(withSuccess("<ANALYSIS_SET/>", MediaType.APPLICATION_XML));
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                RetryConfiguration.class)) {
+            assertEquals("<ANALYSIS_SET/>", withRetries(context, sraXmlRetriever).getXml("ERZ1"));
+        }
+        server.verify();
+    }
+
+    @Test
+    public void requestIsNotRetriedWhileTheCircuitIsOpen() {
+        AtomicInteger requests = new AtomicInteger();
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setInterceptors(Collections.singletonList((request, body, execution) -> {
+            requests.incrementAndGet();
+            throw new CircuitOpenException("ENA unavailable");
+        }));
+        SraXmlRetrieverThroughApi retriever = new SraXmlRetrieverThroughApi(NotFoundAccessionCache.disabled(),
+                                                                            ENA_API_URL, restTemplate);
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+                RetryConfiguration.class)) {
+            withRetries(context, retriever).getXml("ERZ1");
+            fail("The request should have failed");
+        } catch (CircuitOpenException exception) {
+            assertEquals(1, requests.get());
+        }
+    }
+
+    /**
+     * @return the retriever proxied by Spring, which applies its retry annotations
+     */
+    private static SraXmlRetrieverByAccession withRetries(AnnotationConfigApplicationContext context,
+                                                          SraXmlRetrieverThroughApi retriever) {
+        return (SraXmlRetrieverByAccession) context.getAutowireCapableBeanFactory().initializeBean(
+                retriever, "sraXmlRetriever");
+    }
+
+    @Configuration
+    @EnableRetry
+    static class RetryConfiguration {
+
+        @Bean
+        public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+            Properties properties = new Properties();
+            properties.setProperty("ena.api.attempts", "3");
+            properties.setProperty("ena.api.delay", "0");
+            PropertySourcesPlaceholderConfigurer configurer = new PropertySourcesPlaceholderConfigurer();
+            configurer.setProperties(properties);
+            return configurer;
+        }
+
+    }
+
+    private static String sampleSet(String... accessions) {
+        StringBuilder sampleSet = new StringBuilder("<SAMPLE_SET>");
+        for (String accession : accessions) {
+            sampleSet.append("<SAMPLE accession=\"").append(accession).append("\"/>");
+        }
+        return sampleSet.append("</SAMPLE_SET>").toString();
+    }
+
+}
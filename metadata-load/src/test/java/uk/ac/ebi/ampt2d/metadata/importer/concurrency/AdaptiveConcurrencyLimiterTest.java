@@ -0,0 +1,188 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.importer.concurrency;
+
+import org.junit.Test;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void limitGrowsWhileResponsesAreHealthy() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 8, 0.5, 1000);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ClientHttpRequestExecution execution = (request, body) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            sleep(2);
+            inFlight.decrementAndGet();
+            return response(200);
+        };
+
+        runConcurrently(limiter, execution, 16, 400);
+
+        assertEquals(8, limiter.getLimit());
+        assertTrue(maxInFlight.get() <= 8);
+        assertEquals(0, limiter.getDecreases());
+        assertEquals(0, limiter.getRequestsInFlight());
+    }
+
+    @Test
+    public void concurrentErrorsCutLimitOnce() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 8, 1, 8, 0.5, 1000);
+        CountDownLatch allSent = new CountDownLatch(4);
+        ClientHttpRequestExecution execution = (request, body) -> {
+            allSent.countDown();
+            try {
+                allSent.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                throw new IOException(exception);
+            }
+            return response(503);
+        };
+
+        runConcurrently(limiter, execution, 4, 4);
+
+        assertEquals(4, limiter.getLimit());
+        assertEquals(1, limiter.getDecreases());
+
+        // A request sent after the cut can cut the limit again
+        limiter.intercept(request("/xml/ERZ1"), new byte[0], (request, body) -> response(429)).close();
+        assertEquals(2, limiter.getLimit());
+        limiter.intercept(request("/xml/ERZ1"), new byte[0], (request, body) -> response(500)).close();
+        limiter.intercept(request("/xml/ERZ1"), new byte[0], (request, body) -> response(500)).close();
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void latencySpikeCutsLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 1, 8, 0.5, 3);
+        limiter.setLatencyClassifier(request -> request.getURI().getPath().contains(",") ? "batch" : "single");
+        ClientHttpRequestExecution fast = (request, body) -> {
+            sleep(5);
+            return response(200);
+        };
+        ClientHttpRequestExecution slow = (request, body) -> {
+            sleep(100);
+            return response(200);
+        };
+        for (int i = 0; i < 5; i++) {
+            limiter.intercept(request("/xml/ERZ1"), new byte[0], fast).close();
+        }
+        // Batches are slower, but are only compared with other batches
+        limiter.intercept(request("/xml/ERZ1,ERZ2"), new byte[0], slow).close();
+        limiter.intercept(request("/xml/ERZ1,ERZ2"), new byte[0], slow).close();
+        assertEquals(0, limiter.getDecreases());
+
+        limiter.intercept(request("/xml/ERZ1"), new byte[0], slow).close();
+        assertEquals(1, limiter.getDecreases());
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void waitingAfterTheLimiterIsNotLatency() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 1, 8, 0.5, 3);
+        ClientHttpRequestExecution send = (request, body) -> {
+            sleep(5);
+            return response(200);
+        };
+        // Stands for the overall limit of the importer, which requests wait for before being sent
+        ClientHttpRequestExecution waitThenSend = (request, body) -> {
+            sleep(100);
+            return limiter.latencyTimer().intercept(request, body, send);
+        };
+        for (int i = 0; i < 5; i++) {
+            limiter.intercept(request("/xml/ERZ1"), new byte[0], send).close();
+        }
+        limiter.intercept(request("/xml/ERZ1"), new byte[0], waitThenSend).close();
+        assertEquals(0, limiter.getDecreases());
+    }
+
+    @Test
+    public void failedRequestReleasesItsPlace() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 2, 0.5, 3);
+        try {
+            limiter.intercept(request("/xml/ERZ1"), new byte[0], (request, body) -> {
+                throw new IOException("Connection reset");
+            });
+            fail("The request should have failed");
+        } catch (IOException exception) {
+            assertEquals("Connection reset", exception.getMessage());
+        }
+        assertEquals(0, limiter.getRequestsInFlight());
+        assertEquals(1, limiter.getLimit());
+    }
+
+    private static void runConcurrently(AdaptiveConcurrencyLimiter limiter, ClientHttpRequestExecution execution,
+                                        int threads, int requests) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(executorService.submit(() -> {
+                limiter.intercept(request("/xml/ERZ1"), new byte[0], execution).close();
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+    }
+
+    private static HttpRequest request(String path) {
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getURI()).thenReturn(URI.create("http://localhost" + path));
+        return request;
+    }
+
+    private static ClientHttpResponse response(int status) throws IOException {
+        ClientHttpResponse response = mock(ClientHttpResponse.class);
+        when(response.getRawStatusCode()).thenReturn(status);
+        return response;
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.importer.concurrency;
+
+import org.junit.Test;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterConsecutiveFailures() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 3, Duration.ofMinutes(1), Duration.ofMillis(50));
+        send(circuitBreaker, (request, body) -> response(503));
+        send(circuitBreaker, (request, body) -> response(503));
+        // A success, or an error which does not mean that the service is down, starts the count again
+        send(circuitBreaker, (request, body) -> response(404));
+        send(circuitBreaker, (request, body) -> response(500));
+        send(circuitBreaker, (request, body) -> response(500));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        sendFailing(circuitBreaker);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(1, circuitBreaker.getOpenings());
+
+        AtomicInteger sent = new AtomicInteger();
+        try {
+            send(circuitBreaker, (request, body) -> {
+                sent.incrementAndGet();
+                return response(200);
+            });
+            fail("The request should not have been sent");
+        } catch (CircuitOpenException exception) {
+            assertTrue(CircuitOpenException.isCauseOf(new RuntimeException(exception)));
+        }
+        assertEquals(0, sent.get());
+    }
+
+    @Test
+    public void successfulProbeResumesWaitingRequests() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, Duration.ofMillis(100), Duration.ofMinutes(1));
+        sendFailing(circuitBreaker);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ClientHttpRequestExecution execution = (request, body) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            sleep(50);
+            inFlight.decrementAndGet();
+            return response(200);
+        };
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        Future<?> first = executorService.submit(() -> send(circuitBreaker, execution));
+        Future<?> second = executorService.submit(() -> send(circuitBreaker, execution));
+        first.get();
+        second.get();
+        executorService.shutdown();
+
+        // The probe is sent on its own, and the other request once it has succeeded
+        assertEquals(1, maxInFlight.get());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void failedProbeOpensCircuitAgain() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, Duration.ofMillis(50), Duration.ofMinutes(1));
+        sendFailing(circuitBreaker);
+        sleep(60);
+
+        sendFailing(circuitBreaker);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(2, circuitBreaker.getOpenings());
+
+        send(circuitBreaker, (request, body) -> response(200));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    private static Void send(CircuitBreaker circuitBreaker, ClientHttpRequestExecution execution) throws IOException {
+        HttpRequest request = mock(HttpRequest.class);
+        circuitBreaker.intercept(request, new byte[0], execution).close();
+        return null;
+    }
+
+    private static void sendFailing(CircuitBreaker circuitBreaker) {
+        try {
+            send(circuitBreaker, (request, body) -> {
+                throw new IOException("Connection refused");
+            });
+            fail("The request should have failed");
+        } catch (IOException exception) {
+            assertEquals("Connection refused", exception.getMessage());
+        }
+    }
+
+    private static ClientHttpResponse response(int status) throws IOException {
+        ClientHttpResponse response = mock(ClientHttpResponse.class);
+        when(response.getRawStatusCode()).thenReturn(status);
+        return response;
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.concurrency;
+
+import org.junit.Test;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class HttpConcurrencyLimiterTest {
+
+    @Test
+    public void requestsInFlightNeverExceedLimit() throws Exception {
+        HttpConcurrencyLimiter limiter = new HttpConcurrencyLimiter(3);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ClientHttpRequestExecution execution = (request, body) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException exception) {
+                throw new IOException(exception);
+            }
+            inFlight.decrementAndGet();
+            return mock(ClientHttpResponse.class);
+        };
+
+        ExecutorService executorService = Executors.newFixedThreadPool(10);
+        List<Future<?>> requests = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            requests.add(executorService.submit(() -> {
+                limiter.intercept(mock(HttpRequest.class), new byte[0], execution).close();
+                return null;
+            }));
+        }
+        for (Future<?> request : requests) {
+            request.get();
+        }
+        executorService.shutdown();
+
+        assertEquals(3, maxInFlight.get());
+        assertEquals(0, limiter.getRequestsInFlight());
+    }
+
+    @Test
+    public void permitIsHeldUntilResponseIsClosed() throws Exception {
+        HttpConcurrencyLimiter limiter = new HttpConcurrencyLimiter(2);
+        ClientHttpRequestExecution execution = (request, body) -> mock(ClientHttpResponse.class);
+
+        ClientHttpResponse response = limiter.intercept(mock(HttpRequest.class), new byte[0], execution);
+        assertEquals(1, limiter.getRequestsInFlight());
+        response.close();
+        response.close();
+        assertEquals(0, limiter.getRequestsInFlight());
+    }
+
+    @Test
+    public void permitIsReleasedWhenRequestFails() throws Exception {
+        HttpConcurrencyLimiter limiter = new HttpConcurrencyLimiter(1);
+        ClientHttpRequestExecution execution = (request, body) -> {
+            throw new IOException("Connection refused");
+        };
+        try {
+            limiter.intercept(mock(HttpRequest.class), new byte[0], execution);
+            fail("The request should have failed");
+        } catch (IOException exception) {
+            assertTrue(exception.getMessage().contains("refused"));
+        }
+        assertEquals(0, limiter.getRequestsInFlight());
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.concurrency;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+    @Test
+    public void concurrentCallsForSameKeyShareOneLoad() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executorService.submit(() -> singleFlight.get("GCA_000001405.15", () -> {
+            loads.incrementAndGet();
+            loadStarted.countDown();
+            releaseLoad.await();
+            return "GRCh38";
+        })));
+        loadStarted.await();
+        for (int i = 0; i < 7; i++) {
+            results.add(executorService.submit(() -> singleFlight.get("GCA_000001405.15", () -> {
+                loads.incrementAndGet();
+                return "unexpected";
+            })));
+        }
+        releaseLoad.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("GRCh38", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals("GRCh38", singleFlight.get("GCA_000001405.15", () -> "unexpected"));
+        executorService.shutdown();
+    }
+
+    @Test
+    public void failedLoadIsNotRemembered() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        try {
+            singleFlight.get("GCA_000001405.15", () -> {
+                throw new IllegalStateException("Entrez error");
+            });
+            fail("Exception from the loader should be propagated");
+        } catch (IllegalStateException expected) {
+            assertEquals("Entrez error", expected.getMessage());
+        }
+        assertEquals(0, singleFlight.size());
+        assertEquals("GRCh38", singleFlight.get("GCA_000001405.15", () -> "GRCh38"));
+    }
+
+    @Test
+    public void clearForgetsLoadedValues() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        singleFlight.get("GCA_000001405.15", () -> "GRCh38");
+        singleFlight.clear();
+        assertEquals("GRCh38.p13", singleFlight.get("GCA_000001405.15", () -> "GRCh38.p13"));
+    }
+
+    @Test
+    public void clearOlderThanOnlyForgetsOldValues() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        singleFlight.get("GCA_000001405.15", () -> "GRCh38");
+        singleFlight.clearOlderThan(Duration.ofHours(1));
+        assertEquals("GRCh38", singleFlight.get("GCA_000001405.15", () -> "unexpected"));
+        Thread.sleep(10);
+        singleFlight.clearOlderThan(Duration.ofMillis(1));
+        assertEquals(0, singleFlight.size());
+        assertEquals("GRCh38.p13", singleFlight.get("GCA_000001405.15", () -> "GRCh38.p13"));
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.daemon;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.metadata.importer.ObjectsImporter;
+import uk.ac.ebi.ampt2d.metadata.importer.concurrency.CircuitOpenException;
+import uk.ac.ebi.ampt2d.metadata.importer.progress.ImportProgress;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ImportDaemonTest {
+
+    private ImportRequestQueue importRequestQueue;
+
+    private ObjectsImporter objectsImporter;
+
+    private ImportProgress importProgress;
+
+    private ImportDaemon importDaemon;
+
+    @Before
+    public void setUp() {
+        importRequestQueue = mock(ImportRequestQueue.class);
+        objectsImporter = mock(ObjectsImporter.class);
+        importProgress = new ImportProgress();
+        importDaemon = new ImportDaemon(importRequestQueue, objectsImporter, importProgress, 1, 10, 3,
+                                        Duration.ofHours(6), Duration.ofHours(1), Duration.ofSeconds(10),
+                                        Duration.ofMinutes(10));
+    }
+
+    @Test
+    public void emptyQueue() throws Exception {
+        when(importRequestQueue.claim("worker", 1)).thenReturn(Collections.emptyList());
+        assertFalse(importDaemon.processNext("worker"));
+        verify(objectsImporter, never()).importAccession(anyString());
+        verify(objectsImporter, never()).clearCachesOlderThan(any(Duration.class));
+    }
+
+    @Test
+    public void successfulImportIsCompleted() throws Exception {
+        ImportRequest request = new ImportRequest(1, "PRJEB31129", 1);
+        when(importRequestQueue.claim("worker", 1)).thenReturn(Collections.singletonList(request));
+        assertTrue(importDaemon.processNext("worker"));
+        verify(objectsImporter).importAccession("PRJEB31129");
+        verify(importRequestQueue).complete(eq(request), anyLong());
+        verify(objectsImporter).clearCachesOlderThan(Duration.ofMinutes(10));
+        verify(objectsImporter, never()).clearCaches();
+    }
+
+    @Test
+    public void failedImportIsRetriedUntilMaxAttempts() throws Exception {
+        ImportRequest firstAttempt = new ImportRequest(1, "PRJEB31129", 1);
+        ImportRequest lastAttempt = new ImportRequest(1, "PRJEB31129", 3);
+        doThrow(new RuntimeException("ENA unavailable")).when(objectsImporter).importAccession("PRJEB31129");
+
+        when(importRequestQueue.claim("worker", 1)).thenReturn(Collections.singletonList(firstAttempt));
+        importDaemon.processNext("worker");
+        verify(importRequestQueue).fail(eq(firstAttempt), anyLong(), anyString(), eq(true));
+
+        when(importRequestQueue.claim("worker", 1)).thenReturn(Collections.singletonList(lastAttempt));
+        importDaemon.processNext("worker");
+        verify(importRequestQueue).fail(eq(lastAttempt), anyLong(), anyString(), eq(false));
+    }
+
+    @Test
+    public void importDuringOutageIsDeferred() throws Exception {
+        ImportRequest lastAttempt = new ImportRequest(1, "PRJEB31129", 3);
+        doThrow(new RuntimeException("Could not import", new CircuitOpenException("ENA unavailable")))
+                .when(objectsImporter).importAccession("PRJEB31129");
+
+        when(importRequestQueue.claim("worker", 1)).thenReturn(Collections.singletonList(lastAttempt));
+        importDaemon.processNext("worker");
+        verify(importRequestQueue).defer(eq(lastAttempt), anyLong(), anyString());
+        verify(importRequestQueue, never()).fail(any(ImportRequest.class), anyLong(), anyString(), anyBoolean());
+    }
+
+    @Test
+    public void pendingRequestsAreReportedAsQueued() throws Exception {
+        ImportRequest request = new ImportRequest(1, "PRJEB31129", 1);
+        when(importRequestQueue.claim("worker", 1)).thenReturn(Collections.singletonList(request));
+        when(importRequestQueue.countPending()).thenReturn(4L);
+        importDaemon.processNext("worker");
+        assertEquals(5, importProgress.getQueued());
+
+        when(importRequestQueue.claim("worker", 1)).thenReturn(Collections.emptyList());
+        importDaemon.processNext("worker");
+        assertEquals(0, importProgress.getQueued());
+    }
+
+    @Test
+    public void staleRequestsAreRequeuedOncePerInterval() {
+        importDaemon.requeueStaleIfDue();
+        importDaemon.requeueStaleIfDue();
+        verify(importRequestQueue, times(1)).requeueStale(Duration.ofHours(6));
+    }
+
+    @Test
+    public void stopWaitsForTheWorkers() throws Exception {
+        when(importRequestQueue.claim(anyString(), eq(1))).thenReturn(Collections.emptyList());
+        Thread daemonThread = new Thread(() -> {
+            try {
+                importDaemon.run(Collections.emptyList());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        daemonThread.start();
+        verify(importRequestQueue, timeout(10000).atLeastOnce()).claim(anyString(), eq(1));
+        importDaemon.stop();
+        daemonThread.join(10000);
+        assertFalse(daemonThread.isAlive());
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.daemon;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The queue relies on Postgres features H2 does not have, like SKIP LOCKED and UPDATE ... RETURNING, so it is tested
+ * against an embedded Postgres server.
+ */
+public class ImportRequestQueueTest {
+
+    private static final Duration STALE_AFTER = Duration.ofHours(6);
+
+    private static EmbeddedPostgres postgres;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private ImportRequestQueue importRequestQueue;
+
+    @BeforeClass
+    public static void startPostgres() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+    }
+
+    @AfterClass
+    public static void stopPostgres() throws Exception {
+        postgres.close();
+    }
+
+    @Before
+    public void setUp() {
+        importRequestQueue = new ImportRequestQueue(jdbcTemplate);
+        importRequestQueue.initialize(STALE_AFTER);
+        jdbcTemplate.update("TRUNCATE import_request RESTART IDENTITY");
+    }
+
+    @Test
+    public void pendingRequestsAreClaimedOnceInOrder() {
+        importRequestQueue.enqueue(Arrays.asList("PRJEB1", "PRJEB2", "PRJEB3"));
+        assertEquals(3, importRequestQueue.countPending());
+
+        List<ImportRequest> firstClaim = importRequestQueue.claim("worker1", 2);
+        assertEquals(Arrays.asList("PRJEB1", "PRJEB2"), getAccessions(firstClaim));
+        assertEquals(1, importRequestQueue.countPending());
+        assertEquals(1, firstClaim.get(0).getAttempts());
+        assertEquals(Arrays.asList("PRJEB3"), getAccessions(importRequestQueue.claim("worker2", 2)));
+        assertTrue(importRequestQueue.claim("worker1", 2).isEmpty());
+
+        assertEquals("IN_PROGRESS", getStatus(firstClaim.get(0)));
+        assertEquals("worker1", jdbcTemplate.queryForObject("SELECT worker FROM import_request WHERE id = ?",
+                                                            String.class, firstClaim.get(0).getId()));
+    }
+
+    @Test
+    public void requestsLockedByAnotherClaimAreSkipped() throws Exception {
+        importRequestQueue.enqueue(Arrays.asList("PRJEB1", "PRJEB2"));
+
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id FROM import_request WHERE accession = 'PRJEB1' FOR UPDATE")) {
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    assertTrue(resultSet.next());
+                }
+                assertEquals(Arrays.asList("PRJEB2"), getAccessions(importRequestQueue.claim("worker1", 2)));
+            } finally {
+                connection.rollback();
+            }
+        }
+        assertEquals(Arrays.asList("PRJEB1"), getAccessions(importRequestQueue.claim("worker1", 2)));
+    }
+
+    @Test
+    public void completedRequestIsDone() {
+        importRequestQueue.enqueue(Arrays.asList("PRJEB1"));
+        ImportRequest request = importRequestQueue.claim("worker1", 1).get(0);
+
+        importRequestQueue.complete(request, 1234);
+        assertEquals("DONE", getStatus(request));
+        assertEquals(1234L, jdbcTemplate.queryForObject("SELECT duration_ms FROM import_request WHERE id = ?",
+                                                        Long.class, request.getId()).longValue());
+        assertTrue(importRequestQueue.claim("worker1", 1).isEmpty());
+    }
+
+    @Test
+    public void failedRequestIsClaimedAgainUntilItFailsForGood() {
+        importRequestQueue.enqueue(Arrays.asList("PRJEB1"));
+        ImportRequest firstAttempt = importRequestQueue.claim("worker1", 1).get(0);
+
+        importRequestQueue.fail(firstAttempt, 10, "ENA unavailable", true);
+        assertEquals("PENDING", getStatus(firstAttempt));
+        ImportRequest secondAttempt = importRequestQueue.claim("worker1", 1).get(0);
+        assertEquals(firstAttempt.getId(), secondAttempt.getId());
+        assertEquals(2, secondAttempt.getAttempts());
+
+        importRequestQueue.fail(secondAttempt, 10, "ENA unavailable", false);
+        assertEquals("FAILED", getStatus(secondAttempt));
+        assertTrue(importRequestQueue.claim("worker1", 1).isEmpty());
+    }
+
+    @Test
+    public void deferredRequestDoesNotUseUpAnAttempt() {
+        importRequestQueue.enqueue(Arrays.asList("PRJEB1"));
+        ImportRequest request = importRequestQueue.claim("worker1", 1).get(0);
+
+        importRequestQueue.defer(request, 10, "Circuit open");
+        assertEquals("PENDING", getStatus(request));
+        assertEquals(1, importRequestQueue.claim("worker1", 1).get(0).getAttempts());
+    }
+
+    @Test
+    public void staleRequestsAreRequeuedOnInitialization() {
+        importRequestQueue.enqueue(Arrays.asList("PRJEB1", "PRJEB2"));
+        List<ImportRequest> requests = importRequestQueue.claim("worker1", 2);
+        jdbcTemplate.update("UPDATE import_request SET started_at = CURRENT_TIMESTAMP - INTERVAL '7 hours' " +
+                                    "WHERE id = ?", requests.get(0).getId());
+
+        importRequestQueue.initialize(STALE_AFTER);
+        assertEquals("PENDING", getStatus(requests.get(0)));
+        assertEquals("IN_PROGRESS", getStatus(requests.get(1)));
+        assertEquals(Arrays.asList("PRJEB1"), getAccessions(importRequestQueue.claim("worker2", 2)));
+    }
+
+    private static List<String> getAccessions(List<ImportRequest> requests) {
+        return requests.stream().map(ImportRequest::getAccession).collect(Collectors.toList());
+    }
+
+    private static String getStatus(ImportRequest request) {
+        return jdbcTemplate.queryForObject("SELECT status FROM import_request WHERE id = ?", String.class,
+                                           request.getId());
+    }
+
+}
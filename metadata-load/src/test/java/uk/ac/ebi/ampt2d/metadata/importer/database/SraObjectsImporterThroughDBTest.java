@@ -83,6 +83,7 @@ public class SraObjectsImporterThroughDBTest {
         referenceSequenceRepository.deleteAll();
         sampleRepository.deleteAll();
         taxonomyRepository.deleteAll();
+        sraObjectImporter.clearCaches();
     }
 
     @Test
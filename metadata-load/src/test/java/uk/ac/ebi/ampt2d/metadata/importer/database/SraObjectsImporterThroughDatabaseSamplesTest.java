@@ -0,0 +1,126 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.database;
+
+import org.hamcrest.CustomTypeSafeMatcher;
+import org.hamcrest.Matcher;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.metadata.importer.converter.SampleConverter;
+import uk.ac.ebi.ampt2d.metadata.importer.xml.SraSampleXmlParser;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Sample;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Taxonomy;
+import uk.ac.ebi.ampt2d.metadata.persistence.events.TaxonomyEventHandler;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.SampleRepository;
+import uk.ac.ebi.ena.sra.xml.AnalysisType;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SraObjectsImporterThroughDatabaseSamplesTest {
+
+    private static final String SAMPLE_DOCUMENT_DB_XML = "sample/SampleDocumentDB.xml";
+
+    private SraXmlRetrieverThroughDatabase sraXmlRetriever;
+
+    private SampleRepository sampleRepository;
+
+    private TaxonomyEventHandler taxonomyEventHandler;
+
+    private SraObjectsImporterThroughDatabase sraObjectImporter;
+
+    private String sampleXml;
+
+    @Before
+    public void setUp() throws Exception {
+        sraXmlRetriever = mock(SraXmlRetrieverThroughDatabase.class);
+        sampleRepository = mock(SampleRepository.class);
+        taxonomyEventHandler = mock(TaxonomyEventHandler.class);
+        sraObjectImporter = new SraObjectsImporterThroughDatabase(
+                sraXmlRetriever, null, null, null, null, null, new SraSampleXmlParser(), null, null, null,
+                new SampleConverter(), null, null, null, null, null, null, null, sampleRepository, null,
+                taxonomyEventHandler);
+        sraObjectImporter.setSampleChunkSize(100);
+        sraObjectImporter.setSampleConversionPool(new ForkJoinPool(4));
+
+        sampleXml = new String(Files.readAllBytes(
+                Paths.get(getClass().getClassLoader().getResource(SAMPLE_DOCUMENT_DB_XML).toURI())));
+        when(sampleRepository.findOrSave(anyListOf(Sample.class))).then(invocation -> invocation.getArguments()[0]);
+        when(taxonomyEventHandler.importTaxonomyTree(any(Taxonomy.class))).then(invocation -> {
+            Taxonomy taxonomy = (Taxonomy) invocation.getArguments()[0];
+            taxonomy.setName("Taxon " + taxonomy.getTaxonomyId());
+            return taxonomy;
+        });
+    }
+
+    @Test
+    public void samplesAreConvertedInChunksAndTaxaImportedOncePerChunk() throws Exception {
+        int samples = 250;
+        doAnswer(invocation -> {
+            SraXmlRetrieverThroughDatabase.SampleXmlHandler handler =
+                    (SraXmlRetrieverThroughDatabase.SampleXmlHandler) invocation.getArguments()[1];
+            for (int i = 0; i < samples; i++) {
+                String sampleId = String.format("ERS%06d", i);
+                String taxonomyId = i % 2 == 0 ? "580239" : "4932";
+                handler.handle(sampleId, "SAMEA" + i, sampleXml.replace("ERS000002", sampleId)
+                                                               .replace("580239", taxonomyId));
+            }
+            return null;
+        }).when(sraXmlRetriever).streamSampleXmls(eq("ERZ000001"), any());
+
+        AnalysisType analysisType = AnalysisType.Factory.newInstance();
+        analysisType.setAccession("ERZ000001");
+        List<Sample> importedSamples = sraObjectImporter.importSamples(analysisType);
+
+        assertEquals(samples, importedSamples.size());
+        for (int i = 0; i < samples; i++) {
+            Sample sample = importedSamples.get(i);
+            assertEquals(String.format("ERS%06d", i), sample.getAccessionVersionId().getAccession());
+            assertEquals("SAMEA" + i, sample.getBioSampleAccession());
+            assertEquals(i % 2 == 0 ? 580239 : 4932, sample.getTaxonomies().get(0).getTaxonomyId());
+        }
+        verify(sampleRepository, times(3)).findOrSave(anyListOf(Sample.class));
+        // Two taxa in each of the three chunks
+        verify(taxonomyEventHandler, times(3)).importTaxonomyTree(argThat(taxonomyWithId(580239)));
+        verify(taxonomyEventHandler, times(3)).importTaxonomyTree(argThat(taxonomyWithId(4932)));
+    }
+
+    private static Matcher<Taxonomy> taxonomyWithId(long taxonomyId) {
+        return new CustomTypeSafeMatcher<Taxonomy>("taxonomy " + taxonomyId) {
+            @Override
+            protected boolean matchesSafely(Taxonomy taxonomy) {
+                return taxonomy.getTaxonomyId() == taxonomyId;
+            }
+        };
+    }
+
+}
@@ -29,8 +29,11 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(SpringRunner.class)
 @TestPropertySource(value = "classpath:application.properties", properties = {"import.source=DB"})
@@ -54,4 +57,49 @@ public class SraXmlRetrieverThroughDatabaseTest {
         assertEquals(expectedXmlString, xmlString);
     }
 
-}
\ No newline at end of file
+    @Test
+    @Category(OracleDbCategory.class)
+    public void streamSampleXmls() throws Exception {
+        List<String> sampleIds = new ArrayList<>();
+        sraRetriever.streamSampleXmls("ERZ015710", (sampleId, bioSampleAccession, sampleXml) -> {
+            assertTrue(sampleXml.contains(sampleId));
+            sampleIds.add(sampleId);
+        });
+        assertEquals(1092, sampleIds.size());
+        assertEquals("SRS000031", sampleIds.get(0));
+        assertEquals("SRS074380", sampleIds.get(1091));
+    }
+
+    @Test
+    @Category(OracleDbCategory.class)
+    public void streamAnalysisRecord() throws Exception {
+        List<String> records = new ArrayList<>();
+        boolean found = sraRetriever.streamAnalysisRecord("ERZ015710",
+                new SraXmlRetrieverThroughDatabase.AnalysisRecordHandler() {
+                    @Override
+                    public void analysis(String analysisXml) {
+                        assertTrue(analysisXml.contains("ERZ015710"));
+                        records.add("analysis");
+                    }
+
+                    @Override
+                    public void study(String studyAccession, String studyXml) {
+                        assertTrue(studyXml.contains(studyAccession));
+                        records.add("study");
+                    }
+
+                    @Override
+                    public void sample(String sampleId, String bioSampleAccession, String sampleXml) {
+                        assertTrue(sampleXml.contains(sampleId));
+                        records.add(sampleId);
+                    }
+                });
+        assertTrue(found);
+        assertEquals(2 + 1092, records.size());
+        assertEquals("analysis", records.get(0));
+        assertEquals("study", records.get(1));
+        assertEquals("SRS000031", records.get(2));
+        assertEquals("SRS074380", records.get(1093));
+    }
+
+}
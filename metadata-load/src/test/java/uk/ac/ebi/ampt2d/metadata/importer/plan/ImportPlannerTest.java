@@ -0,0 +1,110 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.importer.plan;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.metadata.importer.NotFoundAccessionCache;
+import uk.ac.ebi.ampt2d.metadata.importer.api.SraXmlRetrieverThroughApi;
+import uk.ac.ebi.ampt2d.metadata.importer.stub.EnaStubServer;
+import uk.ac.ebi.ampt2d.metadata.importer.stub.StubFixtures;
+import uk.ac.ebi.ampt2d.metadata.importer.xml.SraAnalysisXmlParser;
+import uk.ac.ebi.ampt2d.metadata.importer.xml.SraProjectXmlParser;
+import uk.ac.ebi.ampt2d.metadata.importer.xml.SraStudyXmlParser;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ImportPlannerTest {
+
+    private EnaStubServer server;
+
+    private String projectAccession;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EnaStubServer();
+        server.start();
+        StubFixtures stubFixtures = new StubFixtures();
+        projectAccession = stubFixtures.addProject(server, 1, 2, 1);
+        stubFixtures.addProject(server, 2, 2, 1);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void relatedAccessionsArePlannedOnce() throws Exception {
+        ImportPlan importPlan = planner(EnumSet.allOf(AccessionType.class)).plan(Arrays.asList(
+                projectAccession, "ERP900001", "ERZ90000101", "ERZ90000202", "PRJEB999999", "GCA_000001405.1"));
+
+        assertEquals(2, importPlan.getPlannedImports().size());
+        PlannedImport projectImport = importPlan.getPlannedImports().get(0);
+        assertEquals("ERP900001", projectImport.getStudyAccession());
+        assertEquals(projectAccession, projectImport.getProjectAccession());
+        assertTrue(projectImport.importsAllAnalyses());
+        assertEquals(Arrays.asList(projectAccession, "ERP900001", "ERZ90000101"), projectImport.getRootAccessions());
+        assertEquals(3, projectImport.getRetrievedXmls().size());
+
+        // Only the given analysis of the other study is imported
+        PlannedImport analysisImport = importPlan.getPlannedImports().get(1);
+        assertEquals("ERP900002", analysisImport.getStudyAccession());
+        assertNull(analysisImport.getProjectAccession());
+        assertFalse(analysisImport.importsAllAnalyses());
+        assertEquals(Collections.singleton("ERZ90000202"), analysisImport.getAnalysisAccessions());
+
+        assertEquals(Collections.singletonList("PRJEB999999"), importPlan.getNotFoundAccessions());
+        assertEquals(Collections.singletonList("GCA_000001405.1"), importPlan.getUnsupportedAccessions());
+        // Projects in a batch, then the missing one on its own; then the study, and the analyses in a batch
+        assertEquals(4, server.getRequests());
+    }
+
+    @Test
+    public void analysesAreNotRetrievedIfStudiesAreNotSupported() throws Exception {
+        ImportPlan importPlan = planner(EnumSet.of(AccessionType.ANALYSIS)).plan(Arrays.asList(
+                "ERZ90000101", "ERZ90000102", "ERP900001"));
+
+        assertEquals(2, importPlan.getPlannedImports().size());
+        for (PlannedImport plannedImport : importPlan.getPlannedImports()) {
+            assertNull(plannedImport.getStudyAccession());
+            assertEquals(1, plannedImport.getAnalysisAccessions().size());
+        }
+        assertEquals(Collections.singletonList("ERP900001"), importPlan.getUnsupportedAccessions());
+        assertEquals(0, server.getRequests());
+    }
+
+    private ImportPlanner planner(Set<AccessionType> supportedTypes) {
+        SraXmlRetrieverThroughApi sraXmlRetriever = new SraXmlRetrieverThroughApi(NotFoundAccessionCache.disabled(),
+                                                                                  server.getEnaApiUrl());
+        return new ImportPlanner(sraXmlRetriever, new SraProjectXmlParser(), new SraStudyXmlParser(),
+                                 new SraAnalysisXmlParser(), supportedTypes);
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.progress;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ImportProgressTest {
+
+    private ImportProgress importProgress;
+
+    @Before
+    public void setUp() {
+        importProgress = new ImportProgress();
+        importProgress.queued(3);
+    }
+
+    @Test
+    public void accessionsMoveFromQueuedToFinished() {
+        assertNull(importProgress.getEtaSeconds());
+
+        importProgress.start("PRJEB1");
+        assertEquals(2, importProgress.getQueued());
+        assertEquals(1, importProgress.getInFlight());
+        importProgress.objectImported();
+        importProgress.objectImported();
+        importProgress.finish(true);
+
+        importProgress.start("PRJEB2");
+        importProgress.finish(false);
+
+        importProgress.start("PRJEB3");
+        importProgress.defer();
+        assertEquals(1, importProgress.getDeferred());
+
+        assertEquals(1, importProgress.getQueued());
+        assertEquals(0, importProgress.getInFlight());
+        assertEquals(1, importProgress.getDone());
+        assertEquals(1, importProgress.getFailed());
+        assertEquals(2, importProgress.getObjects());
+        assertTrue(importProgress.getObjectsPerSecond() > 0);
+        assertTrue(importProgress.getEtaSeconds() >= 0);
+
+        importProgress.reset();
+        assertEquals(0, importProgress.getQueued());
+        assertEquals(0, importProgress.getObjects());
+        assertEquals(0L, importProgress.getEtaSeconds().longValue());
+    }
+
+    @Test
+    public void inFlightAccessionReportsItsStage() {
+        importProgress.start("PRJEB1");
+        importProgress.stage("importing samples of analysis ERZ1");
+
+        List<Map<String, Object>> slowest = importProgress.getSlowestInFlight();
+        assertEquals(1, slowest.size());
+        assertEquals("PRJEB1", slowest.get(0).get("accession"));
+        assertEquals("importing samples of analysis ERZ1", slowest.get(0).get("stage"));
+
+        importProgress.finish(true);
+        assertTrue(importProgress.getSlowestInFlight().isEmpty());
+    }
+
+    @Test
+    public void tasksInOtherThreadsReportTheStageOfTheirAccession() throws Exception {
+        importProgress.start("PRJEB1");
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(importProgress.inCurrentImport(() -> {
+                importProgress.stage("importing analysis ERZ1");
+                return null;
+            })).get();
+            executorService.submit(() -> importProgress.stage("importing analysis ERZ2")).get();
+        } finally {
+            executorService.shutdown();
+        }
+
+        List<Map<String, Object>> slowest = importProgress.getSlowestInFlight();
+        assertEquals(1, slowest.size());
+        assertEquals("importing analysis ERZ1", slowest.get(0).get("stage"));
+
+        importProgress.finish(true);
+        assertEquals(0, importProgress.getInFlight());
+    }
+
+    @Test
+    public void heapHighWaterMarkIsKeptUntilReset() {
+        assertEquals(0, importProgress.getHeapHighWaterMarkMegabytes());
+        importProgress.chunkImported("1000 samples");
+        long highWaterMark = importProgress.getHeapHighWaterMarkMegabytes();
+        assertTrue(highWaterMark > 0);
+        importProgress.chunkImported("1000 samples");
+        assertTrue(importProgress.getHeapHighWaterMarkMegabytes() >= highWaterMark);
+
+        importProgress.reset();
+        assertEquals(0, importProgress.getHeapHighWaterMarkMegabytes());
+    }
+
+}
@@ -0,0 +1,279 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embeddable HTTP server standing in for the ENA browser API, the ENA taxon view and the Entrez E-utilities (esearch
+ * and esummary), serving XML registered from fixtures. Every response can be delayed by a configurable latency
+ * distribution, and a configurable fraction of requests fails with a 500 or is throttled with a 429, so that imports
+ * can be measured and exercised under realistic conditions without reaching the real services.
+ */
+public class EnaStubServer {
+
+    private static final Pattern ENA_XML_PATH = Pattern.compile("/ena/browser/api/xml/([^/?]+)");
+
+    private static final Pattern ENA_XML_SET = Pattern.compile("<([A-Z]+_SET)>(.*)</\\1>", Pattern.DOTALL);
+
+    private static final Pattern ENA_TAXON_PATH = Pattern.compile("/ena/data/view/Taxon:(\\d+)");
+
+    private static final String ENTREZ_PATH = "/entrez/eutils/";
+
+    /**
+     * Prefix of the names of the threads handling requests, so that they can be told apart from importer threads
+     */
+    public static final String THREAD_NAME_PREFIX = "ena-stub-";
+
+    private static final String TAXON_NOT_FOUND = "Taxon: type is either not supported or entry is not found.";
+
+    private final Map<String, String> enaXmls = new ConcurrentHashMap<>();
+
+    private final Map<Long, String> taxonXmls = new ConcurrentHashMap<>();
+
+    // Entrez database and accession to Entrez ID, and Entrez database and ID to summary XML
+    private final Map<String, String> entrezIds = new ConcurrentHashMap<>();
+
+    private final Map<String, String> entrezSummaries = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private final AtomicLong throttled = new AtomicLong();
+
+    private volatile LongSupplier latencyMillis = () -> 0;
+
+    private volatile double errorRate;
+
+    private volatile double throttleRate;
+
+    private HttpServer server;
+
+    private ExecutorService executorService;
+
+    /**
+     * Starts the server on a free local port.
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        // Requests wait for their latency while being handled, so each of them needs its own thread
+        AtomicLong threads = new AtomicLong();
+        executorService = Executors.newCachedThreadPool(
+                runnable -> new Thread(runnable, THREAD_NAME_PREFIX + threads.incrementAndGet()));
+        server.setExecutor(executorService);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    public String getEnaApiUrl() {
+        return getBaseUrl() + "/ena/browser/api";
+    }
+
+    public String getEnaTaxonUrl() {
+        return getBaseUrl() + "/ena/data/view";
+    }
+
+    public String getEntrezApiUrl() {
+        return getBaseUrl() + "/entrez/eutils";
+    }
+
+    private String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public void addEnaXml(String accession, String xml) {
+        enaXmls.put(accession, xml);
+    }
+
+    public void addTaxonXml(long taxonomyId, String xml) {
+        taxonXmls.put(taxonomyId, xml);
+    }
+
+    public void addEntrezSummary(String entrezDatabase, String accession, String entrezId, String summaryXml) {
+        entrezIds.put(entrezDatabase + ":" + accession, entrezId);
+        entrezSummaries.put(entrezDatabase + ":" + entrezId, summaryXml);
+    }
+
+    public void setLatency(LongSupplier latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * @param errorRate fraction of requests answered with 500 Internal Server Error
+     * @param throttleRate fraction of requests answered with 429 Too Many Requests
+     */
+    public void setFaults(double errorRate, double throttleRate) {
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    public void resetStatistics() {
+        requests.set(0);
+        errors.set(0);
+        throttled.set(0);
+    }
+
+    public static LongSupplier fixedLatency(long millis) {
+        return () -> millis;
+    }
+
+    /**
+     * Log-normal latency, which describes the long tail of remote service response times better than a uniform or
+     * normal distribution: most requests take about the median, and a few take many times longer.
+     */
+    public static LongSupplier logNormalLatency(long medianMillis, double sigma) {
+        return () -> Math.round(medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requests.incrementAndGet();
+            Thread.sleep(latencyMillis.getAsLong());
+            double fault = ThreadLocalRandom.current().nextDouble();
+            if (fault < errorRate) {
+                errors.incrementAndGet();
+                respond(exchange, 500, "Internal Server Error");
+            } else if (fault < errorRate + throttleRate) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                respond(exchange, 429, "Too Many Requests");
+            } else {
+                serve(exchange);
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "Service Unavailable");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Matcher enaXml = ENA_XML_PATH.matcher(path);
+        Matcher enaTaxon = ENA_TAXON_PATH.matcher(path);
+        if (enaXml.matches()) {
+            String xml = getEnaXml(enaXml.group(1).split(","));
+            if (xml == null) {
+                respond(exchange, 404, "Not Found");
+            } else {
+                respond(exchange, 200, xml);
+            }
+        } else if (enaTaxon.lookingAt()) {
+            // As the real taxon view, an unknown taxon is reported in the body of a successful response
+            respond(exchange, 200, taxonXmls.getOrDefault(Long.parseLong(enaTaxon.group(1)), TAXON_NOT_FOUND));
+        } else if (path.equals(ENTREZ_PATH + "esearch.fcgi")) {
+            Map<String, String> query = parseQuery(exchange);
+            String id = entrezIds.get(query.get("db") + ":" + query.get("term"));
+            respond(exchange, 200, "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n<eSearchResult>" +
+                    (id == null ? "<Count>0</Count><IdList></IdList>" :
+                            "<Count>1</Count><IdList>\n<Id>" + id + "</Id>\n</IdList>") +
+                    "</eSearchResult>\n");
+        } else if (path.equals(ENTREZ_PATH + "esummary.fcgi")) {
+            Map<String, String> query = parseQuery(exchange);
+            String summary = entrezSummaries.get(query.get("db") + ":" + query.get("id"));
+            if (summary == null) {
+                respond(exchange, 400, "Invalid uid");
+            } else {
+                respond(exchange, 200, summary);
+            }
+        } else {
+            respond(exchange, 404, "Not Found");
+        }
+    }
+
+    /**
+     * @return as the real API, the objects found among the given accessions in a single set, or null if none is found
+     */
+    private String getEnaXml(String[] accessions) {
+        if (accessions.length == 1) {
+            return enaXmls.get(accessions[0]);
+        }
+        String setName = null;
+        StringBuilder objects = new StringBuilder();
+        for (String accession : accessions) {
+            String xml = enaXmls.get(accession);
+            Matcher set = xml == null ? null : ENA_XML_SET.matcher(xml);
+            if (set != null && set.find()) {
+                setName = set.group(1);
+                objects.append(set.group(2));
+            }
+        }
+        return setName == null ? null : "<" + setName + ">" + objects + "</" + setName + ">\n";
+    }
+
+    private static Map<String, String> parseQuery(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            String[] keyValue = parameter.split("=", 2);
+            parameters.put(URLDecoder.decode(keyValue[0], "UTF-8"),
+                           keyValue.length > 1 ? URLDecoder.decode(keyValue[1], "UTF-8") : "");
+        }
+        return parameters;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", status == 200 ? "application/xml" : "text/plain");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+}
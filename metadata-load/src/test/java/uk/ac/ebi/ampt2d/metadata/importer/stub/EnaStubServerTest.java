@@ -0,0 +1,142 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.stub;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import uk.ac.ebi.ampt2d.metadata.importer.NotFoundAccessionCache;
+import uk.ac.ebi.ampt2d.metadata.importer.api.ReferenceSequenceXmlRetrieverThroughEntrezApi;
+import uk.ac.ebi.ampt2d.metadata.importer.api.SraXmlRetrieverThroughApi;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Taxonomy;
+import uk.ac.ebi.ampt2d.metadata.persistence.events.TaxonomyEventHandler;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.TaxonomyRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EnaStubServerTest {
+
+    private EnaStubServer server;
+
+    private SraXmlRetrieverThroughApi sraXmlRetriever;
+
+    private ReferenceSequenceXmlRetrieverThroughEntrezApi entrezXmlRetriever;
+
+    private String projectAccession;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EnaStubServer();
+        server.start();
+        StubFixtures stubFixtures = new StubFixtures();
+        stubFixtures.addSharedObjects(server);
+        projectAccession = stubFixtures.addProject(server, 1, 2, 3);
+        sraXmlRetriever = new SraXmlRetrieverThroughApi(NotFoundAccessionCache.disabled(), server.getEnaApiUrl());
+        entrezXmlRetriever = new ReferenceSequenceXmlRetrieverThroughEntrezApi(null, server.getEntrezApiUrl());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void servesSyntheticProject() {
+        assertEquals("PRJEB900001", projectAccession);
+        String projectXml = sraXmlRetriever.getXml(projectAccession);
+        assertTrue(projectXml.contains("<PRIMARY_ID>PRJEB900001</PRIMARY_ID>"));
+        assertTrue(projectXml.contains("<SECONDARY_ID>ERP900001</SECONDARY_ID>"));
+        assertTrue(projectXml.contains("<ID>ERZ90000101-ERZ90000102</ID>"));
+        assertTrue(sraXmlRetriever.getXml("ERZ90000102").contains("<SAMPLE_REF accession=\"ERS900001003\"/>"));
+        assertTrue(sraXmlRetriever.getXml("ERS900001003").contains("accession=\"ERS900001003\""));
+        assertNull(sraXmlRetriever.getXml("ERZ90000103"));
+        assertEquals(4, server.getRequests());
+    }
+
+    @Test
+    public void servesBatches() {
+        Map<String, String> sampleXmls = sraXmlRetriever.getXmls(
+                Arrays.asList("ERS900001001", "ERS900001002", "ERS900001003", "ERS900001009"));
+        assertEquals(Arrays.asList("ERS900001001", "ERS900001002", "ERS900001003"),
+                     new ArrayList<>(sampleXmls.keySet()));
+        for (Map.Entry<String, String> sampleXml : sampleXmls.entrySet()) {
+            assertTrue(sampleXml.getValue().startsWith("<SAMPLE_SET><SAMPLE"));
+            assertTrue(sampleXml.getValue().contains("accession=\"" + sampleXml.getKey() + "\""));
+        }
+        // One request for the batch, and one to confirm that the missing sample does not exist
+        assertEquals(2, server.getRequests());
+    }
+
+    @Test
+    public void servesEntrezSummary() {
+        String summaryXml = entrezXmlRetriever.getXml("GCA_000002305.1", "assembly");
+        assertTrue(summaryXml.contains("<AssemblyName>EquCab2.0</AssemblyName>"));
+    }
+
+    @Test
+    public void servesTaxonomyTree() throws Exception {
+        TaxonomyRepository taxonomyRepository = mock(TaxonomyRepository.class);
+        when(taxonomyRepository.save(any(Taxonomy.class))).then(invocation -> invocation.getArguments()[0]);
+        TaxonomyEventHandler taxonomyEventHandler = new TaxonomyEventHandler(taxonomyRepository,
+                                                                             server.getEnaTaxonUrl());
+
+        Taxonomy taxonomy = taxonomyEventHandler.importTaxonomyTree(new Taxonomy(10090));
+        assertEquals("Mus musculus", taxonomy.getName());
+        assertEquals("Mus", taxonomy.getTaxonomyGenus().getName());
+        assertEquals("Rodentia", taxonomy.getTaxonomyOrder().getName());
+        assertEquals("Mammalia", taxonomy.getTaxonomyClass().getName());
+    }
+
+    @Test(expected = HttpServerErrorException.class)
+    public void injectsErrors() {
+        server.setFaults(1, 0);
+        sraXmlRetriever.getXml(projectAccession);
+    }
+
+    @Test
+    public void injectsThrottling() {
+        server.setFaults(0, 1);
+        try {
+            sraXmlRetriever.getXml(projectAccession);
+        } catch (HttpClientErrorException exception) {
+            assertEquals(429, exception.getRawStatusCode());
+        }
+        assertEquals(1, server.getThrottled());
+    }
+
+    @Test
+    public void delaysResponses() {
+        server.setLatency(EnaStubServer.fixedLatency(200));
+        long start = System.currentTimeMillis();
+        sraXmlRetriever.getXml(projectAccession);
+        assertTrue(System.currentTimeMillis() - start >= 200);
+    }
+
+}
@@ -0,0 +1,291 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.stub;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.ampt2d.metadata.importer.MetadataImporterMainApplication;
+import uk.ac.ebi.ampt2d.metadata.importer.ObjectsImporter;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.SampleRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the cost of the full import flows, {@link ObjectsImporter#importAnalysis(String)} and
+ * {@link ObjectsImporter#importProject(String)}, of synthetic projects made from recorded documents and served by an
+ * {@link EnaStubServer}, into the embedded database. The stub answers without latency by default, so that the
+ * measurements are those of the importer rather than of the network. For each flow, the benchmark reports:
+ * <ul>
+ * <li>analysesPerSecond and samplesPerSecond: analyses and new samples imported per second;</li>
+ * <li>sqlStatementsPerAnalysis: JDBC statements prepared by Hibernate per analysis;</li>
+ * <li>allocatedKilobytesPerAnalysis: heap allocated by the importer threads per analysis, not counting the stub.</li>
+ * </ul>
+ * The results are logged and written to target/benchmark/import-benchmark.properties. If a baseline exists, each
+ * result is compared to it, and the benchmark fails if any of them is worse by more than the tolerance. Run with
+ * -Dimport.benchmark.save-baseline=true to save the results as the new baseline, after a change which is known to be
+ * an improvement or on a new machine, as throughput and allocation depend on it.
+ *
+ * Run with: mvn test -PTravis,LoadTest -Dtest=ImportBenchmarkTest, adding any of the following to change the
+ * defaults: -Dimport.benchmark.projects=20 -Dimport.benchmark.analyses=5 -Dimport.benchmark.samples=20
+ * -Dimport.benchmark.latency-ms=0 -Dimport.benchmark.tolerance=0.2
+ * -Dimport.benchmark.baseline=src/test/benchmark/import-benchmark-baseline.properties
+ */
+@Category(LoadTestCategory.class)
+@RunWith(SpringRunner.class)
+@TestPropertySource(value = "classpath:application.properties", properties = {
+        "import.source=API", "ena.api.delay=100", "entrez.api.delay=100", "import.not-found-cache.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@ContextConfiguration(classes = {MetadataImporterMainApplication.class})
+@DirtiesContext
+public class ImportBenchmarkTest {
+
+    private static final Logger LOGGER = Logger.getLogger(ImportBenchmarkTest.class.getName());
+
+    private static final Path RESULTS = Paths.get("target", "benchmark", "import-benchmark.properties");
+
+    private static final String DEFAULT_BASELINE = "src/test/benchmark/import-benchmark-baseline.properties";
+
+    // Metrics compared to the baseline; the others only describe the run
+    private static final List<String> HIGHER_IS_BETTER = Arrays.asList("analysesPerSecond", "samplesPerSecond");
+
+    private static final List<String> LOWER_IS_BETTER = Arrays.asList("sqlStatementsPerAnalysis",
+                                                                      "allocatedKilobytesPerAnalysis");
+
+    private static EnaStubServer server;
+
+    private static StubFixtures stubFixtures;
+
+    @Autowired
+    private ObjectsImporter objectsImporter;
+
+    @Autowired
+    private SampleRepository sampleRepository;
+
+    @Autowired
+    @Qualifier("metadataEntityManagerFactory")
+    private EntityManagerFactory entityManagerFactory;
+
+    private int nextProject;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = new EnaStubServer();
+        server.start();
+        stubFixtures = new StubFixtures();
+        stubFixtures.addSharedObjects(server);
+        // Read by the application context, which is created after this method runs
+        System.setProperty("ena.api.url", server.getEnaApiUrl());
+        System.setProperty("ena.taxon.url", server.getEnaTaxonUrl());
+        System.setProperty("entrez.api.url", server.getEntrezApiUrl());
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.stop();
+        System.clearProperty("ena.api.url");
+        System.clearProperty("ena.taxon.url");
+        System.clearProperty("entrez.api.url");
+    }
+
+    @Test
+    public void importFlows() throws Exception {
+        int projects = Integer.getInteger("import.benchmark.projects", 20);
+        int analyses = Integer.getInteger("import.benchmark.analyses", 5);
+        int samples = Integer.getInteger("import.benchmark.samples", 20);
+        server.setLatency(EnaStubServer.fixedLatency(Long.getLong("import.benchmark.latency-ms", 0)));
+
+        // Imports the shared taxonomies and reference sequence, and warms up the importer
+        objectsImporter.importProject(stubFixtures.addProject(server, nextProject++, analyses, samples));
+        objectsImporter.importAnalysis(addProjectsForAnalyses(1, samples).get(0));
+
+        Properties results = new Properties();
+        List<String> analysisAccessions = addProjectsForAnalyses(projects, samples);
+        measure(results, "importAnalysis", analysisAccessions.size(), () -> {
+            for (String analysisAccession : analysisAccessions) {
+                objectsImporter.importAnalysis(analysisAccession);
+            }
+        });
+        List<String> projectAccessions = new ArrayList<>();
+        for (int i = 0; i < projects; i++) {
+            projectAccessions.add(stubFixtures.addProject(server, nextProject++, analyses, samples));
+        }
+        measure(results, "importProject", projects * analyses, () -> {
+            for (String projectAccession : projectAccessions) {
+                objectsImporter.importProject(projectAccession);
+            }
+        });
+
+        Files.createDirectories(RESULTS.getParent());
+        try (OutputStream outputStream = Files.newOutputStream(RESULTS)) {
+            results.store(outputStream, "Import benchmark results");
+        }
+        Path baseline = Paths.get(System.getProperty("import.benchmark.baseline", DEFAULT_BASELINE));
+        if (Boolean.getBoolean("import.benchmark.save-baseline")) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(RESULTS, baseline, StandardCopyOption.REPLACE_EXISTING);
+            LOGGER.info("Saved the results as the baseline in " + baseline);
+        } else if (Files.exists(baseline)) {
+            List<String> regressions = compare(results, baseline,
+                    Double.parseDouble(System.getProperty("import.benchmark.tolerance", "0.2")));
+            assertTrue("Worse than the baseline: " + regressions, regressions.isEmpty());
+        } else {
+            LOGGER.info("No baseline in " + baseline + ", run with -Dimport.benchmark.save-baseline=true to save one");
+        }
+    }
+
+    /**
+     * Registers synthetic projects of one analysis each, so that every analysis has its own new samples.
+     *
+     * @return the accessions of the analyses
+     */
+    private List<String> addProjectsForAnalyses(int projects, int samples) {
+        List<String> analysisAccessions = new ArrayList<>();
+        for (int i = 0; i < projects; i++) {
+            int project = nextProject++;
+            stubFixtures.addProject(server, project, 1, samples);
+            analysisAccessions.add(StubFixtures.getAnalysisAccession(project, 1));
+        }
+        return analysisAccessions;
+    }
+
+    private void measure(Properties results, String flow, int analyses, ImportFlow importFlow) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long samplesBefore = sampleRepository.count();
+        statistics.clear();
+        Map<Long, Long> allocatedBefore = getAllocatedBytesByThread();
+        long start = System.nanoTime();
+
+        importFlow.run();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = getAllocatedBytesSince(allocatedBefore);
+        long statements = statistics.getPrepareStatementCount();
+        long samples = sampleRepository.count() - samplesBefore;
+
+        put(results, flow, "analyses", analyses);
+        put(results, flow, "samples", samples);
+        put(results, flow, "seconds", seconds);
+        put(results, flow, "analysesPerSecond", analyses / seconds);
+        put(results, flow, "samplesPerSecond", samples / seconds);
+        put(results, flow, "sqlStatementsPerAnalysis", (double) statements / analyses);
+        put(results, flow, "allocatedKilobytesPerAnalysis", allocated / 1024.0 / analyses);
+        LOGGER.info(String.format(Locale.ROOT, "Benchmark %s: %d analyses, %d samples in %.1f s, %.1f analyses/s, " +
+                                          "%.1f samples/s, %.1f SQL statements and %.0f kB allocated per analysis",
+                                  flow, analyses, samples, seconds, analyses / seconds, samples / seconds,
+                                  (double) statements / analyses, allocated / 1024.0 / analyses));
+    }
+
+    private static void put(Properties results, String flow, String metric, double value) {
+        results.setProperty(flow + "." + metric, String.format(Locale.ROOT, "%.2f", value));
+    }
+
+    /**
+     * @return the metrics which are worse than in the baseline by more than the tolerance, as a fraction
+     */
+    private static List<String> compare(Properties results, Path baselinePath, double tolerance) throws IOException {
+        Properties baseline = new Properties();
+        try (InputStream inputStream = Files.newInputStream(baselinePath)) {
+            baseline.load(inputStream);
+        }
+        List<String> regressions = new ArrayList<>();
+        for (String key : new TreeSet<>(results.stringPropertyNames())) {
+            String metric = key.substring(key.indexOf('.') + 1);
+            boolean lowerIsBetter = LOWER_IS_BETTER.contains(metric);
+            if (!baseline.containsKey(key) || !(lowerIsBetter || HIGHER_IS_BETTER.contains(metric))) {
+                continue;
+            }
+            double expected = Double.parseDouble(baseline.getProperty(key));
+            double actual = Double.parseDouble(results.getProperty(key));
+            double change = expected == 0 ? 0 : (actual - expected) / expected;
+            LOGGER.info(String.format(Locale.ROOT, "%s: %.2f (baseline %.2f, %+.1f%%)", key, actual, expected,
+                                      change * 100));
+            if ((lowerIsBetter ? change : -change) > tolerance) {
+                regressions.add(key);
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * @return bytes allocated so far by each live thread, except those of the stub server
+     */
+    private static Map<Long, Long> getAllocatedBytesByThread() {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Map<Long, Long> allocatedBytes = new HashMap<>();
+        for (ThreadInfo threadInfo : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds())) {
+            if (threadInfo != null && !threadInfo.getThreadName().startsWith(EnaStubServer.THREAD_NAME_PREFIX)) {
+                long allocated = threadMXBean.getThreadAllocatedBytes(threadInfo.getThreadId());
+                if (allocated >= 0) {
+                    allocatedBytes.put(threadInfo.getThreadId(), allocated);
+                }
+            }
+        }
+        return allocatedBytes;
+    }
+
+    /**
+     * Threads which have finished meanwhile are not counted, but the importer threads belong to long-lived pools.
+     */
+    private static long getAllocatedBytesSince(Map<Long, Long> allocatedBefore) {
+        long allocated = 0;
+        for (Map.Entry<Long, Long> thread : getAllocatedBytesByThread().entrySet()) {
+            allocated += thread.getValue() - allocatedBefore.getOrDefault(thread.getKey(), 0L);
+        }
+        return allocated;
+    }
+
+    private interface ImportFlow {
+
+        void run() throws Exception;
+
+    }
+
+}
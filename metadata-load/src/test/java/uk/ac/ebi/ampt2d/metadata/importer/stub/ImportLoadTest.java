@@ -0,0 +1,162 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.stub;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.ampt2d.metadata.importer.MetadataImporterMainApplication;
+import uk.ac.ebi.ampt2d.metadata.importer.ObjectsImporter;
+import uk.ac.ebi.ampt2d.metadata.importer.progress.ImportProgress;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the import throughput against an {@link EnaStubServer} at increasing numbers of concurrently imported
+ * projects, each worker importing one project at a time as the import daemon does. Every level imports its own
+ * synthetic projects into the same database, after a warm-up project which imports the shared taxonomies and
+ * reference sequence. The results are logged and written to target/load-test/import-throughput.csv.
+ *
+ * Run with: mvn test -PTravis,LoadTest, adding any of the following to change the defaults:
+ * -Dimport.load-test.concurrency=1,2,4,8 -Dimport.load-test.projects=16 -Dimport.load-test.analyses=2
+ * -Dimport.load-test.samples=5 -Dimport.load-test.latency-ms=50 -Dimport.load-test.latency-sigma=0.5
+ * -Dimport.load-test.error-rate=0.01 -Dimport.load-test.throttle-rate=0.01
+ */
+@Category(LoadTestCategory.class)
+@RunWith(SpringRunner.class)
+@TestPropertySource(value = "classpath:application.properties", properties = {
+        "import.source=API", "ena.api.delay=100", "entrez.api.delay=100", "import.not-found-cache.enabled=false"})
+@ContextConfiguration(classes = {MetadataImporterMainApplication.class})
+public class ImportLoadTest {
+
+    private static final Logger LOGGER = Logger.getLogger(ImportLoadTest.class.getName());
+
+    private static final Path RESULTS = Paths.get("target", "load-test", "import-throughput.csv");
+
+    private static EnaStubServer server;
+
+    private static StubFixtures stubFixtures;
+
+    @Autowired
+    private ObjectsImporter objectsImporter;
+
+    @Autowired
+    private ImportProgress importProgress;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = new EnaStubServer();
+        server.start();
+        stubFixtures = new StubFixtures();
+        stubFixtures.addSharedObjects(server);
+        // Read by the application context, which is created after this method runs
+        System.setProperty("ena.api.url", server.getEnaApiUrl());
+        System.setProperty("ena.taxon.url", server.getEnaTaxonUrl());
+        System.setProperty("entrez.api.url", server.getEntrezApiUrl());
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.stop();
+        System.clearProperty("ena.api.url");
+        System.clearProperty("ena.taxon.url");
+        System.clearProperty("entrez.api.url");
+    }
+
+    @Test
+    public void throughputByConcurrency() throws Exception {
+        int projects = Integer.getInteger("import.load-test.projects", 16);
+        int analyses = Integer.getInteger("import.load-test.analyses", 2);
+        int samples = Integer.getInteger("import.load-test.samples", 5);
+
+        objectsImporter.importAccession(stubFixtures.addProject(server, 0, analyses, samples));
+
+        server.setLatency(EnaStubServer.logNormalLatency(
+                Long.getLong("import.load-test.latency-ms", 50),
+                Double.parseDouble(System.getProperty("import.load-test.latency-sigma", "0.5"))));
+        server.setFaults(Double.parseDouble(System.getProperty("import.load-test.error-rate", "0.01")),
+                         Double.parseDouble(System.getProperty("import.load-test.throttle-rate", "0.01")));
+
+        Files.createDirectories(RESULTS.getParent());
+        try (PrintWriter results = new PrintWriter(Files.newBufferedWriter(RESULTS))) {
+            results.println("concurrency,projects,failed,seconds,projectsPerSecond,objectsPerSecond,requests," +
+                                    "errors,throttled");
+            int nextProject = 1;
+            for (String level : System.getProperty("import.load-test.concurrency", "1,2,4,8").split(",")) {
+                int concurrency = Integer.parseInt(level.trim());
+                List<String> accessions = new ArrayList<>();
+                for (int i = 0; i < projects; i++) {
+                    accessions.add(stubFixtures.addProject(server, nextProject++, analyses, samples));
+                }
+                String result = run(concurrency, accessions);
+                results.println(result);
+                LOGGER.info("Load test result: " + result);
+            }
+        }
+        assertTrue(Files.size(RESULTS) > 0);
+    }
+
+    private String run(int concurrency, List<String> accessions) throws InterruptedException {
+        server.resetStatistics();
+        importProgress.reset();
+        importProgress.queued(accessions.size());
+        ExecutorService executorService = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        List<Future<?>> imports = new ArrayList<>();
+        for (String accession : accessions) {
+            imports.add(executorService.submit(() -> {
+                objectsImporter.importAccession(accession);
+                return null;
+            }));
+        }
+        for (Future<?> importFuture : imports) {
+            try {
+                importFuture.get();
+            } catch (Exception exception) {
+                // Counted as failed by the import progress
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executorService.shutdown();
+        return String.format(Locale.ROOT, "%d,%d,%d,%.1f,%.2f,%.1f,%d,%d,%d", concurrency, accessions.size(),
+                             importProgress.getFailed(), seconds, accessions.size() / seconds,
+                             importProgress.getObjects() / seconds, server.getRequests(), server.getErrors(),
+                             server.getThrottled());
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.importer.stub;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills an {@link EnaStubServer} from the recorded ENA and Entrez documents under src/test/resources. Synthetic
+ * projects are made from the recorded project, study, analysis and sample documents by rewriting their accessions, so
+ * that any number of distinct projects can be imported while every document keeps the shape of a real one. All of
+ * them share the reference assembly and the taxonomies of the recorded documents.
+ */
+public class StubFixtures {
+
+    private static final long[] TAXONOMY_IDS = {10090, 10088, 9989, 40674, 9796, 9789, 9787};
+
+    private static final String ASSEMBLY_ACCESSION = "GCA_000002305.1";
+
+    private static final String ASSEMBLY_ENTREZ_ID = "237488";
+
+    private final String projectXml;
+
+    private final String studyXml;
+
+    private final String analysisXml;
+
+    private final String sampleXml;
+
+    public StubFixtures() throws IOException {
+        projectXml = read("project/ProjectDocumentAPI.xml");
+        studyXml = read("study/StudyDocumentAPI.xml");
+        analysisXml = read("analysis/AnalysisDocumentAPI.xml");
+        sampleXml = read("sample/SampleDocumentAPI.xml");
+    }
+
+    /**
+     * Registers the taxonomies and the reference assembly which all synthetic projects refer to.
+     */
+    public void addSharedObjects(EnaStubServer server) throws IOException {
+        for (long taxonomyId : TAXONOMY_IDS) {
+            server.addTaxonXml(taxonomyId, read("stub/taxon/" + taxonomyId + ".xml"));
+        }
+        server.addEntrezSummary("assembly", ASSEMBLY_ACCESSION, ASSEMBLY_ENTREZ_ID,
+                                read("stub/entrez/assembly-" + ASSEMBLY_ACCESSION + ".xml"));
+    }
+
+    /**
+     * Registers a synthetic project with its study, analyses and samples. The samples are shared by all the analyses
+     * of the project, as is usual in ENA.
+     *
+     * @param number distinguishes the project from other synthetic projects; must be below 100000
+     * @return the accession of the project
+     */
+    public String addProject(EnaStubServer server, int number, int analyses, int samples) {
+        String project = String.format("PRJEB9%05d", number);
+        String study = String.format("ERP9%05d", number);
+        String firstAnalysis = getAnalysisAccession(number, 1);
+        String lastAnalysis = getAnalysisAccession(number, analyses);
+
+        List<String> sampleAccessions = new ArrayList<>();
+        for (int i = 1; i <= samples; i++) {
+            String sample = String.format("ERS9%05d%03d", number, i);
+            sampleAccessions.add(sample);
+            server.addEnaXml(sample, sampleXml.replace("ERS000156", sample));
+        }
+        StringBuilder sampleRefs = new StringBuilder();
+        for (String sample : sampleAccessions) {
+            sampleRefs.append("        <SAMPLE_REF accession=\"").append(sample).append("\"/>\n");
+        }
+
+        for (int i = 1; i <= analyses; i++) {
+            String analysis = getAnalysisAccession(number, i);
+            server.addEnaXml(analysis, analysisXml.replace("ERZ496533", analysis)
+                                                  .replace("ERP107353", study)
+                                                  .replace("PRJEB25439", project)
+                                                  .replace("        <ANALYSIS_TYPE>",
+                                                           sampleRefs + "        <ANALYSIS_TYPE>"));
+        }
+        String analysisLink = "<PROJECT_LINK><XREF_LINK><DB>ENA-ANALYSIS</DB><ID>"
+                + (analyses > 1 ? firstAnalysis + "-" + lastAnalysis : firstAnalysis)
+                + "</ID></XREF_LINK></PROJECT_LINK>";
+        server.addEnaXml(project, projectXml.replace("PRJEB6911", project)
+                                            .replace("ERP006576", study)
+                                            .replace("<PROJECT_LINKS>", "<PROJECT_LINKS>" + analysisLink));
+        server.addEnaXml(study, studyXml.replace("ERP015186", study).replace("PRJEB13625", project));
+        return project;
+    }
+
+    /**
+     * @return the accession of an analysis of a synthetic project, numbered from 1
+     */
+    public static String getAnalysisAccession(int projectNumber, int analysisNumber) {
+        return String.format("ERZ9%05d%02d", projectNumber, analysisNumber);
+    }
+
+    private static String read(String path) throws IOException {
+        try (InputStream inputStream = new ClassPathResource(path).getInputStream()) {
+            return StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.metadata.importer.xml;
+
+import org.junit.Test;
+import uk.ac.ebi.ena.sra.xml.SampleType;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SraXmlSetSplitterTest {
+
+    @Test
+    public void splitSampleSet() throws Exception {
+        String sampleXml = new String(Files.readAllBytes(
+                Paths.get(getClass().getClassLoader().getResource("sample/SampleDocumentAPI.xml").toURI())));
+        String sample = sampleXml.substring(sampleXml.indexOf("<SAMPLE "), sampleXml.indexOf("</SAMPLE_SET>"));
+        String sampleSetXml = "<SAMPLE_SET>" + sample + sample.replace("ERS000156", "ERS000157") + "</SAMPLE_SET>";
+
+        Map<String, String> xmls = new SraXmlSetSplitter().split(sampleSetXml);
+
+        SraSampleXmlParser sraSampleXmlParser = new SraSampleXmlParser();
+        for (String accession : new String[]{"ERS000156", "ERS000157"}) {
+            SampleType sampleType = sraSampleXmlParser.parseXml(xmls.get(accession), accession);
+            assertEquals(accession, sampleType.getAccession());
+            assertEquals(10090, sampleType.getSAMPLENAME().getTAXONID());
+        }
+        // Only the accession attribute and the primary ID of each sample are keys, and they are the same here
+        assertEquals(2, xmls.size());
+    }
+
+    @Test
+    public void objectIsFoundUnderItsSecondaryId() throws Exception {
+        String projectSetXml = "<PROJECT_SET><PROJECT accession=\"PRJEB1\"><IDENTIFIERS>" +
+                "<PRIMARY_ID>PRJEB1</PRIMARY_ID><SECONDARY_ID>ERP1</SECONDARY_ID>" +
+                "</IDENTIFIERS></PROJECT></PROJECT_SET>";
+
+        Map<String, String> xmls = new SraXmlSetSplitter().split(projectSetXml);
+
+        assertEquals("<PROJECT_SET><PROJECT accession=\"PRJEB1\"><IDENTIFIERS>" +
+                             "<PRIMARY_ID>PRJEB1</PRIMARY_ID><SECONDARY_ID>ERP1</SECONDARY_ID>" +
+                             "</IDENTIFIERS></PROJECT></PROJECT_SET>", xmls.get("PRJEB1"));
+        assertSame(xmls.get("PRJEB1"), xmls.get("ERP1"));
+    }
+
+}
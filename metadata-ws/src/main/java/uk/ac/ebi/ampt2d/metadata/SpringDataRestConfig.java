@@ -22,6 +22,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.support.ConfigurableConversionService;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.data.rest.core.config.RepositoryRestConfiguration;
 import org.springframework.data.rest.core.event.ValidatingRepositoryEventListener;
 import org.springframework.data.rest.webmvc.config.RepositoryRestConfigurer;
@@ -43,6 +44,7 @@ import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Taxonomy;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.WebResource;
 import uk.ac.ebi.ampt2d.metadata.persistence.idconverter.CustomBackendIdConverter;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetQueryDslJpaRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.services.ProjectService;
 import uk.ac.ebi.ampt2d.metadata.persistence.services.ProjectServiceImpl;
 import uk.ac.ebi.ampt2d.metadata.persistence.services.ReferenceSequenceService;
@@ -52,6 +54,7 @@ import uk.ac.ebi.ampt2d.metadata.persistence.services.StudyServiceImpl;
 import uk.ac.ebi.ampt2d.metadata.persistence.services.TaxonomyService;
 import uk.ac.ebi.ampt2d.metadata.persistence.services.TaxonomyServiceImpl;
 import uk.ac.ebi.ampt2d.metadata.rest.assemblers.GenericResourceAssembler;
+import uk.ac.ebi.ampt2d.metadata.rest.conditional.IfModifiedSinceFilter;
 import uk.ac.ebi.ampt2d.metadata.rest.controllers.AnalysisRestController;
 import uk.ac.ebi.ampt2d.metadata.rest.controllers.ProjectRestController;
 import uk.ac.ebi.ampt2d.metadata.rest.controllers.ReferenceSequenceRestController;
@@ -65,6 +68,8 @@ import uk.ac.ebi.ampt2d.metadata.rest.resources.StudyResource;
 
 @Configuration
 @EnableJpaAuditing
+@EnableJpaRepositories(basePackages = "uk.ac.ebi.ampt2d.metadata.persistence.repositories",
+        repositoryBaseClass = KeysetQueryDslJpaRepository.class)
 public class SpringDataRestConfig {
 
     @Bean
@@ -83,6 +88,17 @@ public class SpringDataRestConfig {
         };
     }
 
+    /**
+     * Conditional GET requests are answered by ConditionalGetAdvice, which compares If-Modified-Since to the last
+     * modification of entities, known to the day, the way Spring Data REST does not
+     *
+     * @return IfModifiedSinceFilter
+     */
+    @Bean
+    public IfModifiedSinceFilter ifModifiedSinceFilter() {
+        return new IfModifiedSinceFilter();
+    }
+
     @Bean
     public RepositoryRestConfigurer repositoryRestConfigurer() {
         return new RepositoryRestConfigurerAdapter() {
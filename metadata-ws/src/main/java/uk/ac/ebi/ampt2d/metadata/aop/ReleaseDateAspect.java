@@ -17,41 +17,85 @@
  */
 package uk.ac.ebi.ampt2d.metadata.aop;
 
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.DatePath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.JPAExpressions;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.AbstractRepositoryMetadata;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
-import org.springframework.util.CollectionUtils;
+import org.springframework.util.ClassUtils;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Analysis;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Auditable;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.File;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Project;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Publication;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.QAnalysis;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.QFile;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.QProject;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.QPublication;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.QSample;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.QStudy;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.QWebResource;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Sample;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.WebResource;
+import uk.ac.ebi.ampt2d.metadata.persistence.search.TextSearchQuery;
 import uk.ac.ebi.ampt2d.metadata.security.CustomUsernamePasswordAuthenticationToken;
 import uk.ac.ebi.ampt2d.metadata.security.EnableSecurityConfig;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * An @Aspect for ensuring only published entities are returned through checking an entity's releaseDate field
+ * An @Aspect for ensuring only published entities are returned through checking an entity's releaseDate field, or
+ * the release date of the studies it is linked to, unless the user is permitted to access these studies
  */
 @Aspect
 public class ReleaseDateAspect {
 
+    private static final QAnalysis PERMITTED_ANALYSIS = new QAnalysis("permittedAnalysis");
+
+    private static final QStudy PERMITTED_STUDY = new QStudy("permittedStudy");
+
+    private final Map<Class<?>, Class<?>> domainTypes = new ConcurrentHashMap<>();
+
     /**
      * An @Around advice for repositories.*.findAll(..) method execution.
      * <p>
-     * Check the release field of each entity and return only published entities.
+     * If the first argument of the join point method is a Predicate, a Predicate selecting the entities which are
+     * published or linked to one of the studies the user is permitted to access is added to it, so that unpublished
+     * entities are filtered out by the query itself. Otherwise, the release date of each returned entity is checked.
      *
      * @param proceedingJoinPoint
      * @return the return object from join point method execution
      * @throws Throwable
      */
-
     @Around("execution(* uk.ac.ebi.ampt2d.metadata.persistence.repositories.*.findAll(..))")
     public Object filterOnReleaseDateAdviceFindAll(ProceedingJoinPoint proceedingJoinPoint) throws Throwable {
+        Class<?>[] parameterTypes = ((MethodSignature) proceedingJoinPoint.getSignature()).getParameterTypes();
+        if (parameterTypes.length > 0 && Predicate.class.equals(parameterTypes[0])) {
+            Object[] args = proceedingJoinPoint.getArgs();
+            Predicate releaseDatePredicate = getReleaseDatePredicate(getDomainType(proceedingJoinPoint.getTarget()));
+            args[0] = ExpressionUtils.allOf((Predicate) ExpressionUtils.extract((Predicate) args[0]),
+                    releaseDatePredicate);
+            return proceedingJoinPoint.proceed(args);
+        }
+
         Iterable<Object> results = (Iterable<Object>) proceedingJoinPoint.proceed();
         Iterator<Object> i = results.iterator();
         while (i.hasNext()) {
@@ -63,6 +107,40 @@ public class ReleaseDateAspect {
         return results;
     }
 
+    /**
+     * An @Around advice for repositories.*.findIdsByTextSearch(..) method execution.
+     * <p>
+     * Full-text searches rank and limit the matching entities in a native query, so unless the user is a service
+     * operator, the query is restricted to the entities which are published or have the accession of one of the
+     * studies the user is permitted to access, through its boolean, LocalDate and Collection arguments. Filtering them
+     * afterwards would return short pages, whose size would tell how many unpublished entities match.
+     *
+     * @param proceedingJoinPoint
+     * @return the return object from join point method execution
+     * @throws Throwable
+     */
+    @Around("execution(* uk.ac.ebi.ampt2d.metadata.persistence.repositories.*.findIdsByTextSearch(..))")
+    public Object filterOnReleaseDateAdviceFindIdsByTextSearch(ProceedingJoinPoint proceedingJoinPoint)
+            throws Throwable {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Object[] args = proceedingJoinPoint.getArgs();
+        if (isServiceOperator(authentication)) {
+            return proceedingJoinPoint.proceed(args);
+        }
+        Set<String> permittedStudies = getPermittedStudies(authentication);
+        Class<?>[] parameterTypes = ((MethodSignature) proceedingJoinPoint.getSignature()).getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (boolean.class.equals(parameterTypes[i])) {
+                args[i] = true;
+            } else if (LocalDate.class.equals(parameterTypes[i])) {
+                args[i] = LocalDate.now();
+            } else if (Collection.class.equals(parameterTypes[i])) {
+                args[i] = permittedStudies.isEmpty() ? TextSearchQuery.NO_PERMITTED_STUDIES : permittedStudies;
+            }
+        }
+        return proceedingJoinPoint.proceed(args);
+    }
+
     /**
      * An @Around advice for CrudRepository.findOne(..) method execution
      * <p>
@@ -97,27 +175,122 @@ public class ReleaseDateAspect {
         }
 
         //Allow admins to access before release date
-        if (authentication.getAuthorities().stream()
-                .anyMatch(authority -> authority.getAuthority()
-                        .equals("ROLE_" + EnableSecurityConfig.ROLE_SERVICE_OPERATOR))) {
+        if (isServiceOperator(authentication)) {
             return result;
         }
 
-        String commaSeparatedPermittedStudies = ((CustomUsernamePasswordAuthenticationToken)
-                ((OAuth2Authentication) authentication).getUserAuthentication()).getStudies();
-        List<String> permittedStudies;
-        if (commaSeparatedPermittedStudies.isEmpty()) {
+        Set<String> permittedStudies = getPermittedStudies(authentication);
+        if (permittedStudies.isEmpty()) {
             return null;
         }
-        permittedStudies = Arrays.asList(commaSeparatedPermittedStudies.split(","));
-        List<String> studiesAssociatedToEntity =
-                Arrays.asList(((Auditable) result).getStudyIds().split(","));
-
-        if(CollectionUtils.containsAny(permittedStudies,studiesAssociatedToEntity)){
+        if (Arrays.stream(((Auditable) result).getStudyIds().split(",")).anyMatch(permittedStudies::contains)) {
             return result;
         }
 
         return null;
     }
 
+    /**
+     * Get a Predicate selecting the entities of the given type which the current user can access: the published ones,
+     * and those linked to one of the studies the user is permitted to access.
+     *
+     * @return the Predicate, or null if all the entities can be accessed
+     */
+    private Predicate getReleaseDatePredicate(Class<?> domainType) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        //Allow admins to access before release date
+        if (isServiceOperator(authentication)) {
+            return null;
+        }
+        Set<String> permittedStudies = getPermittedStudies(authentication);
+
+        if (Study.class.equals(domainType)) {
+            QStudy study = QStudy.study;
+            return releasedOrPermitted(study.releaseDate, isAnyOf(study.accessionVersionId.accession, permittedStudies));
+        }
+        if (Project.class.equals(domainType)) {
+            QProject project = QProject.project;
+            return releasedOrPermitted(project.releaseDate,
+                    isAnyOf(project.accessionVersionId.accession, permittedStudies));
+        }
+        if (Analysis.class.equals(domainType)) {
+            QAnalysis analysis = QAnalysis.analysis;
+            return releasedOrPermitted(analysis.study.releaseDate,
+                    isAnyOf(analysis.study.accessionVersionId.accession, permittedStudies));
+        }
+
+        // Samples, files, publications and web resources are permitted if they are linked to a permitted study, which
+        // is checked with a sub-query (a semi-join) rather than on the comma-separated list of their study ids
+        if (Sample.class.equals(domainType)) {
+            QSample sample = QSample.sample;
+            QSample permittedSample = new QSample("permittedSample");
+            return releasedOrPermitted(sample.releaseDate, permittedStudies.isEmpty() ? null :
+                    sample.in(JPAExpressions.select(permittedSample).from(PERMITTED_ANALYSIS)
+                            .innerJoin(PERMITTED_ANALYSIS.samples, permittedSample)
+                            .where(PERMITTED_ANALYSIS.study.accessionVersionId.accession.in(permittedStudies))));
+        }
+        if (File.class.equals(domainType)) {
+            QFile file = QFile.file;
+            QFile permittedFile = new QFile("permittedFile");
+            return releasedOrPermitted(file.releaseDate, permittedStudies.isEmpty() ? null :
+                    file.in(JPAExpressions.select(permittedFile).from(PERMITTED_ANALYSIS)
+                            .innerJoin(PERMITTED_ANALYSIS.files, permittedFile)
+                            .where(PERMITTED_ANALYSIS.study.accessionVersionId.accession.in(permittedStudies))));
+        }
+        if (Publication.class.equals(domainType)) {
+            QPublication publication = QPublication.publication;
+            QPublication permittedPublication = new QPublication("permittedPublication");
+            return releasedOrPermitted(publication.releaseDate, permittedStudies.isEmpty() ? null :
+                    publication.in(JPAExpressions.select(permittedPublication).from(PERMITTED_STUDY)
+                            .innerJoin(PERMITTED_STUDY.publications, permittedPublication)
+                            .where(PERMITTED_STUDY.accessionVersionId.accession.in(permittedStudies))));
+        }
+        if (WebResource.class.equals(domainType)) {
+            QWebResource webResource = QWebResource.webResource;
+            QWebResource permittedWebResource = new QWebResource("permittedWebResource");
+            return releasedOrPermitted(webResource.releaseDate, permittedStudies.isEmpty() ? null :
+                    webResource.in(JPAExpressions.select(permittedWebResource).from(PERMITTED_STUDY)
+                            .innerJoin(PERMITTED_STUDY.resources, permittedWebResource)
+                            .where(PERMITTED_STUDY.accessionVersionId.accession.in(permittedStudies))));
+        }
+        // Other entities, such as taxonomies and reference sequences, have no release date
+        return null;
+    }
+
+    private static Predicate releasedOrPermitted(DatePath<LocalDate> releaseDate, Predicate permitted) {
+        return ExpressionUtils.anyOf(releaseDate.isNull(), releaseDate.loe(LocalDate.now()), permitted);
+    }
+
+    private static Predicate isAnyOf(StringPath accession, Set<String> studies) {
+        return studies.isEmpty() ? null : accession.in(studies);
+    }
+
+    private boolean isServiceOperator(Authentication authentication) {
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(authority -> authority.getAuthority()
+                        .equals("ROLE_" + EnableSecurityConfig.ROLE_SERVICE_OPERATOR));
+    }
+
+    /**
+     * Get the studies which the user is permitted to access before their release date, empty if the user is not
+     * authenticated
+     */
+    private Set<String> getPermittedStudies(Authentication authentication) {
+        if (!(authentication instanceof OAuth2Authentication)) {
+            return Collections.emptySet();
+        }
+        return ((CustomUsernamePasswordAuthenticationToken)
+                ((OAuth2Authentication) authentication).getUserAuthentication()).getPermittedStudies();
+    }
+
+    private Class<?> getDomainType(Object repository) {
+        return domainTypes.computeIfAbsent(repository.getClass(), repositoryClass ->
+                ClassUtils.getAllInterfacesForClassAsSet(repositoryClass).stream()
+                        .filter(Repository.class::isAssignableFrom)
+                        .<Class<?>>map(repositoryInterface -> AbstractRepositoryMetadata
+                                .getMetadata(repositoryInterface).getDomainType())
+                        .findFirst()
+                        .orElse(Object.class));
+    }
+
 }
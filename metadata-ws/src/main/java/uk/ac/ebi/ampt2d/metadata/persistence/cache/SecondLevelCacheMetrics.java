@@ -0,0 +1,67 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.persistence.cache;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Statistics;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Metrics of the regions of the second-level cache, available from the /actuator/metrics endpoint. For each region,
+ * named after the last part of its name (e.g. cache.Taxonomy for the taxonomies, cache.StandardQueryCache for the
+ * query results):
+ * <ul>
+ * <li>cache.&lt;region&gt;.size: number of entries</li>
+ * <li>cache.&lt;region&gt;.hit.ratio and cache.&lt;region&gt;.miss.ratio: ratio of lookups which found, or did not
+ * find, an entry since the start</li>
+ * <li>cache.&lt;region&gt;.evictions: number of entries evicted since the start to keep the region within its
+ * bounds</li>
+ * </ul>
+ * The regions are those of the Ehcache cache managers, configured by ehcache.xml.
+ */
+public class SecondLevelCacheMetrics implements PublicMetrics {
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        for (CacheManager cacheManager : CacheManager.ALL_CACHE_MANAGERS) {
+            for (String name : cacheManager.getCacheNames()) {
+                Ehcache region = cacheManager.getEhcache(name);
+                String prefix = "cache." + name.substring(name.lastIndexOf('.') + 1);
+                Statistics stats = region.getStatistics();
+                metrics.add(new Metric<>(prefix + ".size", stats.getObjectCount()));
+                long requests = stats.getCacheHits() + stats.getCacheMisses();
+                if (requests > 0) {
+                    metrics.add(new Metric<>(prefix + ".hit.ratio", (double) stats.getCacheHits() / requests));
+                    metrics.add(new Metric<>(prefix + ".miss.ratio", (double) stats.getCacheMisses() / requests));
+                }
+                metrics.add(new Metric<>(prefix + ".evictions", stats.getEvictionCount()));
+            }
+        }
+        return metrics;
+    }
+
+}
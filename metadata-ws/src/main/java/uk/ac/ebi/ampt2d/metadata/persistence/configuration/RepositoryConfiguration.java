@@ -21,8 +21,17 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import uk.ac.ebi.ampt2d.metadata.persistence.events.AnalysisEventHandler;
 import uk.ac.ebi.ampt2d.metadata.persistence.events.SampleEventHandler;
+import uk.ac.ebi.ampt2d.metadata.persistence.events.StudyEventHandler;
 import uk.ac.ebi.ampt2d.metadata.persistence.events.TaxonomyEventHandler;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.FileRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ProjectRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.PublicationRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.SampleRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.StudyRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.TaxonomyRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.WebResourceRepository;
+
+import javax.persistence.EntityManagerFactory;
 
 @Configuration
 public class RepositoryConfiguration {
@@ -33,8 +42,18 @@ public class RepositoryConfiguration {
     }
 
     @Bean
-    AnalysisEventHandler analysisEventHandler() {
-        return new AnalysisEventHandler();
+    AnalysisEventHandler analysisEventHandler(StudyRepository studyRepository, ProjectRepository projectRepository,
+                                              SampleRepository sampleRepository, FileRepository fileRepository) {
+        return new AnalysisEventHandler(studyRepository, projectRepository, sampleRepository, fileRepository);
+    }
+
+    @Bean
+    StudyEventHandler studyEventHandler(ProjectRepository projectRepository, SampleRepository sampleRepository,
+                                        FileRepository fileRepository, PublicationRepository publicationRepository,
+                                        WebResourceRepository webResourceRepository,
+                                        EntityManagerFactory entityManagerFactory) {
+        return new StudyEventHandler(projectRepository, sampleRepository, fileRepository, publicationRepository,
+                                     webResourceRepository, entityManagerFactory);
     }
 
     @Bean
@@ -29,6 +29,8 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 import javax.persistence.SequenceGenerator;
@@ -41,7 +43,8 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accession", "version"}))
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accession", "version"}),
+        indexes = @Index(columnList = "study_id"))
 @SequenceGenerator(initialValue = 1, allocationSize = 1, name = "ANALYSIS_SEQ", sequenceName = "analysis_sequence")
 public class Analysis extends Auditable<Long> {
 
@@ -127,6 +130,8 @@ public class Analysis extends Auditable<Long> {
             notes = "URL(s) to the reference sequence(s)")
     @JsonProperty
     @ManyToMany
+    // Studies, projects and analyses are searched by the name and patch of their reference sequences
+    @JoinTable(indexes = {@Index(columnList = "analysis_id"), @Index(columnList = "reference_sequences_id")})
     private List<ReferenceSequence> referenceSequences;
 
     @ApiModelProperty(position = 8, required = true)
@@ -150,10 +155,13 @@ public class Analysis extends Auditable<Long> {
     @Column(nullable = false)
     private String platform;
 
+    // The samples and files of the analyses of a study are looked up to check whether they can be accessed
     @ManyToMany
+    @JoinTable(indexes = @Index(columnList = "analysis_id"))
     private List<Sample> samples;
 
     @ManyToMany
+    @JoinTable(indexes = @Index(columnList = "analysis_id"))
     private List<File> files;
 
     public Analysis() {
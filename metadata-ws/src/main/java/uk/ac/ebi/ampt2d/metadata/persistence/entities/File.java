@@ -20,7 +20,6 @@ package uk.ac.ebi.ampt2d.metadata.persistence.entities;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModelProperty;
-import org.hibernate.annotations.Formula;
 
 import javax.persistence.Column;
 import javax.persistence.Embedded;
@@ -30,6 +29,7 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
@@ -39,16 +39,11 @@ import javax.validation.constraints.Size;
 import java.time.LocalDate;
 
 @Entity
-@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accession", "version"}))
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accession", "version"}),
+        indexes = @Index(columnList = "releaseDate"))
 @SequenceGenerator(initialValue = 1, allocationSize = 1, name = "FILE_SEQ", sequenceName = "file_sequence")
 public class File extends Auditable<Long> {
 
-    private static final String FILE_QUERY_EXPRESSION = "FROM file " +
-            "INNER JOIN analysis_files on file.id = analysis_files.files_id " +
-            "INNER JOIN analysis on analysis_files.analysis_id = analysis.id " +
-            "INNER JOIN study on analysis.study_id = study.id " +
-            "WHERE file.id=id";
-
     public enum Type {
 
         AGP, BAI, BAM, BCF, BED, BIONANO_NATIVE, CHROMOSOME_LIST, CRAI, CRAM, FASTA, FASTQ, FLATFILE, GFF,
@@ -93,16 +88,18 @@ public class File extends Auditable<Long> {
     private Type type;
 
     /**
-     * Release date control: get the *earliest* release date from all studies which link to this file.
+     * Release date control: the *earliest* release date from all studies which link to this file, kept up to date by
+     * FileRepository#updateReleaseDateAndStudyIds.
      */
-    @Formula("(SELECT min(study.release_date) " + FILE_QUERY_EXPRESSION + ")")
+    @Column(insertable = false, updatable = false)
     @JsonIgnore
     private LocalDate releaseDate;
 
     /**
-     * Get the ids of the studies which link to this object (used for access control).
+     * The ids of the studies which link to this object (used for access control), kept up to date with the release
+     * date.
      */
-    @Formula("(SELECT string_agg(study.accession,',') " + FILE_QUERY_EXPRESSION + ")")
+    @Column(insertable = false, updatable = false, columnDefinition = "TEXT")
     @JsonIgnore
     private String studyIds;
 
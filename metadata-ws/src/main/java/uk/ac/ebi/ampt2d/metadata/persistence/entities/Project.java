@@ -19,7 +19,6 @@ package uk.ac.ebi.ampt2d.metadata.persistence.entities;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModelProperty;
-import org.hibernate.annotations.JoinFormula;
 import org.hibernate.validator.constraints.NotBlank;
 
 import javax.persistence.Column;
@@ -29,6 +28,8 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
@@ -44,7 +45,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accession", "version"}))
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accession", "version"}),
+        indexes = @Index(columnList = "speciesId"))
 @SequenceGenerator(initialValue = 1, allocationSize = 1, name = "PROJECT_SEQ", sequenceName = "project_sequence")
 public class Project extends Auditable<Long> {
 
@@ -86,16 +88,11 @@ public class Project extends Auditable<Long> {
     @Column(nullable = false)
     private LocalDate releaseDate;
 
+    // Species of the studies of the project, kept up to date by ProjectRepository#updateSpeciesOfStudies
     @ApiModelProperty(position = 7, dataType = "java.lang.String", notes = "URL to taxonomy")
     @JsonProperty
     @ManyToOne
-    @JoinFormula(value = "(SELECT DISTINCT taxonomy.species_id FROM taxonomy " +
-            "INNER JOIN reference_sequence ON reference_sequence.taxonomy_id = taxonomy.id " +
-            "INNER JOIN analysis_reference_sequences ON analysis_reference_sequences.reference_sequences_id = reference_sequence.id " +
-            "INNER JOIN analysis ON analysis.id = analysis_reference_sequences.analysis_id " +
-            "INNER JOIN study ON study.id = analysis.study_id " +
-            "INNER JOIN project ON project.id = study.project_id " +
-            "WHERE project.id = id)", referencedColumnName = "taxonomyId")
+    @JoinColumn(name = "speciesId", referencedColumnName = "taxonomyId", insertable = false, updatable = false)
     private Taxonomy taxonomy;
 
     @ApiModelProperty(position = 8, example = "false")
@@ -19,6 +19,8 @@ package uk.ac.ebi.ampt2d.metadata.persistence.entities;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -36,6 +38,7 @@ import javax.validation.constraints.Size;
 import java.time.LocalDate;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = {"name","patch"}))
 @SequenceGenerator(initialValue=1, allocationSize=1 , name="REFERENCE_SEQUENCE_SEQ",
         sequenceName="reference_sequence_sequence")
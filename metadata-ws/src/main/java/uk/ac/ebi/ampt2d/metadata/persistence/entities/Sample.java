@@ -20,7 +20,6 @@ package uk.ac.ebi.ampt2d.metadata.persistence.entities;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModelProperty;
-import org.hibernate.annotations.Formula;
 
 import javax.persistence.Column;
 import javax.persistence.Embedded;
@@ -28,6 +27,8 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
@@ -39,16 +40,11 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accession", "version"}))
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accession", "version"}),
+        indexes = @Index(columnList = "releaseDate"))
 @SequenceGenerator(initialValue = 1, allocationSize = 1, name = "SAMPLE_SEQ", sequenceName = "sample_sequence")
 public class Sample extends Auditable<Long> {
 
-    private static final String SAMPLE_QUERY_EXPRESSION = "FROM sample " +
-            "INNER JOIN analysis_samples on sample.id = analysis_samples.samples_id " +
-            "INNER JOIN analysis on analysis_samples.analysis_id = analysis.id " +
-            "INNER JOIN study on analysis.study_id = study.id " +
-            "WHERE sample.id=id";
-
     @ApiModelProperty(position = 1, value = "Sample auto generated id", readOnly = true)
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     @Id
@@ -70,6 +66,8 @@ public class Sample extends Auditable<Long> {
     @ApiModelProperty(position = 4, dataType = "java.lang.String", example = "[url1, url2]", notes = "List of URLs to taxonomies")
     @JsonProperty
     @ManyToMany
+    // Samples are searched by the name of their taxonomies
+    @JoinTable(indexes = {@Index(columnList = "sample_id"), @Index(columnList = "taxonomies_id")})
     @NotNull
     @Column(nullable = false)
     @Size(min = 1)
@@ -84,16 +82,18 @@ public class Sample extends Auditable<Long> {
     private String bioSampleAccession;
 
     /**
-     * Release date control: get the *earliest* release date from all studies which link to this sample.
+     * Release date control: the *earliest* release date from all studies which link to this sample, kept up to date by
+     * SampleRepository#updateReleaseDateAndStudyIds.
      */
-    @Formula("(SELECT min(study.release_date) " + SAMPLE_QUERY_EXPRESSION + ")")
+    @Column(insertable = false, updatable = false)
     @JsonIgnore
     private LocalDate releaseDate;
 
     /**
-     * Get the ids of the studies which link to this object (used for access control).
+     * The ids of the studies which link to this object (used for access control), kept up to date with the release
+     * date.
      */
-    @Formula("(SELECT string_agg(study.accession,',') " + SAMPLE_QUERY_EXPRESSION + ")")
+    @Column(insertable = false, updatable = false, columnDefinition = "TEXT")
     @JsonIgnore
     private String studyIds;
 
@@ -19,16 +19,17 @@ package uk.ac.ebi.ampt2d.metadata.persistence.entities;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModelProperty;
-import org.hibernate.annotations.JoinFormula;
+import org.hibernate.Hibernate;
 import org.hibernate.validator.constraints.NotBlank;
 
 import javax.persistence.Column;
 import javax.persistence.Embedded;
 import javax.persistence.Entity;
-import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
@@ -44,7 +45,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accession", "version"}))
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"accession", "version"}),
+        indexes = @Index(columnList = "speciesId"))
 @SequenceGenerator(initialValue = 1, allocationSize = 1, name = "STUDY_SEQ", sequenceName = "study_sequence")
 public class Study extends Auditable<Long> {
 
@@ -86,15 +88,11 @@ public class Study extends Auditable<Long> {
     @Column(nullable = false)
     private LocalDate releaseDate;
 
+    // Species of the analyses of the study, kept up to date by StudyRepository#updateSpecies
     @ApiModelProperty(position = 7, dataType = "java.lang.String", notes = "URL to taxonomy")
     @JsonProperty
     @ManyToOne
-    @JoinFormula(value = "(SELECT DISTINCT taxonomy.species_id FROM taxonomy " +
-            "INNER JOIN reference_sequence ON reference_sequence.taxonomy_id = taxonomy.id " +
-            "INNER JOIN analysis_reference_sequences ON analysis_reference_sequences.reference_sequences_id = reference_sequence.id " +
-            "INNER JOIN analysis ON analysis.id = analysis_reference_sequences.analysis_id " +
-            "INNER JOIN study ON study.id = analysis.study_id " +
-            "WHERE study.id = id)", referencedColumnName = "taxonomyId")
+    @JoinColumn(name = "speciesId", referencedColumnName = "taxonomyId", insertable = false, updatable = false)
     private Taxonomy taxonomy;
 
     @ApiModelProperty(position = 8, example = "false")
@@ -122,7 +120,7 @@ public class Study extends Auditable<Long> {
     @JsonProperty
     private List<Publication> publications;
 
-    @OneToMany(mappedBy = "study", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "study")
     private List<Analysis> analyses;
 
     @ManyToMany
@@ -194,6 +192,10 @@ public class Study extends Auditable<Long> {
     }
 
     public void setAnalysis(Analysis analysis) {
+        if (analyses != null && !Hibernate.isInitialized(analyses)) {
+            // The analyses are loaded lazily: the new one will be loaded with the others, if they are ever needed
+            return;
+        }
         List<Analysis> analyses = this.getAnalyses();
         if (analyses == null) {
             analyses = new ArrayList<>();
@@ -17,7 +17,14 @@
  */
 package uk.ac.ebi.ampt2d.metadata.persistence.events;
 
+import com.google.common.collect.Lists;
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterLinkDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterLinkSave;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
 import org.springframework.data.rest.core.annotation.HandleBeforeCreate;
+import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
 import org.springframework.data.rest.core.annotation.HandleBeforeLinkDelete;
 import org.springframework.data.rest.core.annotation.HandleBeforeLinkSave;
 import org.springframework.data.rest.core.annotation.HandleBeforeSave;
@@ -25,11 +32,48 @@ import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
 import uk.ac.ebi.ampt2d.metadata.exceptionhandling.AnalysisWithoutReferenceSequenceException;
 import uk.ac.ebi.ampt2d.metadata.exceptionhandling.InvalidReferenceSequenceException;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Analysis;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Auditable;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Taxonomy;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.FileRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ProjectRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.SampleRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.StudyRepository;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @RepositoryEventHandler(Analysis.class)
 public class AnalysisEventHandler {
 
+    private static final int UPDATE_CHUNK_SIZE = 1000;
+
+    /**
+     * The study, samples and files linked to the analysis being changed by the current request, as they were before
+     * the change, so that those which get unlinked can be updated afterwards.
+     */
+    private final ThreadLocal<PreviousLinks> previousLinks = new ThreadLocal<>();
+
+    private StudyRepository studyRepository;
+
+    private ProjectRepository projectRepository;
+
+    private SampleRepository sampleRepository;
+
+    private FileRepository fileRepository;
+
+    public AnalysisEventHandler(StudyRepository studyRepository, ProjectRepository projectRepository,
+                                SampleRepository sampleRepository, FileRepository fileRepository) {
+        this.studyRepository = studyRepository;
+        this.projectRepository = projectRepository;
+        this.sampleRepository = sampleRepository;
+        this.fileRepository = fileRepository;
+    }
+
     @HandleBeforeCreate
     @HandleBeforeSave
     public void validateReferenceSequences(Analysis analysis) {
@@ -42,6 +86,90 @@ public class AnalysisEventHandler {
         validateReferenceSequenceLink(analysis);
     }
 
+    @HandleBeforeCreate
+    public void forgetLinks(Analysis analysis) {
+        previousLinks.remove();
+    }
+
+    /**
+     * Remembers the study, samples and files linked to an analysis before it is changed or deleted. The request has
+     * not been flushed yet, so they are read as they are stored.
+     */
+    @HandleBeforeSave
+    @HandleBeforeDelete
+    public void rememberLinks(Analysis analysis) {
+        previousLinks.set(new PreviousLinks(studyRepository.findIdByAnalysisId(analysis.getId()),
+                sampleRepository.findIdsByAnalysisId(analysis.getId()),
+                fileRepository.findIdsByAnalysisId(analysis.getId())));
+    }
+
+    @HandleBeforeLinkDelete
+    @HandleBeforeLinkSave
+    public void rememberLinks(Analysis analysis, Object linked) {
+        rememberLinks(analysis);
+    }
+
+    /**
+     * Updates what is stored with the study, project, samples and files of an analysis but derived from the analysis:
+     * the species of the study and project, and the release date and study ids of the samples and files, including
+     * those the analysis no longer links to, and the study it has been moved from.
+     */
+    @HandleAfterCreate
+    @HandleAfterSave
+    public void updateDerivedFields(Analysis analysis) {
+        PreviousLinks links = previousLinks.get();
+        previousLinks.remove();
+        updateSpecies(analysis, links);
+        sampleRepository.updateReleaseDateAndStudyIdsOfAnalysis(analysis.getId());
+        fileRepository.updateReleaseDateAndStudyIdsOfAnalysis(analysis.getId());
+        if (links != null) {
+            updateUnlinked(links.sampleIds, analysis.getSamples(), sampleRepository::updateReleaseDateAndStudyIds);
+            updateUnlinked(links.fileIds, analysis.getFiles(), fileRepository::updateReleaseDateAndStudyIds);
+        }
+    }
+
+    @HandleAfterLinkDelete
+    @HandleAfterLinkSave
+    public void updateDerivedFields(Analysis analysis, Object linked) {
+        updateDerivedFields(analysis);
+    }
+
+    @HandleAfterDelete
+    public void updateDerivedFieldsOfDeleted(Analysis analysis) {
+        PreviousLinks links = previousLinks.get();
+        previousLinks.remove();
+        updateSpecies(analysis, links);
+        if (links != null) {
+            updateUnlinked(links.sampleIds, null, sampleRepository::updateReleaseDateAndStudyIds);
+            updateUnlinked(links.fileIds, null, fileRepository::updateReleaseDateAndStudyIds);
+        }
+    }
+
+    private void updateSpecies(Analysis analysis, PreviousLinks links) {
+        Set<Long> studyIds = new HashSet<>();
+        Study study = analysis.getStudy();
+        if (study != null) {
+            studyIds.add(study.getId());
+        }
+        if (links != null && links.studyId != null) {
+            studyIds.add(links.studyId);
+        }
+        if (!studyIds.isEmpty()) {
+            studyRepository.updateSpecies(studyIds);
+            projectRepository.updateSpeciesOfStudies(studyIds);
+        }
+    }
+
+    private static void updateUnlinked(List<Long> previousIds, Collection<? extends Auditable<Long>> linked,
+                                       Consumer<List<Long>> update) {
+        Set<Long> unlinkedIds = new HashSet<>(previousIds);
+        if (linked != null) {
+            unlinkedIds.removeAll(linked.stream().map(Auditable::getId).collect(Collectors.toSet()));
+        }
+        Lists.partition(unlinkedIds.stream().sorted().collect(Collectors.toList()), UPDATE_CHUNK_SIZE)
+                .forEach(update);
+    }
+
     /**
      * Checks that an analysis is linked to at least one reference sequence, and that all of them are linked to the
      * same taxonomy.
@@ -69,4 +197,20 @@ public class AnalysisEventHandler {
         }
     }
 
+    private static class PreviousLinks {
+
+        private final Long studyId;
+
+        private final List<Long> sampleIds;
+
+        private final List<Long> fileIds;
+
+        PreviousLinks(Long studyId, List<Long> sampleIds, List<Long> fileIds) {
+            this.studyId = studyId;
+            this.sampleIds = sampleIds;
+            this.fileIds = fileIds;
+        }
+
+    }
+
 }
@@ -0,0 +1,177 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.metadata.persistence.events;
+
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterLinkDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterLinkSave;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.HandleBeforeCreate;
+import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
+import org.springframework.data.rest.core.annotation.HandleBeforeLinkDelete;
+import org.springframework.data.rest.core.annotation.HandleBeforeLinkSave;
+import org.springframework.data.rest.core.annotation.HandleBeforeSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Auditable;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Publication;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.WebResource;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.FileRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ProjectRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.PublicationRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.SampleRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.WebResourceRepository;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RepositoryEventHandler(Study.class)
+public class StudyEventHandler {
+
+    /**
+     * The project, publications and web resources linked to the study being changed by the current request, as they
+     * were before the change, so that those which get unlinked can be updated afterwards.
+     */
+    private final ThreadLocal<PreviousLinks> previousLinks = new ThreadLocal<>();
+
+    private ProjectRepository projectRepository;
+
+    private SampleRepository sampleRepository;
+
+    private FileRepository fileRepository;
+
+    private PublicationRepository publicationRepository;
+
+    private WebResourceRepository webResourceRepository;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    public StudyEventHandler(ProjectRepository projectRepository, SampleRepository sampleRepository,
+                             FileRepository fileRepository, PublicationRepository publicationRepository,
+                             WebResourceRepository webResourceRepository, EntityManagerFactory entityManagerFactory) {
+        this.projectRepository = projectRepository;
+        this.sampleRepository = sampleRepository;
+        this.fileRepository = fileRepository;
+        this.publicationRepository = publicationRepository;
+        this.webResourceRepository = webResourceRepository;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @HandleBeforeCreate
+    public void forgetLinks(Study study) {
+        previousLinks.remove();
+    }
+
+    /**
+     * Remembers the project, publications and web resources linked to a study before it is changed or deleted. The
+     * request has not been flushed yet, so they are read as they are stored.
+     */
+    @HandleBeforeSave
+    @HandleBeforeDelete
+    public void rememberLinks(Study study) {
+        previousLinks.set(new PreviousLinks(projectRepository.findIdByStudyId(study.getId()),
+                publicationRepository.findIdsByStudyId(study.getId()),
+                webResourceRepository.findIdsByStudyId(study.getId())));
+    }
+
+    @HandleBeforeLinkSave
+    @HandleBeforeLinkDelete
+    public void rememberLinks(Study study, Object linked) {
+        rememberLinks(study);
+    }
+
+    /**
+     * The release date and study ids of samples and files are those of the studies of their analyses, so they are
+     * updated when the release date or accession of a study changes.
+     */
+    @HandleAfterSave
+    public void updateReleaseDateAndStudyIds(Study study) {
+        sampleRepository.updateReleaseDateAndStudyIdsOfStudy(study.getId());
+        fileRepository.updateReleaseDateAndStudyIdsOfStudy(study.getId());
+    }
+
+    /**
+     * Updates what is derived from a study but stored with its project, publications and web resources: the species
+     * of the project, which is that of its studies, and the release date and study ids of the publications and web
+     * resources, whose cached entries are evicted. Those the study no longer links to are updated as well.
+     */
+    @HandleAfterCreate
+    @HandleAfterSave
+    @HandleAfterDelete
+    public void updateDerivedFields(Study study) {
+        PreviousLinks links = previousLinks.get();
+        previousLinks.remove();
+        updateProjectSpecies(study, links);
+        Cache cache = entityManagerFactory.getCache();
+        evict(cache, Publication.class, links != null ? links.publicationIds : null, study.getPublications());
+        evict(cache, WebResource.class, links != null ? links.webResourceIds : null, study.getResources());
+    }
+
+    @HandleAfterLinkSave
+    @HandleAfterLinkDelete
+    public void updateDerivedFields(Study study, Object linked) {
+        updateDerivedFields(study);
+    }
+
+    private void updateProjectSpecies(Study study, PreviousLinks links) {
+        Set<Long> projectIds = new HashSet<>();
+        if (study.getProject() != null) {
+            projectIds.add(study.getProject().getId());
+        }
+        if (links != null && links.projectId != null) {
+            projectIds.add(links.projectId);
+        }
+        if (!projectIds.isEmpty()) {
+            projectRepository.updateSpecies(projectIds);
+        }
+    }
+
+    private static void evict(Cache cache, Class<?> entityClass, List<Long> previousIds,
+                              Collection<? extends Auditable<Long>> linked) {
+        Set<Long> ids = new HashSet<>();
+        if (previousIds != null) {
+            ids.addAll(previousIds);
+        }
+        if (linked != null) {
+            linked.forEach(entity -> ids.add(entity.getId()));
+        }
+        ids.forEach(id -> cache.evict(entityClass, id));
+    }
+
+    private static class PreviousLinks {
+
+        private final Long projectId;
+
+        private final List<Long> publicationIds;
+
+        private final List<Long> webResourceIds;
+
+        PreviousLinks(Long projectId, List<Long> publicationIds, List<Long> webResourceIds) {
+            this.projectId = projectId;
+            this.publicationIds = publicationIds;
+            this.webResourceIds = webResourceIds;
+        }
+
+    }
+
+}
@@ -28,18 +28,40 @@ import uk.ac.ebi.ampt2d.metadata.util.DomQueryUsingXPath;
 @RepositoryEventHandler(Taxonomy.class)
 public class TaxonomyEventHandler {
 
-    private static final String ENA_TAXON_URL = "https://www.ebi.ac.uk/ena/data/view/Taxon:{taxonomyId}&display=xml";
+    public static final String ENA_TAXON_URL = "https://www.ebi.ac.uk/ena/data/view";
 
-    private static RestTemplate restTemplate = new RestTemplate();
+    private static final String TAXON_XML_PATH = "/Taxon:{taxonomyId}&display=xml";
+
+    private RestTemplate restTemplate;
 
     private TaxonomyRepository taxonomyRepository;
 
+    private String taxonXmlUrl;
+
     public TaxonomyEventHandler(TaxonomyRepository taxonomyRepository) {
+        this(taxonomyRepository, ENA_TAXON_URL);
+    }
+
+    /**
+     * @param enaTaxonUrl base URL of the ENA data view, which can point to a stub server when load testing the import
+     */
+    public TaxonomyEventHandler(TaxonomyRepository taxonomyRepository, String enaTaxonUrl) {
+        this(taxonomyRepository, enaTaxonUrl, new RestTemplate());
+    }
+
+    /**
+     * @param restTemplate template used to fetch the taxa, which can be shared with other clients of ENA, e.g. to
+     * limit the number of requests sent to it at once
+     */
+    public TaxonomyEventHandler(TaxonomyRepository taxonomyRepository, String enaTaxonUrl,
+                                RestTemplate restTemplate) {
         this.taxonomyRepository = taxonomyRepository;
+        this.taxonXmlUrl = enaTaxonUrl + TAXON_XML_PATH;
+        this.restTemplate = restTemplate;
     }
 
-    private static String getXml(Long taxonomyId) {
-        return restTemplate.getForEntity(ENA_TAXON_URL, String.class, taxonomyId).getBody();
+    private String getXml(Long taxonomyId) {
+        return restTemplate.getForEntity(taxonXmlUrl, String.class, taxonomyId).getBody();
     }
 
     private static String findTaxId(DomQueryUsingXPath domQueryUsingXPath, String rank) throws Exception {
@@ -17,7 +17,9 @@
  */
 package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
 
+import com.querydsl.core.types.Predicate;
 import io.swagger.annotations.ApiOperation;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.querydsl.QueryDslPredicateExecutor;
 import org.springframework.data.querydsl.binding.QuerydslBinderCustomizer;
 import org.springframework.data.querydsl.binding.QuerydslBindings;
@@ -32,12 +34,16 @@ import java.util.List;
 
 @RepositoryRestResource
 public interface AnalysisRepository extends PagingAndSortingRepository<Analysis, Long>,
-        QueryDslPredicateExecutor<Analysis>, QuerydslBinderCustomizer<QAnalysis> {
+        QueryDslPredicateExecutor<Analysis>, KeysetPredicateExecutor<Analysis>, QuerydslBinderCustomizer<QAnalysis> {
 
     default void customize(QuerydslBindings bindings, QAnalysis qAnalysis) {
         bindings.bind(qAnalysis.platform).first((path, value) -> path.equalsIgnoreCase(value));
     }
 
+    @Override
+    @EntityGraph(attributePaths = "study")
+    KeysetSlice<Analysis> findAll(Predicate predicate, Long after, int size);
+
     @ApiOperation(value = "Get the latest version of Analysis based on accession")
     @RestResource(path = "/accession")
     List<Analysis> findFirstByAccessionVersionId_AccessionOrderByAccessionVersionId_VersionDesc
@@ -18,6 +18,7 @@
 package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
 
 import io.swagger.annotations.ApiOperation;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.binding.QuerydslBinderCustomizer;
 import org.springframework.data.querydsl.binding.QuerydslBindings;
 import org.springframework.data.repository.query.Param;
@@ -26,10 +27,21 @@ import org.springframework.data.rest.core.annotation.RestResource;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.File;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.QFile;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 @RepositoryRestResource
-public interface FileRepository extends FileRepositoryCustom, QuerydslBinderCustomizer<QFile> {
+public interface FileRepository extends FileRepositoryCustom, NativeUpdateExecutor, QuerydslBinderCustomizer<QFile> {
+
+    String STUDIES_OF_FILE = "FROM analysis_files " +
+            "INNER JOIN analysis ON analysis_files.analysis_id = analysis.id " +
+            "INNER JOIN study ON analysis.study_id = study.id " +
+            "WHERE analysis_files.files_id = file.id";
+
+    String UPDATE_RELEASE_DATE_AND_STUDY_IDS = "UPDATE file SET " +
+            "release_date = (SELECT MIN(study.release_date) " + STUDIES_OF_FILE + "), " +
+            "study_ids = (SELECT STRING_AGG(study.accession, ',') " + STUDIES_OF_FILE + ") ";
 
     default void customize(QuerydslBindings bindings, QFile file) {
     }
@@ -38,4 +50,42 @@ public interface FileRepository extends FileRepositoryCustom, QuerydslBinderCust
     @RestResource(path = "/accession")
     List<File> findFirstByAccessionVersionId_AccessionOrderByAccessionVersionId_VersionDesc
             (@Param("accession") String accession);
+
+    /**
+     * Stores the release date and the ids of the studies of the files of an analysis, so that they don't need to be
+     * aggregated from the analyses linking to them whenever a file is loaded. It must be called whenever the files of
+     * an analysis change. The files are selected through the join table rather than by ID, as an analysis can have more
+     * files than a statement can have parameters.
+     */
+    default void updateReleaseDateAndStudyIdsOfAnalysis(long analysisId) {
+        updateNatively(UPDATE_RELEASE_DATE_AND_STUDY_IDS + "WHERE file.id IN (" +
+                "SELECT analysis_files.files_id FROM analysis_files " +
+                "WHERE analysis_files.analysis_id = :analysisId)",
+                Collections.singletonMap("analysisId", analysisId));
+    }
+
+    /**
+     * Stores the release date and the ids of the studies of the files linked to the analyses of a study. It must be
+     * called whenever the release date or accession of the study changes.
+     */
+    default void updateReleaseDateAndStudyIdsOfStudy(long studyId) {
+        updateNatively(UPDATE_RELEASE_DATE_AND_STUDY_IDS + "WHERE file.id IN (" +
+                "SELECT analysis_files.files_id FROM analysis_files " +
+                "INNER JOIN analysis ON analysis_files.analysis_id = analysis.id WHERE analysis.study_id = :studyId)",
+                Collections.singletonMap("studyId", studyId));
+    }
+
+    /**
+     * Stores the release date and the ids of the studies of the given files. It must be called for the files an
+     * analysis no longer links to, once they are unlinked or the analysis is deleted.
+     */
+    default void updateReleaseDateAndStudyIds(Collection<Long> ids) {
+        updateNatively(UPDATE_RELEASE_DATE_AND_STUDY_IDS + "WHERE file.id IN (:ids)",
+                Collections.singletonMap("ids", ids));
+    }
+
+    @RestResource(exported = false)
+    @Query("SELECT file.id FROM Analysis analysis JOIN analysis.files file WHERE analysis.id = :analysisId")
+    List<Long> findIdsByAnalysisId(@Param("analysisId") long analysisId);
+
 }
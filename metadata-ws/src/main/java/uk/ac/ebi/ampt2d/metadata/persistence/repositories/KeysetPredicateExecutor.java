@@ -0,0 +1,37 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
+
+import com.querydsl.core.types.Predicate;
+
+/**
+ * Finds entities matching a predicate one page at a time, using the ID of the last entity of a page as the cursor
+ * from which the next page starts (keyset pagination). Unlike offset pagination, fetching a page costs the same
+ * however far it is in the results, and no count of all the matching entities is needed.
+ */
+public interface KeysetPredicateExecutor<T> {
+
+    /**
+     * @param after ID after which the page starts, or null for the first page
+     * @param size  maximum number of entities in the page
+     */
+    KeysetSlice<T> findAll(Predicate predicate, Long after, int size);
+
+}
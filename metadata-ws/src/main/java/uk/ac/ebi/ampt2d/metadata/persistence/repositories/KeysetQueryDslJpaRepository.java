@@ -0,0 +1,88 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.JPQLQuery;
+import org.hibernate.SQLQuery;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.QueryDslJpaRepository;
+import org.springframework.data.querydsl.SimpleEntityPathResolver;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base class of the repositories, adding keyset pagination, see {@link KeysetPredicateExecutor}, and native updates,
+ * see {@link NativeUpdateExecutor}, to the Querydsl support of Spring Data. It has to be set as the repository base
+ * class wherever the repositories are enabled.
+ */
+public class KeysetQueryDslJpaRepository<T, ID extends Serializable> extends QueryDslJpaRepository<T, ID>
+        implements KeysetPredicateExecutor<T>, NativeUpdateExecutor {
+
+    private final JpaEntityInformation<T, ID> entityInformation;
+
+    private final EntityManager entityManager;
+
+    private final EntityPath<T> path;
+
+    private final NumberPath<Long> id;
+
+    public KeysetQueryDslJpaRepository(JpaEntityInformation<T, ID> entityInformation, EntityManager entityManager) {
+        super(entityInformation, entityManager);
+        this.entityInformation = entityInformation;
+        this.entityManager = entityManager;
+        this.path = SimpleEntityPathResolver.INSTANCE.createPath(entityInformation.getJavaType());
+        this.id = new PathBuilder<>(path.getType(), path.getMetadata())
+                .getNumber(entityInformation.getIdAttribute().getName(), Long.class);
+    }
+
+    @Override
+    public KeysetSlice<T> findAll(Predicate predicate, Long after, int size) {
+        Predicate where = ExpressionUtils.allOf(predicate, after != null ? id.gt(after) : null);
+        JPQLQuery<?> query = where != null ? createQuery(where) : createQuery();
+        // One more entity than requested tells whether there is a next page, without counting the matching ones
+        List<T> content = query.select(path).orderBy(id.asc()).limit(size + 1).fetch();
+        if (content.size() <= size) {
+            return new KeysetSlice<>(content, null);
+        }
+        content.remove(size);
+        Long nextAfter = (Long) entityInformation.getId(content.get(size - 1));
+        return new KeysetSlice<>(content, nextAfter);
+    }
+
+    @Override
+    @Transactional
+    public void updateNatively(String sql, Map<String, ?> parameters) {
+        Query query = entityManager.createNativeQuery(sql);
+        parameters.forEach(query::setParameter);
+        query.unwrap(SQLQuery.class).addSynchronizedEntityClass(entityInformation.getJavaType());
+        query.executeUpdate();
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * One page of entities found by {@link KeysetPredicateExecutor#findAll}, in ascending ID order, and the cursor from
+ * which the next page starts. The content can be filtered, for example by an aspect removing the entities the user is
+ * not allowed to see, without changing the cursor: a filtered page is shorter, but the next one starts after every
+ * entity of this page.
+ */
+public class KeysetSlice<T> implements Iterable<T> {
+
+    private final List<T> content;
+
+    private final Object nextAfter;
+
+    public KeysetSlice(List<T> content, Object nextAfter) {
+        this.content = content;
+        this.nextAfter = nextAfter;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return ID after which the next page starts, or another cursor for pages which are not in ID order, e.g. those
+     * of {@link uk.ac.ebi.ampt2d.metadata.persistence.search.TextSearchQuery}, or null if this is the last page
+     */
+    public Object getNextAfter() {
+        return nextAfter;
+    }
+
+    public boolean hasNext() {
+        return nextAfter != null;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return content.iterator();
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
+
+import java.util.Map;
+
+/**
+ * Runs native SQL statements which update the table of the entities of a repository. Unlike a native {@code @Query},
+ * after which Hibernate evicts the whole second-level cache as it cannot tell which tables were written to, only the
+ * cached entities and query results of that table are evicted.
+ */
+public interface NativeUpdateExecutor {
+
+    /**
+     * @param sql        statement writing to the table of the entities of the repository only
+     * @param parameters values of the named parameters of the statement
+     */
+    void updateNatively(String sql, Map<String, ?> parameters);
+
+}
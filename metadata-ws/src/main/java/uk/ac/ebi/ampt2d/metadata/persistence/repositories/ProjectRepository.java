@@ -18,6 +18,7 @@
 package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
 
 import io.swagger.annotations.ApiOperation;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QueryDslPredicateExecutor;
 import org.springframework.data.querydsl.binding.QuerydslBinderCustomizer;
 import org.springframework.data.querydsl.binding.QuerydslBindings;
@@ -27,12 +28,26 @@ import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.data.rest.core.annotation.RestResource;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.QProject;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Project;
+import uk.ac.ebi.ampt2d.metadata.persistence.search.TextSearchQuery;
+import uk.ac.ebi.ampt2d.metadata.persistence.search.SearchSchema;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 @RepositoryRestResource
 public interface ProjectRepository extends PagingAndSortingRepository<Project, Long>,
-        QueryDslPredicateExecutor<Project>, QuerydslBinderCustomizer<QProject> {
+        QueryDslPredicateExecutor<Project>, KeysetPredicateExecutor<Project>, NativeUpdateExecutor,
+        QuerydslBinderCustomizer<QProject> {
+
+    String PROJECT_TEXT_SEARCH_MATCHES = "SELECT id, ts_rank_cd(search_vector, query) AS rank " +
+            "FROM project, to_tsquery('english', :query) query WHERE search_vector @@ query " +
+            "AND (NOT :restricted OR release_date IS NULL OR release_date <= :today " +
+            "OR accession IN (:permittedStudies))";
+
+    String UPDATE_SPECIES = "UPDATE project SET species_id = (SELECT MIN(study.species_id) FROM study " +
+            "WHERE study.project_id = project.id) ";
 
     /**
      * Custom bindings define how queries should be performed when a simple "field-by-field equals" is not adequate.
@@ -49,4 +64,57 @@ public interface ProjectRepository extends PagingAndSortingRepository<Project, L
     List<Project> findFirstByAccessionVersionId_AccessionOrderByAccessionVersionId_VersionDesc
             (@Param("accession") String accession);
 
+    /**
+     * Stores the species of the projects of the given studies, which is the species of their studies, see
+     * {@link StudyRepository#updateSpecies(Collection)}, which must be called first.
+     */
+    default void updateSpeciesOfStudies(Collection<Long> studyIds) {
+        updateNatively(UPDATE_SPECIES +
+                "WHERE project.id IN (SELECT study.project_id FROM study WHERE study.id IN (:studyIds))",
+                Collections.singletonMap("studyIds", studyIds));
+    }
+
+    /**
+     * Stores the species of the given projects, from the species of their studies. It must be called for the projects
+     * a study no longer links to, once it is unlinked or deleted.
+     */
+    default void updateSpecies(Collection<Long> projectIds) {
+        updateNatively(UPDATE_SPECIES + "WHERE project.id IN (:projectIds)",
+                Collections.singletonMap("projectIds", projectIds));
+    }
+
+    @RestResource(exported = false)
+    @Query("SELECT study.project.id FROM Study study WHERE study.id = :studyId")
+    Long findIdByStudyId(@Param("studyId") long studyId);
+
+    /**
+     * Finds the IDs and ranks of the projects matching a full-text search query, see {@link TextSearchQuery}, in
+     * order of decreasing relevance. It can only be used if {@link SearchSchema#isFullTextSearchEnabled()}. If
+     * restricted, only the projects released by the given day, or with one of the given accessions, are matched, so
+     * that pages are not cut short by filtering them afterwards; the restriction is set by the ReleaseDateAspect.
+     */
+    @RestResource(exported = false)
+    @Query(nativeQuery = true, value = "WITH matches AS (" + PROJECT_TEXT_SEARCH_MATCHES + ") " +
+            "SELECT id, rank FROM matches ORDER BY rank DESC, id LIMIT :limit")
+    List<Object[]> findIdsByTextSearch(@Param("query") String query, @Param("restricted") boolean restricted,
+                                       @Param("today") LocalDate today,
+                                       @Param("permittedStudies") Collection<String> permittedStudies,
+                                       @Param("limit") int limit);
+
+    /**
+     * Finds the IDs and ranks of the projects matching a full-text search query which come after the given rank and
+     * ID, in order of decreasing relevance, see
+     * {@link #findIdsByTextSearch(String, boolean, LocalDate, Collection, int)}. The project with that ID need not
+     * match any more.
+     */
+    @RestResource(exported = false)
+    @Query(nativeQuery = true, value = "WITH matches AS (" + PROJECT_TEXT_SEARCH_MATCHES + ") " +
+            "SELECT id, rank FROM matches WHERE (rank, -id) < (:afterRank, -:afterId) " +
+            "ORDER BY rank DESC, id LIMIT :limit")
+    List<Object[]> findIdsByTextSearch(@Param("query") String query, @Param("restricted") boolean restricted,
+                                       @Param("today") LocalDate today,
+                                       @Param("permittedStudies") Collection<String> permittedStudies,
+                                       @Param("afterRank") float afterRank, @Param("afterId") long afterId,
+                                       @Param("limit") int limit);
+
 }
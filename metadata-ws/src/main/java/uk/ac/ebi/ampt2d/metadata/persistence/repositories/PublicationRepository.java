@@ -17,12 +17,24 @@
  */
 package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
 
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.querydsl.QueryDslPredicateExecutor;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Publication;
 
+import java.util.List;
+
 @RepositoryRestResource
-public interface PublicationRepository extends PagingAndSortingRepository<Publication, Long> {
+public interface PublicationRepository extends PagingAndSortingRepository<Publication, Long>,
+        QueryDslPredicateExecutor<Publication> {
 
     Publication findByPublicationId(String publicationId);
+
+    @RestResource(exported = false)
+    @Query("SELECT publication.id FROM Study study JOIN study.publications publication WHERE study.id = :studyId")
+    List<Long> findIdsByStudyId(@Param("studyId") long studyId);
+
 }
@@ -17,10 +17,13 @@
  */
 package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
 
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.querydsl.binding.QuerydslBinderCustomizer;
 import org.springframework.data.querydsl.binding.QuerydslBindings;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.QReferenceSequence;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.ReferenceSequence;
 
 @RepositoryRestResource(collectionResourceRel = "reference-sequences", path = "reference-sequences")
 public interface ReferenceSequenceRepository extends ReferenceSequenceRepositoryCustom,
@@ -33,4 +36,9 @@ public interface ReferenceSequenceRepository extends ReferenceSequenceRepository
                 .first((path, value) -> path.equalsIgnoreCase(value));
     }
 
+    @Override
+    @EntityGraph(attributePaths = {"taxonomy", "taxonomy.taxonomySpecies", "taxonomy.taxonomyGenus",
+            "taxonomy.taxonomyOrder", "taxonomy.taxonomyClass"})
+    KeysetSlice<ReferenceSequence> findAll(Predicate predicate, Long after, int size);
+
 }
@@ -18,16 +18,20 @@
 
 package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
 
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.querydsl.QueryDslPredicateExecutor;
 import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.ReferenceSequence;
 
+import javax.persistence.QueryHint;
+
 @NoRepositoryBean
 public interface ReferenceSequenceRepositoryCustom extends PagingAndSortingRepository<ReferenceSequence, Long>,
-        QueryDslPredicateExecutor<ReferenceSequence> {
+        QueryDslPredicateExecutor<ReferenceSequence>, KeysetPredicateExecutor<ReferenceSequence> {
 
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     ReferenceSequence findByAccession(@Param("accession") String accession);
 
     default ReferenceSequence findOrSave(ReferenceSequence referenceSequence) {
@@ -18,6 +18,7 @@
 package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
 
 import io.swagger.annotations.ApiOperation;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.binding.QuerydslBinderCustomizer;
 import org.springframework.data.querydsl.binding.QuerydslBindings;
 import org.springframework.data.repository.query.Param;
@@ -26,10 +27,22 @@ import org.springframework.data.rest.core.annotation.RestResource;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.QSample;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Sample;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 @RepositoryRestResource
-public interface SampleRepository extends SampleRepositoryCustom, QuerydslBinderCustomizer<QSample> {
+public interface SampleRepository extends SampleRepositoryCustom, NativeUpdateExecutor,
+        QuerydslBinderCustomizer<QSample> {
+
+    String STUDIES_OF_SAMPLE = "FROM analysis_samples " +
+            "INNER JOIN analysis ON analysis_samples.analysis_id = analysis.id " +
+            "INNER JOIN study ON analysis.study_id = study.id " +
+            "WHERE analysis_samples.samples_id = sample.id";
+
+    String UPDATE_RELEASE_DATE_AND_STUDY_IDS = "UPDATE sample SET " +
+            "release_date = (SELECT MIN(study.release_date) " + STUDIES_OF_SAMPLE + "), " +
+            "study_ids = (SELECT STRING_AGG(study.accession, ',') " + STUDIES_OF_SAMPLE + ") ";
 
     default void customize(QuerydslBindings bindings, QSample qSample) {
         bindings.bind(qSample.taxonomies.any().name)
@@ -41,4 +54,41 @@ public interface SampleRepository extends SampleRepositoryCustom, QuerydslBinder
     Sample findFirstByAccessionVersionId_AccessionOrderByAccessionVersionId_VersionDesc
             (@Param("accession") String accession);
 
+    /**
+     * Stores the release date and the ids of the studies of the samples of an analysis, so that they don't need to be
+     * aggregated from the analyses linking to them whenever a sample is loaded. It must be called whenever the samples
+     * of an analysis change. The samples are selected through the join table rather than by ID, as an analysis can have
+     * more samples than a statement can have parameters.
+     */
+    default void updateReleaseDateAndStudyIdsOfAnalysis(long analysisId) {
+        updateNatively(UPDATE_RELEASE_DATE_AND_STUDY_IDS + "WHERE sample.id IN (" +
+                "SELECT analysis_samples.samples_id FROM analysis_samples " +
+                "WHERE analysis_samples.analysis_id = :analysisId)",
+                Collections.singletonMap("analysisId", analysisId));
+    }
+
+    /**
+     * Stores the release date and the ids of the studies of the samples linked to the analyses of a study. It must be
+     * called whenever the release date or accession of the study changes.
+     */
+    default void updateReleaseDateAndStudyIdsOfStudy(long studyId) {
+        updateNatively(UPDATE_RELEASE_DATE_AND_STUDY_IDS + "WHERE sample.id IN (" +
+                "SELECT analysis_samples.samples_id FROM analysis_samples " +
+                "INNER JOIN analysis ON analysis_samples.analysis_id = analysis.id WHERE analysis.study_id = :studyId)",
+                Collections.singletonMap("studyId", studyId));
+    }
+
+    /**
+     * Stores the release date and the ids of the studies of the given samples. It must be called for the samples an
+     * analysis no longer links to, once they are unlinked or the analysis is deleted.
+     */
+    default void updateReleaseDateAndStudyIds(Collection<Long> ids) {
+        updateNatively(UPDATE_RELEASE_DATE_AND_STUDY_IDS + "WHERE sample.id IN (:ids)",
+                Collections.singletonMap("ids", ids));
+    }
+
+    @RestResource(exported = false)
+    @Query("SELECT sample.id FROM Analysis analysis JOIN analysis.samples sample WHERE analysis.id = :analysisId")
+    List<Long> findIdsByAnalysisId(@Param("analysisId") long analysisId);
+
 }
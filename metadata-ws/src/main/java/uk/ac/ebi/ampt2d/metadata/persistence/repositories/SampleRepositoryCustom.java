@@ -32,7 +32,7 @@ import java.util.stream.Collectors;
 
 @NoRepositoryBean
 public interface SampleRepositoryCustom extends PagingAndSortingRepository<Sample, Long>,
-        QueryDslPredicateExecutor<Sample> {
+        QueryDslPredicateExecutor<Sample>, KeysetPredicateExecutor<Sample> {
     QSample qSample = QSample.sample;
 
     default List<Sample> findOrSave(List<Sample> sampleIn) {
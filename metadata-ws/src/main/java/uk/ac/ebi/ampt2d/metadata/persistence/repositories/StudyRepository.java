@@ -18,6 +18,7 @@
 package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
 
 import io.swagger.annotations.ApiOperation;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.binding.QuerydslBinderCustomizer;
 import org.springframework.data.querydsl.binding.QuerydslBindings;
 import org.springframework.data.repository.query.Param;
@@ -25,11 +26,22 @@ import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.data.rest.core.annotation.RestResource;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.QStudy;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
+import uk.ac.ebi.ampt2d.metadata.persistence.search.TextSearchQuery;
+import uk.ac.ebi.ampt2d.metadata.persistence.search.SearchSchema;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 @RepositoryRestResource
-public interface StudyRepository extends StudyRepositoryCustom, QuerydslBinderCustomizer<QStudy> {
+public interface StudyRepository extends StudyRepositoryCustom, NativeUpdateExecutor,
+        QuerydslBinderCustomizer<QStudy> {
+
+    String STUDY_TEXT_SEARCH_MATCHES = "SELECT id, ts_rank_cd(search_vector, query) AS rank " +
+            "FROM study, to_tsquery('english', :query) query WHERE search_vector @@ query AND NOT deprecated " +
+            "AND (NOT :restricted OR release_date IS NULL OR release_date <= :today " +
+            "OR accession IN (:permittedStudies))";
 
     default void customize(QuerydslBindings bindings, QStudy study) {
         bindings.bind(study.analyses.any().referenceSequences.any().name,
@@ -42,4 +54,55 @@ public interface StudyRepository extends StudyRepositoryCustom, QuerydslBinderCu
     List<Study> findFirstByAccessionVersionId_AccessionOrderByAccessionVersionId_VersionDesc
             (@Param("accession") String accession);
 
+    /**
+     * Stores the species of the given studies, which is the species of the reference sequences of their analyses (the
+     * lowest taxonomy ID, if they differ), so that it doesn't need to be joined from the analyses whenever a study is
+     * loaded or searched by taxonomy. It must be called whenever analyses, or their links to reference sequences,
+     * change.
+     */
+    default void updateSpecies(Collection<Long> studyIds) {
+        updateNatively("UPDATE study SET species_id = (SELECT MIN(taxonomy.species_id) FROM taxonomy " +
+                "INNER JOIN reference_sequence ON reference_sequence.taxonomy_id = taxonomy.id " +
+                "INNER JOIN analysis_reference_sequences " +
+                "ON analysis_reference_sequences.reference_sequences_id = reference_sequence.id " +
+                "INNER JOIN analysis ON analysis.id = analysis_reference_sequences.analysis_id " +
+                "WHERE analysis.study_id = study.id) " +
+                "WHERE study.id IN (:studyIds)",
+                Collections.singletonMap("studyIds", studyIds));
+    }
+
+    @RestResource(exported = false)
+    @Query("SELECT analysis.study.id FROM Analysis analysis WHERE analysis.id = :analysisId")
+    Long findIdByAnalysisId(@Param("analysisId") long analysisId);
+
+    /**
+     * Finds the IDs and ranks of the studies matching a full-text search query, see {@link TextSearchQuery}, in
+     * order of decreasing relevance. It can only be used if {@link SearchSchema#isFullTextSearchEnabled()}. If
+     * restricted, only the studies released by the given day, or with one of the given accessions, are matched, so
+     * that pages are not cut short by filtering them afterwards; the restriction is set by the ReleaseDateAspect.
+     */
+    @RestResource(exported = false)
+    @Query(nativeQuery = true, value = "WITH matches AS (" + STUDY_TEXT_SEARCH_MATCHES + ") " +
+            "SELECT id, rank FROM matches ORDER BY rank DESC, id LIMIT :limit")
+    List<Object[]> findIdsByTextSearch(@Param("query") String query, @Param("restricted") boolean restricted,
+                                       @Param("today") LocalDate today,
+                                       @Param("permittedStudies") Collection<String> permittedStudies,
+                                       @Param("limit") int limit);
+
+    /**
+     * Finds the IDs and ranks of the studies matching a full-text search query which come after the given rank and
+     * ID, in order of decreasing relevance, see
+     * {@link #findIdsByTextSearch(String, boolean, LocalDate, Collection, int)}. The study with that ID need not
+     * match any more.
+     */
+    @RestResource(exported = false)
+    @Query(nativeQuery = true, value = "WITH matches AS (" + STUDY_TEXT_SEARCH_MATCHES + ") " +
+            "SELECT id, rank FROM matches WHERE (rank, -id) < (:afterRank, -:afterId) " +
+            "ORDER BY rank DESC, id LIMIT :limit")
+    List<Object[]> findIdsByTextSearch(@Param("query") String query, @Param("restricted") boolean restricted,
+                                       @Param("today") LocalDate today,
+                                       @Param("permittedStudies") Collection<String> permittedStudies,
+                                       @Param("afterRank") float afterRank, @Param("afterId") long afterId,
+                                       @Param("limit") int limit);
+
 }
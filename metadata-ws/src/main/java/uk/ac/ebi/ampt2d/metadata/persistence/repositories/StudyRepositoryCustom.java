@@ -26,7 +26,7 @@ import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
 
 @NoRepositoryBean
 public interface StudyRepositoryCustom extends PagingAndSortingRepository<Study, Long>,
-        QueryDslPredicateExecutor<Study> {
+        QueryDslPredicateExecutor<Study>, KeysetPredicateExecutor<Study> {
 
     QStudy qStudy = QStudy.study;
 
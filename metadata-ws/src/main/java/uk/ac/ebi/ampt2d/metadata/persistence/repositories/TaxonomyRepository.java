@@ -17,17 +17,20 @@
  */
 package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
 
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.data.rest.core.annotation.RestResource;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Taxonomy;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 @RepositoryRestResource
 public interface TaxonomyRepository extends TaxonomyRepositoryCustom, PagingAndSortingRepository<Taxonomy, Long> {
 
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Taxonomy findByTaxonomyId(@Param("taxonomyId") long taxonomyId);
 
     Taxonomy findByRank(@Param("rank") String rank);
@@ -35,14 +38,18 @@ public interface TaxonomyRepository extends TaxonomyRepositoryCustom, PagingAndS
     Taxonomy findByName(@Param("name") String name);
 
     @RestResource(path = "findByTaxonomyClass")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Taxonomy> findByTaxonomyClass_TaxonomyId(@Param("taxonomyId") long taxonomyId);
 
     @RestResource(path = "findByTaxonomyOrder")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Taxonomy> findByTaxonomyOrder_TaxonomyId(@Param("taxonomyId") long taxonomyId);
 
     @RestResource(path = "findByTaxonomyGenus")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Taxonomy> findByTaxonomyGenus_TaxonomyId(@Param("taxonomyId") long taxonomyId);
 
     @RestResource(path = "findByTaxonomySpecies")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Taxonomy> findByTaxonomySpecies_TaxonomyId(@Param("taxonomyId") long taxonomyId);
 }
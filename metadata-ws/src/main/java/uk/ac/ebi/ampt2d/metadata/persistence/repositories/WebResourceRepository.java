@@ -17,13 +17,24 @@
  */
 package uk.ac.ebi.ampt2d.metadata.persistence.repositories;
 
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.querydsl.QueryDslPredicateExecutor;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.WebResource;
 
+import java.util.List;
+
 @RepositoryRestResource
-public interface WebResourceRepository extends PagingAndSortingRepository<WebResource, Long> {
+public interface WebResourceRepository extends PagingAndSortingRepository<WebResource, Long>,
+        QueryDslPredicateExecutor<WebResource> {
 
     WebResource findByResourceUrl(String url);
 
+    @RestResource(exported = false)
+    @Query("SELECT webResource.id FROM Study study JOIN study.resources webResource WHERE study.id = :studyId")
+    List<Long> findIdsByStudyId(@Param("studyId") long studyId);
+
 }
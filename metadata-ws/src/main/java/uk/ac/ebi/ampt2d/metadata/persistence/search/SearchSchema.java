@@ -0,0 +1,92 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.persistence.search;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.util.logging.Logger;
+
+/**
+ * The full-text search columns of the study and project tables, see {@link TextSearchQuery}, which Hibernate doesn't
+ * know about. They are added once by the migration in docs/metadata-service/using-the-service.md, and only checked
+ * here. They can only be added in Postgres (9.6 or later); on other databases, e.g. the embedded one used by the
+ * tests, or until the migration has been run, text searches fall back to matching substrings of the name and
+ * description.
+ */
+public class SearchSchema {
+
+    private static final Logger LOGGER = Logger.getLogger(SearchSchema.class.getName());
+
+    private static final String[] TEXT_SEARCH_TABLES = {"study", "project"};
+
+    private static final String POSTGRES = "PostgreSQL";
+
+    private static final String COUNT_SEARCH_VECTOR_COLUMNS = "SELECT COUNT(*) FROM information_schema.columns " +
+            "WHERE table_schema = current_schema() AND table_name = ? AND column_name = 'search_vector'";
+
+    private static final String COUNT_SEARCH_VECTOR_TRIGGERS = "SELECT COUNT(*) FROM pg_trigger " +
+            "WHERE tgrelid = to_regclass(?) AND tgname = ?";
+
+    private final DataSource dataSource;
+
+    private boolean fullTextSearchEnabled;
+
+    public SearchSchema(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Enables full-text search if the database supports it and the search columns and their triggers exist. It must
+     * be called once the tables have been created.
+     */
+    public void initialize() throws MetaDataAccessException {
+        String databaseProductName = (String) JdbcUtils.extractDatabaseMetaData(dataSource, "getDatabaseProductName");
+        if (!POSTGRES.equals(databaseProductName)) {
+            LOGGER.info("Full-text search is not available in " + databaseProductName +
+                                ", text searches will match substrings");
+            return;
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String table : TEXT_SEARCH_TABLES) {
+            if (!hasSearchVector(jdbcTemplate, table)) {
+                LOGGER.warning("The " + table + " table has no search_vector column or trigger, text searches will " +
+                                       "match substrings until the full-text search migration is run");
+                return;
+            }
+        }
+        fullTextSearchEnabled = true;
+    }
+
+    private boolean hasSearchVector(JdbcTemplate jdbcTemplate, String table) {
+        return jdbcTemplate.queryForObject(COUNT_SEARCH_VECTOR_COLUMNS, Long.class, table) > 0 &&
+                jdbcTemplate.queryForObject(COUNT_SEARCH_VECTOR_TRIGGERS, Long.class, table,
+                                            table + "_search_vector_update") > 0;
+    }
+
+    /**
+     * @return whether text searches can use the full-text search columns
+     */
+    public boolean isFullTextSearchEnabled() {
+        return fullTextSearchEnabled;
+    }
+
+}
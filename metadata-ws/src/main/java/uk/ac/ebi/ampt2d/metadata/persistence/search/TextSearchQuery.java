@@ -0,0 +1,182 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.persistence.search;
+
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text search queries, ranked by relevance. A search term is made of words, all of which must be found, of
+ * phrases in double quotes, whose words must be found next to each other, and of prefixes, which are words ending
+ * with an asterisk, e.g. {@code "type 2" diab*}.
+ * <p>
+ * Results are paged with the rank and ID of the last entity of a page as the cursor, e.g. {@code 0.1:42}, like
+ * {@link KeysetSlice} pages ordered by ID: the next page starts after that rank and ID in order of decreasing
+ * relevance, even if that entity no longer matches.
+ */
+public final class TextSearchQuery {
+
+    private static final Pattern TERM = Pattern.compile("\"([^\"]*)\"?|(\\S+)");
+
+    private static final String PREFIX = "*";
+
+    private static final String CURSOR_SEPARATOR = ":";
+
+    /**
+     * The permitted studies to search with when none is permitted, as the list of an IN clause can't be empty, and no
+     * study has an empty accession.
+     */
+    public static final Collection<String> NO_PERMITTED_STUDIES = Collections.singleton("");
+
+    private TextSearchQuery() {
+    }
+
+    /**
+     * @return the search term as the text of a Postgres tsquery, to be parsed by {@code to_tsquery}, or null if it
+     * has no words
+     */
+    public static String toTsQuery(String searchTerm) {
+        List<String> terms = new ArrayList<>();
+        Matcher matcher = TERM.matcher(searchTerm != null ? searchTerm : "");
+        while (matcher.find()) {
+            String term = matcher.group(1) != null ?
+                    toPhrase(matcher.group(1)) : toLexeme(matcher.group(2));
+            if (term != null) {
+                terms.add(term);
+            }
+        }
+        return terms.isEmpty() ? null : String.join(" & ", terms);
+    }
+
+    private static String toPhrase(String phrase) {
+        List<String> lexemes = new ArrayList<>();
+        for (String word : phrase.trim().split("\\s+")) {
+            String lexeme = toLexeme(word);
+            if (lexeme != null) {
+                lexemes.add(lexeme);
+            }
+        }
+        return lexemes.isEmpty() ? null : "(" + String.join(" <-> ", lexemes) + ")";
+    }
+
+    /**
+     * Quotes a word, so that none of its characters are taken as tsquery operators
+     */
+    private static String toLexeme(String word) {
+        boolean prefix = word.endsWith(PREFIX);
+        while (word.endsWith(PREFIX)) {
+            word = word.substring(0, word.length() - PREFIX.length());
+        }
+        if (word.isEmpty()) {
+            return null;
+        }
+        return "'" + word.replace("\\", "\\\\").replace("'", "''") + "'" + (prefix ? ":*" : "");
+    }
+
+    /**
+     * Makes a page of the entities with the given IDs, in the order of the IDs.
+     *
+     * @param matches ID and rank of the matching entities, in order of decreasing relevance, one more than the page
+     *                size if there is a next page
+     * @param size    maximum number of entities in the page
+     * @param finder  loads the entities with the given IDs, leaving out those the user is not allowed to see
+     * @param idOf    ID of an entity
+     */
+    public static <T> KeysetSlice<T> toSlice(List<Object[]> matches, int size,
+                                             Function<List<Long>, List<T>> finder, Function<T, Long> idOf) {
+        List<Long> pageIds = matches.stream().limit(size).map(match -> ((Number) match[0]).longValue())
+                                    .collect(Collectors.toList());
+        String nextAfter = null;
+        if (matches.size() > size) {
+            Object[] lastMatch = matches.get(size - 1);
+            nextAfter = new Cursor(((Number) lastMatch[1]).floatValue(), pageIds.get(size - 1)).toString();
+        }
+        if (pageIds.isEmpty()) {
+            return new KeysetSlice<>(Collections.emptyList(), nextAfter);
+        }
+        List<T> content = new ArrayList<>(finder.apply(pageIds));
+        content.sort(Comparator.comparingInt(entity -> pageIds.indexOf(idOf.apply(entity))));
+        return new KeysetSlice<>(content, nextAfter);
+    }
+
+    /**
+     * The rank and ID of the entity after which a page of results starts
+     */
+    public static final class Cursor {
+
+        private final Float rank;
+
+        private final long id;
+
+        private Cursor(Float rank, long id) {
+            this.rank = rank;
+            this.id = id;
+        }
+
+        /**
+         * @param after  the after parameter, as given by the next link of a page
+         * @param ranked whether it is {@code <rank>:<id>}, which it is if full-text search is enabled, or only an ID
+         * @throws IllegalArgumentException if it is not
+         */
+        public static Cursor parse(String after, boolean ranked) {
+            int separator = after.indexOf(CURSOR_SEPARATOR);
+            try {
+                if (!ranked && separator < 0) {
+                    return new Cursor(null, Long.parseLong(after));
+                }
+                if (ranked && separator >= 0) {
+                    float rank = Float.parseFloat(after.substring(0, separator));
+                    if (Float.isFinite(rank)) {
+                        return new Cursor(rank, Long.parseLong(after.substring(separator + 1)));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                // Not a number, reported as any other invalid cursor
+            }
+            throw new IllegalArgumentException("Please provide the after parameter as given by the next link");
+        }
+
+        /**
+         * @return the rank, or null if the cursor is not ranked
+         */
+        public Float getRank() {
+            return rank;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return rank + CURSOR_SEPARATOR + id;
+        }
+
+    }
+
+}
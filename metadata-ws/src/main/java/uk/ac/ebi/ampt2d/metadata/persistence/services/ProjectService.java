@@ -19,6 +19,7 @@ package uk.ac.ebi.ampt2d.metadata.persistence.services;
 
 import com.querydsl.core.types.Predicate;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Project;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -31,15 +32,17 @@ public interface ProjectService {
 
     List<Project> findProjectsByPredicate(Predicate predicate);
 
+    KeysetSlice<Project> findProjectsByPredicate(Predicate predicate, Long after, int size);
+
     Project findProjectByAccession(String accession);
 
-    List<Project> findProjectsByReleaseDate(LocalDate from, LocalDate to);
+    KeysetSlice<Project> findProjectsByReleaseDate(LocalDate from, LocalDate to, Long after, int size);
 
-    List<Project> findProjectsByTextSearch(String searchTerm);
+    KeysetSlice<Project> findProjectsByTextSearch(String searchTerm, String after, int size);
 
-    List<Project> findProjectsByTaxonomyId(long id);
+    KeysetSlice<Project> findProjectsByTaxonomyId(long id, Long after, int size);
 
-    List<Project> findProjectsByTaxonomyName(String name);
+    KeysetSlice<Project> findProjectsByTaxonomyName(String name, Long after, int size);
 
     List<Project> findLinkedProjects(long id);
 
@@ -22,10 +22,15 @@ import com.querydsl.core.types.Predicate;
 import org.springframework.beans.factory.annotation.Autowired;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.QProject;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Project;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ProjectRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.search.TextSearchQuery;
+import uk.ac.ebi.ampt2d.metadata.persistence.search.SearchSchema;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
@@ -43,6 +48,9 @@ public class ProjectServiceImpl implements ProjectService {
     @Autowired
     private TaxonomyService taxonomyService;
 
+    @Autowired
+    private SearchSchema searchSchema;
+
     @Override
     public Project findOneProjectByPredicate(Predicate predicate) {
         return projectRepository.findOne(predicate);
@@ -60,6 +68,11 @@ public class ProjectServiceImpl implements ProjectService {
         return (List<Project>) projectRepository.findAll(predicate);
     }
 
+    @Override
+    public KeysetSlice<Project> findProjectsByPredicate(Predicate predicate, Long after, int size) {
+        return projectRepository.findAll(predicate, after, size);
+    }
+
     @Override
     public Project findProjectByAccession(String accession) {
         QProject project = QProject.project;
@@ -78,38 +91,58 @@ public class ProjectServiceImpl implements ProjectService {
     }
 
     @Override
-    public List<Project> findProjectsByReleaseDate(LocalDate from, LocalDate to) {
+    public KeysetSlice<Project> findProjectsByReleaseDate(LocalDate from, LocalDate to, Long after, int size) {
         QProject project = QProject.project;
         Predicate predicate = project.releaseDate.between(from, to);
 
-        return findProjectsByPredicate(predicate);
+        return findProjectsByPredicate(predicate, after, size);
     }
 
     @Override
-    public List<Project> findProjectsByTextSearch(String searchTerm) {
+    public KeysetSlice<Project> findProjectsByTextSearch(String searchTerm, String after, int size) {
         QProject project = QProject.project;
-        Predicate predicate = project.name.containsIgnoreCase(searchTerm).
-                or(project.description.containsIgnoreCase(searchTerm));
+        boolean fullTextSearchEnabled = searchSchema.isFullTextSearchEnabled();
+        TextSearchQuery.Cursor cursor = after != null ?
+                TextSearchQuery.Cursor.parse(after, fullTextSearchEnabled) : null;
+        if (!fullTextSearchEnabled) {
+            Predicate predicate = project.name.containsIgnoreCase(searchTerm).
+                    or(project.description.containsIgnoreCase(searchTerm));
+
+            return findProjectsByPredicate(predicate, cursor != null ? cursor.getId() : null, size);
+        }
 
-        return findProjectsByPredicate(predicate);
+        String query = TextSearchQuery.toTsQuery(searchTerm);
+        if (query == null) {
+            return new KeysetSlice<>(Collections.emptyList(), null);
+        }
+        // One more ID than requested tells whether there is a next page. The search is unrestricted unless the
+        // ReleaseDateAspect restricts it to the entities the user can access
+        LocalDate today = LocalDate.now();
+        Collection<String> permittedStudies = TextSearchQuery.NO_PERMITTED_STUDIES;
+        List<Object[]> matches = cursor != null ?
+                projectRepository.findIdsByTextSearch(query, false, today, permittedStudies, cursor.getRank(),
+                        cursor.getId(), size + 1) :
+                projectRepository.findIdsByTextSearch(query, false, today, permittedStudies, size + 1);
+        return TextSearchQuery.toSlice(matches, size, projectIds -> findProjectsByPredicate(project.id.in(projectIds)),
+                                       Project::getId);
     }
 
     @Override
-    public List<Project> findProjectsByTaxonomyId(long id) {
+    public KeysetSlice<Project> findProjectsByTaxonomyId(long id, Long after, int size) {
         List<Long> taxonomyIds = taxonomyService.findAllTaxonomiesInATreeByTaxonomyIds(id);
-        return getProjectsByTaxonomyIds(taxonomyIds);
+        return getProjectsByTaxonomyIds(taxonomyIds, after, size);
     }
 
     @Override
-    public List<Project> findProjectsByTaxonomyName(String name) {
+    public KeysetSlice<Project> findProjectsByTaxonomyName(String name, Long after, int size) {
         List<Long> taxonomyIds = taxonomyService.findAllTaxonomiesInATreeByTaxonomyName(name);
-        return getProjectsByTaxonomyIds(taxonomyIds);
+        return getProjectsByTaxonomyIds(taxonomyIds, after, size);
     }
 
-    public List<Project> getProjectsByTaxonomyIds(List<Long> taxonomyIds) {
+    public KeysetSlice<Project> getProjectsByTaxonomyIds(List<Long> taxonomyIds, Long after, int size) {
         QProject project = QProject.project;
         Predicate predicate = project.taxonomy.taxonomyId.in(taxonomyIds);
-        return (List<Project>) projectRepository.findAll(predicate);
+        return projectRepository.findAll(predicate, after, size);
     }
 
     @Override
@@ -18,12 +18,11 @@
 package uk.ac.ebi.ampt2d.metadata.persistence.services;
 
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.ReferenceSequence;
-
-import java.util.List;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
 
 public interface ReferenceSequenceService {
 
-    List<ReferenceSequence> findReferenceSequencesByTaxonomyId(long id);
+    KeysetSlice<ReferenceSequence> findReferenceSequencesByTaxonomyId(long id, Long after, int size);
 
-    List<ReferenceSequence> findReferenceSequencesByTaxonomyName(String name);
+    KeysetSlice<ReferenceSequence> findReferenceSequencesByTaxonomyName(String name, Long after, int size);
 }
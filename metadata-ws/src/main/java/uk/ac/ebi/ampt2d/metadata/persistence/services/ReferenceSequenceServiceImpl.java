@@ -21,6 +21,7 @@ import com.querydsl.core.types.Predicate;
 import org.springframework.beans.factory.annotation.Autowired;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.QReferenceSequence;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.ReferenceSequence;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ReferenceSequenceRepository;
 
 import java.util.List;
@@ -34,20 +35,20 @@ public class ReferenceSequenceServiceImpl implements ReferenceSequenceService {
     private TaxonomyService taxonomyService;
 
     @Override
-    public List<ReferenceSequence> findReferenceSequencesByTaxonomyId(long id) {
+    public KeysetSlice<ReferenceSequence> findReferenceSequencesByTaxonomyId(long id, Long after, int size) {
         List<Long> taxonomyIds = taxonomyService.findAllTaxonomiesInATreeByTaxonomyIds(id);
-        return getReferenceSequences(taxonomyIds);
+        return getReferenceSequences(taxonomyIds, after, size);
     }
 
     @Override
-    public List<ReferenceSequence> findReferenceSequencesByTaxonomyName(String name) {
+    public KeysetSlice<ReferenceSequence> findReferenceSequencesByTaxonomyName(String name, Long after, int size) {
         List<Long> taxonomyIds = taxonomyService.findAllTaxonomiesInATreeByTaxonomyName(name);
-        return getReferenceSequences(taxonomyIds);
+        return getReferenceSequences(taxonomyIds, after, size);
     }
 
-    public List<ReferenceSequence> getReferenceSequences(List<Long> taxonomyIds) {
+    public KeysetSlice<ReferenceSequence> getReferenceSequences(List<Long> taxonomyIds, Long after, int size) {
         QReferenceSequence referenceSequence = QReferenceSequence.referenceSequence;
         Predicate predicate = referenceSequence.taxonomy.taxonomyId.in(taxonomyIds);
-        return (List<ReferenceSequence>) referenceSequenceRepository.findAll(predicate);
+        return referenceSequenceRepository.findAll(predicate, after, size);
     }
 }
@@ -19,6 +19,7 @@ package uk.ac.ebi.ampt2d.metadata.persistence.services;
 
 import com.querydsl.core.types.Predicate;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -31,15 +32,17 @@ public interface StudyService {
 
     List<Study> findStudiesByPredicate(Predicate predicate);
 
+    KeysetSlice<Study> findStudiesByPredicate(Predicate predicate, Long after, int size);
+
     Study findStudyByAccession(String accession);
 
-    List<Study> findStudiesByReleaseDate(LocalDate from, LocalDate to);
+    KeysetSlice<Study> findStudiesByReleaseDate(LocalDate from, LocalDate to, Long after, int size);
 
-    List<Study> findStudiesByTextSearch(String searchTerm);
+    KeysetSlice<Study> findStudiesByTextSearch(String searchTerm, String after, int size);
 
-    List<Study> findStudiesByTaxonomyId(long id);
+    KeysetSlice<Study> findStudiesByTaxonomyId(long id, Long after, int size);
 
-    List<Study> findStudiesByTaxonomyName(String name);
+    KeysetSlice<Study> findStudiesByTaxonomyName(String name, Long after, int size);
 
     List<Study> findLinkedStudies(long id);
 
@@ -22,10 +22,16 @@ import com.querydsl.core.types.Predicate;
 import org.springframework.beans.factory.annotation.Autowired;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.QStudy;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
+import uk.ac.ebi.ampt2d.metadata.persistence.events.StudyEventHandler;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.StudyRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.search.TextSearchQuery;
+import uk.ac.ebi.ampt2d.metadata.persistence.search.SearchSchema;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
@@ -37,12 +43,18 @@ public class StudyServiceImpl implements StudyService {
     @Autowired
     private StudyRepository studyRepository;
 
+    @Autowired
+    private StudyEventHandler studyEventHandler;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @Autowired
     private TaxonomyService taxonomyService;
 
+    @Autowired
+    private SearchSchema searchSchema;
+
     @Override
     public Study findOneStudyByPredicate(Predicate predicate) {
         return studyRepository.findOne(predicate);
@@ -60,6 +72,11 @@ public class StudyServiceImpl implements StudyService {
         return (List<Study>) studyRepository.findAll(predicate);
     }
 
+    @Override
+    public KeysetSlice<Study> findStudiesByPredicate(Predicate predicate, Long after, int size) {
+        return studyRepository.findAll(predicate, after, size);
+    }
+
     @Override
     public Study findStudyByAccession(String accession) {
         QStudy study = QStudy.study;
@@ -78,38 +95,58 @@ public class StudyServiceImpl implements StudyService {
     }
 
     @Override
-    public List<Study> findStudiesByReleaseDate(LocalDate from, LocalDate to) {
+    public KeysetSlice<Study> findStudiesByReleaseDate(LocalDate from, LocalDate to, Long after, int size) {
         QStudy study = QStudy.study;
         Predicate predicate = study.releaseDate.between(from, to);
 
-        return findStudiesByPredicate(predicate);
+        return findStudiesByPredicate(predicate, after, size);
     }
 
     @Override
-    public List<Study> findStudiesByTextSearch(String searchTerm) {
+    public KeysetSlice<Study> findStudiesByTextSearch(String searchTerm, String after, int size) {
         QStudy study = QStudy.study;
-        Predicate predicate = study.name.containsIgnoreCase(searchTerm).
-                or(study.description.containsIgnoreCase(searchTerm));
+        boolean fullTextSearchEnabled = searchSchema.isFullTextSearchEnabled();
+        TextSearchQuery.Cursor cursor = after != null ?
+                TextSearchQuery.Cursor.parse(after, fullTextSearchEnabled) : null;
+        if (!fullTextSearchEnabled) {
+            Predicate predicate = study.name.containsIgnoreCase(searchTerm).
+                    or(study.description.containsIgnoreCase(searchTerm));
+
+            return findStudiesByPredicate(predicate, cursor != null ? cursor.getId() : null, size);
+        }
 
-        return findStudiesByPredicate(predicate);
+        String query = TextSearchQuery.toTsQuery(searchTerm);
+        if (query == null) {
+            return new KeysetSlice<>(Collections.emptyList(), null);
+        }
+        // One more ID than requested tells whether there is a next page. The search is unrestricted unless the
+        // ReleaseDateAspect restricts it to the entities the user can access
+        LocalDate today = LocalDate.now();
+        Collection<String> permittedStudies = TextSearchQuery.NO_PERMITTED_STUDIES;
+        List<Object[]> matches = cursor != null ?
+                studyRepository.findIdsByTextSearch(query, false, today, permittedStudies, cursor.getRank(),
+                        cursor.getId(), size + 1) :
+                studyRepository.findIdsByTextSearch(query, false, today, permittedStudies, size + 1);
+        return TextSearchQuery.toSlice(matches, size, studyIds -> findStudiesByPredicate(study.id.in(studyIds)),
+                                       Study::getId);
     }
 
     @Override
-    public List<Study> findStudiesByTaxonomyId(long id) {
+    public KeysetSlice<Study> findStudiesByTaxonomyId(long id, Long after, int size) {
         List<Long> taxonomyIds = taxonomyService.findAllTaxonomiesInATreeByTaxonomyIds(id);
-        return getStudiesByTaxonomyIds(taxonomyIds);
+        return getStudiesByTaxonomyIds(taxonomyIds, after, size);
     }
 
     @Override
-    public List<Study> findStudiesByTaxonomyName(String name) {
+    public KeysetSlice<Study> findStudiesByTaxonomyName(String name, Long after, int size) {
         List<Long> taxonomyIds = taxonomyService.findAllTaxonomiesInATreeByTaxonomyName(name);
-        return getStudiesByTaxonomyIds(taxonomyIds);
+        return getStudiesByTaxonomyIds(taxonomyIds, after, size);
     }
 
-    public List<Study> getStudiesByTaxonomyIds(List<Long> taxonomyIds) {
+    public KeysetSlice<Study> getStudiesByTaxonomyIds(List<Long> taxonomyIds, Long after, int size) {
         QStudy study = QStudy.study;
         Predicate predicate = study.taxonomy.taxonomyId.in(taxonomyIds);
-        return (List<Study>) studyRepository.findAll(predicate);
+        return studyRepository.findAll(predicate, after, size);
     }
 
     @Override
@@ -136,9 +173,14 @@ public class StudyServiceImpl implements StudyService {
 
     @Override
     public Study patch(Study study, String patch) throws Exception {
+        studyEventHandler.rememberLinks(study);
         Study study1 = objectMapper.readerForUpdating(study).readValue(patch);
 
-        return studyRepository.save(study1);
+        study1 = studyRepository.save(study1);
+        // The study is not saved through Spring Data REST, so what is derived from its release date is updated here
+        studyEventHandler.updateReleaseDateAndStudyIds(study1);
+        studyEventHandler.updateDerivedFields(study1);
+        return study1;
     }
 
     private List<Study> findParentStudy(Study child) {
@@ -18,6 +18,7 @@
 package uk.ac.ebi.ampt2d.metadata.rest.assemblers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.rest.webmvc.mapping.LinkCollector;
 import org.springframework.data.rest.webmvc.support.RepositoryEntityLinks;
 import org.springframework.hateoas.Link;
@@ -27,6 +28,7 @@ import org.springframework.hateoas.core.EmbeddedWrappers;
 import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Auditable;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
 
 import java.util.Arrays;
 import java.util.List;
@@ -42,6 +44,12 @@ public class GenericResourceAssembler<ENTITY extends Auditable, RESOURCE extends
 
     private static final EmbeddedWrappers WRAPPERS = new EmbeddedWrappers(false);
 
+    @Value("${endpoints.search.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${endpoints.search.max-page-size:1000}")
+    private int maxPageSize;
+
     public GenericResourceAssembler(Class<?> controllerClass, Class<RESOURCE> resourceType) {
         super(controllerClass, resourceType);
     }
@@ -63,6 +71,31 @@ public class GenericResourceAssembler<ENTITY extends Auditable, RESOURCE extends
         return new Resources<RESOURCE>(resourceList, getDefaultSelfLink());
     }
 
+    /**
+     * A page of search results, with a link to the next page if there is one. The next page is the same request,
+     * starting after the last entity of this page.
+     */
+    public Resources<?> toResources(Class<ENTITY> type, KeysetSlice<ENTITY> slice) {
+        Resources<?> resources = toResources(type, slice.getContent());
+        if (slice.hasNext()) {
+            resources.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest()
+                                                              .replaceQueryParam("after", slice.getNextAfter())
+                                                              .build().toUriString(), Link.REL_NEXT));
+        }
+        return resources;
+    }
+
+    /**
+     * @param size page size requested by the client, if any
+     * @return the page size to use, which is capped so that a search never loads every matching entity at once
+     */
+    public int getPageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+
     private Link getDefaultSelfLink() {
         return new Link(ServletUriComponentsBuilder.fromCurrentRequest().build().toUriString());
     }
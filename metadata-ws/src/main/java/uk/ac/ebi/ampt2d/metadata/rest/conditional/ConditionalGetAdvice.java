@@ -0,0 +1,215 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.rest.conditional;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.core.MethodParameter;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.ResourceSupport;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.core.EmbeddedWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Auditable;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Adds a strong ETag to the responses of GET requests which are made of entities, item or collection resources, and
+ * answers the requests whose If-None-Match header matches it with 304 Not Modified, before anything is serialized.
+ * The ETag is a hash of the state of the entities, of the links and page metadata of the response, and of its media
+ * type, so that it changes whenever the representation does.
+ * <p>
+ * Item resources also get a Last-Modified header. As the last modification of an entity is only known to the day, it
+ * is the end of that day, or the time of the request if the entity was modified on the day of the request, and
+ * requests are only answered with 304 Not Modified if their If-Modified-Since is later than that (see
+ * {@link IfModifiedSinceFilter}). Collections get no Last-Modified header: entities can be added to them or removed
+ * from them without the last modification of any of their entities changing.
+ * <p>
+ * Responses depend on the access of the user to unreleased entities, so they may only be cached by the client, and
+ * have to be revalidated with their ETag.
+ */
+@ControllerAdvice
+public class ConditionalGetAdvice implements ResponseBodyAdvice<Object> {
+
+    private static final String CACHE_CONTROL = "private, no-cache";
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    public ConditionalGetAdvice(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest) || !(response instanceof ServletServerHttpResponse) ||
+                !(request.getMethod() == HttpMethod.GET || request.getMethod() == HttpMethod.HEAD) ||
+                ((ServletServerHttpResponse) response).getServletResponse().getStatus() != HttpStatus.OK.value()) {
+            return body;
+        }
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(String.valueOf(selectedContentType), StandardCharsets.UTF_8);
+        if (!putRepresentation(hasher, body)) {
+            return body;
+        }
+        String eTag = "\"" + hasher.hash() + "\"";
+        Long lastModified = body instanceof Resource ? getLastModified(((Resource<?>) body).getContent()) : null;
+
+        HttpHeaders headers = response.getHeaders();
+        headers.setETag(eTag);
+        // Replaces the one set by Spring Data REST, which is the start of the day of the last modification
+        headers.remove(HttpHeaders.LAST_MODIFIED);
+        if (lastModified != null) {
+            headers.setLastModified(lastModified);
+        }
+        // Replaces the one set by Spring Security, which forbids storing the response
+        ((ServletServerHttpResponse) response).getServletResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+
+        if (isNotModified(((ServletServerHttpRequest) request), eTag, lastModified)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            try {
+                // Writes the headers, as there is no body to write them with
+                response.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }
+        return body;
+    }
+
+    private boolean isNotModified(ServletServerHttpRequest request, String eTag, Long lastModified) {
+        List<String> ifNoneMatch = request.getHeaders().get(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String eTags : ifNoneMatch) {
+                for (String candidate : eTags.split(",")) {
+                    candidate = candidate.trim();
+                    if (candidate.startsWith("W/")) {
+                        candidate = candidate.substring(2);
+                    }
+                    if (candidate.equals("*") || candidate.equals(eTag)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        Object ifModifiedSince = request.getServletRequest().getAttribute(IfModifiedSinceFilter.IF_MODIFIED_SINCE);
+        return lastModified != null && ifModifiedSince != null && lastModified <= (Long) ifModifiedSince;
+    }
+
+    /**
+     * @return the end of the day the entity was last modified, or the current time if it is sooner, in milliseconds
+     * truncated to the second, as HTTP dates are
+     */
+    private static Long getLastModified(Object entity) {
+        if (!(entity instanceof Auditable) || ((Auditable) entity).getLastModifiedDate() == null) {
+            return null;
+        }
+        LocalDate lastModifiedDate = ((Auditable) entity).getLastModifiedDate();
+        long endOfDay = lastModifiedDate.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        return Math.min(endOfDay, System.currentTimeMillis()) / 1000 * 1000;
+    }
+
+    /**
+     * Puts what the representation of a response body is made of into the hasher.
+     *
+     * @return whether the body is made of entities, and so has been put into the hasher
+     */
+    private boolean putRepresentation(Hasher hasher, Object body) {
+        if (body instanceof ResourceSupport) {
+            hasher.putString(((ResourceSupport) body).getLinks().toString(), StandardCharsets.UTF_8);
+        }
+        if (body instanceof PagedResources) {
+            hasher.putString(String.valueOf(((PagedResources<?>) body).getMetadata()), StandardCharsets.UTF_8);
+        }
+        if (body instanceof Resource) {
+            return putEntity(hasher, ((Resource<?>) body).getContent());
+        }
+        if (body instanceof Resources) {
+            for (Object content : (Resources<?>) body) {
+                if (content instanceof EmbeddedWrapper) {
+                    hasher.putString(String.valueOf(((EmbeddedWrapper) content).getRelTargetType()),
+                                     StandardCharsets.UTF_8);
+                } else if (!(content instanceof ResourceSupport ? putRepresentation(hasher, content)
+                                                                : putEntity(hasher, content))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Puts the name, ID and properties of an entity into the hasher, with the IDs of the entities it refers to, but
+     * not its collections, which are only linked to.
+     *
+     * @return whether the object is an entity, and so has been put into the hasher
+     */
+    private boolean putEntity(Hasher hasher, Object entity) {
+        if (entity == null || sessionFactory.getClassMetadata(Hibernate.getClass(entity)) == null) {
+            return false;
+        }
+        EntityPersister persister = sessionFactory.getEntityPersister(Hibernate.getClass(entity).getName());
+        hasher.putString(persister.getEntityName(), StandardCharsets.UTF_8).putChar('#')
+              .putString(String.valueOf(persister.getIdentifier(entity, (SessionImplementor) null)),
+                         StandardCharsets.UTF_8);
+        Object[] values = persister.getPropertyValues(entity);
+        Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < values.length; i++) {
+            if (!types[i].isCollectionType()) {
+                hasher.putChar('\0').putString(types[i].toLoggableString(values[i], sessionFactory),
+                                               StandardCharsets.UTF_8);
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package uk.ac.ebi.ampt2d.metadata.rest.conditional;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.stream.Collectors;
+
+/**
+ * Takes the If-Modified-Since header of GET and HEAD requests out of the request, and keeps its value in the
+ * {@link #IF_MODIFIED_SINCE} attribute for {@link ConditionalGetAdvice}.
+ * <p>
+ * The last modification of entities is only known to the day, which Spring Data REST and Spring MVC would otherwise
+ * compare to If-Modified-Since as if it were the exact time of the modification, answering 304 Not Modified to
+ * clients which got the entity earlier on the day it was last modified.
+ */
+public class IfModifiedSinceFilter extends OncePerRequestFilter {
+
+    public static final String IF_MODIFIED_SINCE = IfModifiedSinceFilter.class.getName() + ".IF_MODIFIED_SINCE";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) == null ||
+                !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try {
+            request.setAttribute(IF_MODIFIED_SINCE, request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE));
+        } catch (IllegalArgumentException e) {
+            // An invalid date is ignored, as if there were no If-Modified-Since header
+        }
+        filterChain.doFilter(new WithoutIfModifiedSinceRequest(request), response);
+    }
+
+    private static class WithoutIfModifiedSinceRequest extends HttpServletRequestWrapper {
+
+        WithoutIfModifiedSinceRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isIfModifiedSince(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isIfModifiedSince(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public long getDateHeader(String name) {
+            return isIfModifiedSince(name) ? -1 : super.getDateHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                                                     .filter(name -> !isIfModifiedSince(name))
+                                                     .collect(Collectors.toList()));
+        }
+
+        private static boolean isIfModifiedSince(String name) {
+            return HttpHeaders.IF_MODIFIED_SINCE.equalsIgnoreCase(name);
+        }
+
+    }
+
+}
@@ -22,6 +22,7 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.querydsl.binding.QuerydslPredicate;
 import org.springframework.data.rest.webmvc.RepositoryLinksResource;
@@ -31,15 +32,15 @@ import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Analysis;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.AnalysisRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
 import uk.ac.ebi.ampt2d.metadata.rest.assemblers.GenericResourceAssembler;
 import uk.ac.ebi.ampt2d.metadata.rest.resources.AnalysisResource;
 
-import java.util.List;
-
 @RestController
 @Api(tags = "Analysis Entity")
 @RequestMapping(path = "analyses")
@@ -64,8 +65,14 @@ public class AnalysisRestController implements ResourceProcessor<RepositoryLinks
     @RequestMapping(method = RequestMethod.GET, path = "search", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<AnalysisResource>> search(@QuerydslPredicate(root = Analysis.class) Predicate predicate) {
-        List<Analysis> analyses = (List<Analysis>) analysisRepository.findAll(predicate);
+    public ResponseEntity<Resources<AnalysisResource>> search(
+            @QuerydslPredicate(root = Analysis.class) Predicate predicate,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<Analysis> analyses = analysisRepository.findAll(predicate, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<AnalysisResource> resources = (Resources<AnalysisResource>) resourceAssembler.toResources(Analysis.class, analyses);
 
@@ -40,6 +40,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Project;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
 import uk.ac.ebi.ampt2d.metadata.persistence.services.ProjectService;
 import uk.ac.ebi.ampt2d.metadata.rest.assemblers.GenericResourceAssembler;
 import uk.ac.ebi.ampt2d.metadata.rest.resources.ProjectResource;
@@ -70,8 +71,14 @@ public class ProjectRestController implements ResourceProcessor<RepositoryLinksR
     @RequestMapping(method = RequestMethod.GET, path = "search", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<ProjectResource>> search(@QuerydslPredicate(root = Project.class) Predicate predicate) {
-        List<Project> projects = projectService.findProjectsByPredicate(predicate);
+    public ResponseEntity<Resources<ProjectResource>> search(
+            @QuerydslPredicate(root = Project.class) Predicate predicate,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<Project> projects = projectService.findProjectsByPredicate(predicate, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<ProjectResource> resources = (Resources<ProjectResource>) resourceAssembler.toResources(Project.class, projects);
 
@@ -107,9 +114,14 @@ public class ProjectRestController implements ResourceProcessor<RepositoryLinksR
     @SuppressWarnings("unchecked")
     public ResponseEntity<Resources<ProjectResource>> findProjectsByReleaseDate(
             @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
-            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
 
-        List<Project> projects = projectService.findProjectsByReleaseDate(from, to);
+        KeysetSlice<Project> projects = projectService.findProjectsByReleaseDate(from, to, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<ProjectResource> resources = (Resources<ProjectResource>) resourceAssembler.toResources(Project.class, projects);
 
@@ -121,8 +133,14 @@ public class ProjectRestController implements ResourceProcessor<RepositoryLinksR
     @RequestMapping(method = RequestMethod.GET, path = "search/taxonomy-id", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<ProjectResource>> findProjectsByTaxonomyId(long id) {
-        List<Project> projects = projectService.findProjectsByTaxonomyId(id);
+    public ResponseEntity<Resources<ProjectResource>> findProjectsByTaxonomyId(
+            long id,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<Project> projects = projectService.findProjectsByTaxonomyId(id, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<ProjectResource> resources = (Resources<ProjectResource>) resourceAssembler.toResources(Project.class, projects);
 
@@ -134,8 +152,14 @@ public class ProjectRestController implements ResourceProcessor<RepositoryLinksR
     @RequestMapping(method = RequestMethod.GET, path = "search/taxonomy-name", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<ProjectResource>> findProjectsByTaxonomyName(String name) {
-        List<Project> projects = projectService.findProjectsByTaxonomyName(name);
+    public ResponseEntity<Resources<ProjectResource>> findProjectsByTaxonomyName(
+            String name,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<Project> projects = projectService.findProjectsByTaxonomyName(name, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<ProjectResource> resources = (Resources<ProjectResource>) resourceAssembler.toResources(Project.class, projects);
 
@@ -143,12 +167,21 @@ public class ProjectRestController implements ResourceProcessor<RepositoryLinksR
     }
 
     @ApiOperation(value = "projectSearch")
-    @ApiParam(name = "searchTerm", value = "search term", type = "string", required = true, example = "human")
+    @ApiParam(name = "searchTerm", value = "Words to search for in the name and description, ranked by relevance. " +
+            "\"Quoted phrases\" and prefixes ending with * are supported", type = "string", required = true,
+            example = "human")
     @RequestMapping(method = RequestMethod.GET, path = "search/text", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<ProjectResource>> getProjects(String searchTerm) {
-        List<Project> projects = projectService.findProjectsByTextSearch(searchTerm);
+    public ResponseEntity<Resources<ProjectResource>> getProjects(
+            String searchTerm,
+            @ApiParam(value = "Rank and ID after which the page starts, as given by the next link of the previous page",
+                    example = "0.1:42")
+            @RequestParam(name = "after", required = false) String after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<Project> projects = projectService.findProjectsByTextSearch(searchTerm, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<ProjectResource> resources = (Resources<ProjectResource>) resourceAssembler.toResources(Project.class, projects);
 
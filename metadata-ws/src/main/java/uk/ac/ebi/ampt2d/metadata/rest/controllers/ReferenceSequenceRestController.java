@@ -32,16 +32,16 @@ import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.ReferenceSequence;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ReferenceSequenceRepository;
 import uk.ac.ebi.ampt2d.metadata.persistence.services.ReferenceSequenceService;
 import uk.ac.ebi.ampt2d.metadata.rest.assemblers.GenericResourceAssembler;
 import uk.ac.ebi.ampt2d.metadata.rest.resources.ReferenceSequenceResource;
 
-import java.util.List;
-
 @RestController
 @Api(tags = "ReferenceSequence Entity")
 @RequestMapping(path = "reference-sequences")
@@ -67,8 +67,14 @@ public class ReferenceSequenceRestController implements ResourceProcessor<Reposi
     @RequestMapping(method = RequestMethod.GET, path = "search", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<ReferenceSequenceResource>> search(@QuerydslPredicate(root = ReferenceSequence.class) Predicate predicate) {
-        List<ReferenceSequence> referenceSequences = (List<ReferenceSequence>) referenceSequenceRepository.findAll(predicate);
+    public ResponseEntity<Resources<ReferenceSequenceResource>> search(
+            @QuerydslPredicate(root = ReferenceSequence.class) Predicate predicate,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<ReferenceSequence> referenceSequences = referenceSequenceRepository.findAll(predicate, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<ReferenceSequenceResource> resources = (Resources<ReferenceSequenceResource>) resourceAssembler.toResources(ReferenceSequence.class, referenceSequences);
 
@@ -80,8 +86,14 @@ public class ReferenceSequenceRestController implements ResourceProcessor<Reposi
     @RequestMapping(method = RequestMethod.GET, path = "search/taxonomy-id", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<ReferenceSequenceResource>> findReferenceSequencesByTaxonomyId(long id) {
-        List<ReferenceSequence> referenceSequences = referenceSequenceService.findReferenceSequencesByTaxonomyId(id);
+    public ResponseEntity<Resources<ReferenceSequenceResource>> findReferenceSequencesByTaxonomyId(
+            long id,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<ReferenceSequence> referenceSequences = referenceSequenceService.findReferenceSequencesByTaxonomyId(id, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<ReferenceSequenceResource> resources = (Resources<ReferenceSequenceResource>) resourceAssembler.toResources(ReferenceSequence.class, referenceSequences);
 
@@ -93,8 +105,14 @@ public class ReferenceSequenceRestController implements ResourceProcessor<Reposi
     @RequestMapping(method = RequestMethod.GET, path = "search/taxonomy-name", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<ReferenceSequenceResource>> findReferenceSequencesByTaxonomyName(String name) {
-        List<ReferenceSequence> referenceSequences = referenceSequenceService.findReferenceSequencesByTaxonomyName(name);
+    public ResponseEntity<Resources<ReferenceSequenceResource>> findReferenceSequencesByTaxonomyName(
+            String name,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<ReferenceSequence> referenceSequences = referenceSequenceService.findReferenceSequencesByTaxonomyName(name, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<ReferenceSequenceResource> resources = (Resources<ReferenceSequenceResource>) resourceAssembler.toResources(ReferenceSequence.class, referenceSequences);
 
@@ -22,6 +22,7 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
 import io.swagger.annotations.ApiImplicitParams;
 import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.querydsl.binding.QuerydslPredicate;
 import org.springframework.data.rest.webmvc.RepositoryLinksResource;
@@ -31,15 +32,15 @@ import org.springframework.hateoas.mvc.ControllerLinkBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Sample;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
 import uk.ac.ebi.ampt2d.metadata.persistence.repositories.SampleRepository;
 import uk.ac.ebi.ampt2d.metadata.rest.assemblers.GenericResourceAssembler;
 import uk.ac.ebi.ampt2d.metadata.rest.resources.SampleResource;
 
-import java.util.List;
-
 @RestController
 @Api(tags = "Sample Entity")
 @RequestMapping(path = "samples")
@@ -61,8 +62,14 @@ public class SampleRestController implements ResourceProcessor<RepositoryLinksRe
     @RequestMapping(method = RequestMethod.GET, path = "search", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<SampleResource>> search(@QuerydslPredicate(root = Sample.class) Predicate predicate) {
-        List<Sample> samples = (List<Sample>) sampleRepository.findAll(predicate);
+    public ResponseEntity<Resources<SampleResource>> search(
+            @QuerydslPredicate(root = Sample.class) Predicate predicate,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<Sample> samples = sampleRepository.findAll(predicate, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<SampleResource> resources = (Resources<SampleResource>) resourceAssembler.toResources(Sample.class, samples);
 
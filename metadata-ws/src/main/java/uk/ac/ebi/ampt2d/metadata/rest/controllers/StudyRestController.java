@@ -40,6 +40,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
 import uk.ac.ebi.ampt2d.metadata.persistence.services.StudyService;
 import uk.ac.ebi.ampt2d.metadata.rest.assemblers.GenericResourceAssembler;
 import uk.ac.ebi.ampt2d.metadata.rest.resources.StudyResource;
@@ -70,8 +71,14 @@ public class StudyRestController implements ResourceProcessor<RepositoryLinksRes
     @RequestMapping(method = RequestMethod.GET, path = "search", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<StudyResource>> search(@QuerydslPredicate(root = Study.class) Predicate predicate) {
-        List<Study> studies = studyService.findStudiesByPredicate(predicate);
+    public ResponseEntity<Resources<StudyResource>> search(
+            @QuerydslPredicate(root = Study.class) Predicate predicate,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<Study> studies = studyService.findStudiesByPredicate(predicate, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<StudyResource> resources = (Resources<StudyResource>) resourceAssembler.toResources(Study.class, studies);
 
@@ -107,9 +114,14 @@ public class StudyRestController implements ResourceProcessor<RepositoryLinksRes
     @SuppressWarnings("unchecked")
     public ResponseEntity<Resources<StudyResource>> findStudiesByReleaseDate(
             @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
-            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
 
-        List<Study> studies = studyService.findStudiesByReleaseDate(from, to);
+        KeysetSlice<Study> studies = studyService.findStudiesByReleaseDate(from, to, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<StudyResource> resources = (Resources<StudyResource>) resourceAssembler.toResources(Study.class, studies);
 
@@ -121,8 +133,14 @@ public class StudyRestController implements ResourceProcessor<RepositoryLinksRes
     @RequestMapping(method = RequestMethod.GET, path = "search/taxonomy-id", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<StudyResource>> findStudiesByTaxonomyId(long id) {
-        List<Study> studies = studyService.findStudiesByTaxonomyId(id);
+    public ResponseEntity<Resources<StudyResource>> findStudiesByTaxonomyId(
+            long id,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<Study> studies = studyService.findStudiesByTaxonomyId(id, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<StudyResource> resources = (Resources<StudyResource>) resourceAssembler.toResources(Study.class, studies);
 
@@ -134,8 +152,14 @@ public class StudyRestController implements ResourceProcessor<RepositoryLinksRes
     @RequestMapping(method = RequestMethod.GET, path = "search/taxonomy-name", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<StudyResource>> findStudiesByTaxonomyName(String name) {
-        List<Study> studies = studyService.findStudiesByTaxonomyName(name);
+    public ResponseEntity<Resources<StudyResource>> findStudiesByTaxonomyName(
+            String name,
+            @ApiParam(value = "ID after which the page starts, as given by the next link of the previous page")
+            @RequestParam(name = "after", required = false) Long after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<Study> studies = studyService.findStudiesByTaxonomyName(name, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<StudyResource> resources = (Resources<StudyResource>) resourceAssembler.toResources(Study.class, studies);
 
@@ -143,12 +167,21 @@ public class StudyRestController implements ResourceProcessor<RepositoryLinksRes
     }
 
     @ApiOperation(value = "studySearch")
-    @ApiParam(name = "searchTerm", value = "search term", type = "string", required = true, example = "human")
+    @ApiParam(name = "searchTerm", value = "Words to search for in the name and description, ranked by relevance. " +
+            "\"Quoted phrases\" and prefixes ending with * are supported", type = "string", required = true,
+            example = "human")
     @RequestMapping(method = RequestMethod.GET, path = "search/text", produces = "application/json")
     @ResponseBody
     @SuppressWarnings("unchecked")
-    public ResponseEntity<Resources<StudyResource>> getStudies(String searchTerm) {
-        List<Study> studies = studyService.findStudiesByTextSearch(searchTerm);
+    public ResponseEntity<Resources<StudyResource>> getStudies(
+            String searchTerm,
+            @ApiParam(value = "Rank and ID after which the page starts, as given by the next link of the previous page",
+                    example = "0.1:42")
+            @RequestParam(name = "after", required = false) String after,
+            @ApiParam(value = "Maximum number of results in the page", example = "20")
+            @RequestParam(name = "size", required = false) Integer size) {
+        KeysetSlice<Study> studies = studyService.findStudiesByTextSearch(searchTerm, after,
+                resourceAssembler.getPageSize(size));
 
         Resources<StudyResource> resources = (Resources<StudyResource>) resourceAssembler.toResources(Study.class, studies);
 
@@ -21,19 +21,35 @@ package uk.ac.ebi.ampt2d.metadata.security;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class CustomUsernamePasswordAuthenticationToken extends UsernamePasswordAuthenticationToken {
 
     private String studies;
 
+    private Set<String> permittedStudies;
+
     public CustomUsernamePasswordAuthenticationToken(Object principal, Object credentials, List<GrantedAuthority>
             authorities, String studies) {
         super(principal, credentials, authorities);
         this.studies = studies;
+        this.permittedStudies = studies == null || studies.isEmpty() ? Collections.emptySet() :
+                Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(studies.split(","))));
     }
 
     public String getStudies() {
         return studies;
     }
+
+    /**
+     * Get the accessions of the studies the user is permitted to access before their release date, parsed once from
+     * the comma-separated {@link #getStudies()}
+     */
+    public Set<String> getPermittedStudies() {
+        return permittedStudies;
+    }
 }
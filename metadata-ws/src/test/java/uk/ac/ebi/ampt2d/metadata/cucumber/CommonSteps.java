@@ -18,6 +18,7 @@
 package uk.ac.ebi.ampt2d.metadata.cucumber;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import cucumber.api.java.Before;
 import cucumber.api.java.en.And;
 import cucumber.api.java.en.Given;
@@ -184,6 +185,26 @@ public class CommonSteps {
                 .content(jsonContent)));
     }
 
+    @When("^I request PATCH (.*) with study (.*)")
+    public void performPatchOnResourceWithStudy(String urlKey, String studyUrlKey) throws Exception {
+        String jsonContent = "{"
+                + "\"study\": \"" + CommonStates.getUrl(studyUrlKey)
+                + "\"}";
+        CommonStates.setResultActions(mockMvc.perform(patch(CommonStates.getUrl(urlKey))
+                .with(CommonStates.getRequestPostProcessor())
+                .content(jsonContent)));
+    }
+
+    @When("^I request PATCH (.*) with project (.*)")
+    public void performPatchOnResourceWithProject(String urlKey, String projectUrlKey) throws Exception {
+        String jsonContent = "{"
+                + "\"project\": \"" + CommonStates.getUrl(projectUrlKey)
+                + "\"}";
+        CommonStates.setResultActions(mockMvc.perform(patch(CommonStates.getUrl(urlKey))
+                .with(CommonStates.getRequestPostProcessor())
+                .content(jsonContent)));
+    }
+
     @When("^I request PATCH (.*) with content (.*)")
     public void performPatchOnResourceWithContent(String urlKey, String content) throws Exception {
         CommonStates.setResultActions(mockMvc.perform(patch(CommonStates.getUrl(urlKey))
@@ -254,6 +275,14 @@ public class CommonSteps {
                 .with(CommonStates.getRequestPostProcessor())));
     }
 
+    @When("^I request GET for the next page$")
+    public void performGetOnNextLink() throws Exception {
+        String nextHref = JsonPath.read(CommonStates.getResultActions().andReturn().getResponse()
+                .getContentAsString(), "$._links.next.href");
+        CommonStates.setResultActions(mockMvc.perform(get(nextHref)
+                .with(CommonStates.getRequestPostProcessor())));
+    }
+
     @And("^set the URL to (.*)$")
     public void setUrlTo(String resourceUriKey) {
         CommonStates.setUrl(resourceUriKey, CommonStates.getResultActions()
@@ -329,6 +358,16 @@ public class CommonSteps {
         CommonStates.getResultActions().andExpect(jsonPath("$." + field).value(value));
     }
 
+    @Then("^the response should contain a next link$")
+    public void checkResponseNextLink() throws Exception {
+        CommonStates.getResultActions().andExpect(jsonPath("$._links.next.href").isNotEmpty());
+    }
+
+    @Then("^the response should contain no next link$")
+    public void checkResponseNoNextLink() throws Exception {
+        CommonStates.getResultActions().andExpect(jsonPath("$._links.next").doesNotExist());
+    }
+
     @Then("^the response should contain error message (.*)$")
     public void checkResponseJsonMessage(String message) throws Exception {
         CommonStates.getResultActions().andReturn().getResponse().getContentAsString().contains(message);
@@ -17,12 +17,38 @@
  */
 package uk.ac.ebi.ampt2d.metadata.cucumber;
 
+import cucumber.api.java.en.Given;
 import cucumber.api.java.en.Then;
 import cucumber.api.java.en.When;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.web.servlet.MockMvc;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.AccessionVersionId;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Analysis;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.ReferenceSequence;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Sample;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Study;
+import uk.ac.ebi.ampt2d.metadata.persistence.entities.Taxonomy;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.AnalysisRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.ReferenceSequenceRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.SampleRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.StudyRepository;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.TaxonomyRepository;
 
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.options;
 
 public class MiscSteps {
@@ -30,6 +56,26 @@ public class MiscSteps {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TaxonomyRepository taxonomyRepository;
+
+    @Autowired
+    private ReferenceSequenceRepository referenceSequenceRepository;
+
+    @Autowired
+    private StudyRepository studyRepository;
+
+    @Autowired
+    private AnalysisRepository analysisRepository;
+
+    @Autowired
+    private SampleRepository sampleRepository;
+
+    private String keptETag;
+
     @When("^I request OPTIONS / with GET for Access-Control-Request-Method header and http://www.evil-url.com for Origin header$")
     public void performOptionsWithData() throws Exception {
         CommonStates.setResultActions(mockMvc.perform(options("/")
@@ -44,4 +90,107 @@ public class MiscSteps {
                 header.contains(headerValue));
     }
 
+    @Given("^there are (\\d*) studies with (\\d*) analyses of (\\d*) samples each$")
+    public void createStudies(int studies, int analysesPerStudy, int samplesPerAnalysis) {
+        Taxonomy taxonomyClass = createTaxonomy(40674, "Mammalia", "class", null);
+        Taxonomy taxonomyOrder = createTaxonomy(9443, "Primates", "order", taxonomyClass);
+        Taxonomy taxonomyGenus = createTaxonomy(9605, "Homo", "genus", taxonomyOrder);
+        Taxonomy taxonomySpecies = createTaxonomy(9606, "Homo sapiens", "species", taxonomyGenus);
+        ReferenceSequence referenceSequence = new ReferenceSequence("GRCh37", "p2", "GCA_000001405.3",
+                ReferenceSequence.Type.GENOME_ASSEMBLY);
+        referenceSequence.setTaxonomy(taxonomySpecies);
+        referenceSequence = referenceSequenceRepository.save(referenceSequence);
+
+        List<Long> studyIds = new ArrayList<>();
+        for (int i = 0; i < studies; i++) {
+            Study study = studyRepository.save(new Study(new AccessionVersionId("Study" + i, 1), "Study " + i,
+                    "Study " + i, "EBI", LocalDate.now().minusDays(1)));
+            for (int j = 0; j < analysesPerStudy; j++) {
+                List<Sample> samples = new ArrayList<>();
+                for (int k = 0; k < samplesPerAnalysis; k++) {
+                    String sampleAccession = "Sample" + i + "_" + j + "_" + k;
+                    Sample sample = new Sample(new AccessionVersionId(sampleAccession, 1), sampleAccession,
+                            sampleAccession);
+                    sample.setTaxonomies(Collections.singletonList(taxonomySpecies));
+                    samples.add(sampleRepository.save(sample));
+                }
+                Analysis analysis = new Analysis(new AccessionVersionId("Analysis" + i + "_" + j, 1),
+                        "Analysis", "Analysis", Analysis.Type.CASE_CONTROL, Analysis.Technology.GWAS, "Illumina");
+                analysis.setStudy(study);
+                analysis.setReferenceSequences(Collections.singletonList(referenceSequence));
+                analysis.setSamples(samples);
+                analysisRepository.save(analysis);
+            }
+            studyIds.add(study.getId());
+        }
+        studyRepository.updateSpecies(studyIds);
+    }
+
+    private Taxonomy createTaxonomy(long taxonomyId, String name, String rank, Taxonomy parent) {
+        Taxonomy taxonomy = new Taxonomy(taxonomyId);
+        taxonomy.setName(name);
+        taxonomy.setRank(rank);
+        if (parent != null) {
+            taxonomy.setTaxonomyClass(parent.getTaxonomyClass() != null ? parent.getTaxonomyClass() : parent);
+            taxonomy.setTaxonomyOrder(parent.getTaxonomyOrder());
+            taxonomy.setTaxonomyGenus(parent.getTaxonomyGenus());
+            taxonomy.setTaxonomyForRank(parent, parent.getRank());
+        }
+        return taxonomyRepository.save(taxonomy);
+    }
+
+    @When("^I start counting SQL statements$")
+    public void startCountingStatements() {
+        getStatistics().clear();
+    }
+
+    @Then("^at most (\\d*) SQL statements should have been issued$")
+    public void checkStatementCount(long maxStatements) {
+        long statements = getStatistics().getPrepareStatementCount();
+        assertTrue(statements + " SQL statements issued, expected at most " + maxStatements,
+                statements <= maxStatements);
+    }
+
+    @Then("^the response should have an? (\\S*) header$")
+    public void checkHeaderPresence(String headerName) {
+        assertNotNull(headerName + " header not present",
+                CommonStates.getResultActions().andReturn().getResponse().getHeader(headerName));
+    }
+
+    @Then("^the response should have no (\\S*) header$")
+    public void checkHeaderAbsence(String headerName) {
+        assertNull(headerName + " header present",
+                CommonStates.getResultActions().andReturn().getResponse().getHeader(headerName));
+    }
+
+    @When("^I keep the ETag of the response$")
+    public void keepETag() {
+        keptETag = CommonStates.getResultActions().andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    @When("^I request GET (\\S*) with If-None-Match set to the kept ETag$")
+    public void performGetIfNoneMatch(String urlOrKey) throws Exception {
+        CommonStates.setResultActions(mockMvc.perform(get(getUrl(urlOrKey))
+                .with(CommonStates.getRequestPostProcessor())
+                .header(HttpHeaders.IF_NONE_MATCH, keptETag)));
+    }
+
+    @When("^I request GET (\\S*) with If-Modified-Since set to the start of the day in (-?\\d*) days?$")
+    public void performGetIfModifiedSince(String urlOrKey, int days) throws Exception {
+        String ifModifiedSince = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                LocalDate.now().plusDays(days).atStartOfDay(ZoneOffset.UTC));
+        CommonStates.setResultActions(mockMvc.perform(get(getUrl(urlOrKey))
+                .with(CommonStates.getRequestPostProcessor())
+                .header(HttpHeaders.IF_MODIFIED_SINCE, ifModifiedSince)));
+    }
+
+    private String getUrl(String urlOrKey) {
+        String url = CommonStates.getUrl(urlOrKey);
+        return url != null ? url : urlOrKey;
+    }
+
+    private Statistics getStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
 }
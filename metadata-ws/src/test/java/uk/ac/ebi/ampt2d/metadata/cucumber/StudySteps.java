@@ -104,6 +104,16 @@ public class StudySteps {
                     .content(content)));
     }
 
+    @When("^I request PATCH (.*) with patch and release day (.*)")
+    public void performPatchOnResourceWithDay(String urlKey, String day) throws Exception {
+        String releaseDate = day.equals("null") ? "null" : "\"" + LocalDate.now().plusDays(
+                day.equals("yesterday") ? -1 : day.equals("tomorrow") ? 1 : 0) + "\"";
+        CommonStates.setResultActions(mockMvc.perform(patch(CommonStates.getUrl(urlKey) + "/patch")
+                .with(CommonStates.getRequestPostProcessor())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{ \"releaseDate\" : " + releaseDate + " }")));
+    }
+
     @When("^I request search studies having release (.*) today")
     public void performSearchOnResourcesWithBaseAndParametersAndDay(String parameter) throws Exception {
         CommonStates.setResultActions(mockMvc.perform(get("/studies/search/release-date?"+parameter+"="+LocalDate.now())
@@ -0,0 +1,148 @@
+/*
+ *
+ * Copyright 2019 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package uk.ac.ebi.ampt2d.metadata.persistence.search;
+
+import org.junit.Test;
+import uk.ac.ebi.ampt2d.metadata.persistence.repositories.KeysetSlice;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class TextSearchQueryTest {
+
+    @Test
+    public void words() {
+        assertEquals("'type' & 'diabetes'", TextSearchQuery.toTsQuery("type  diabetes"));
+    }
+
+    @Test
+    public void phrases() {
+        assertEquals("('type' <-> '2') & 'diabetes'", TextSearchQuery.toTsQuery("\"type 2\" diabetes"));
+        assertEquals("('type' <-> '2')", TextSearchQuery.toTsQuery("\" type   2 \""));
+    }
+
+    @Test
+    public void unclosedPhrase() {
+        assertEquals("'diabetes' & ('type' <-> '2')", TextSearchQuery.toTsQuery("diabetes \"type 2"));
+    }
+
+    @Test
+    public void prefixes() {
+        assertEquals("'diab':*", TextSearchQuery.toTsQuery("diab*"));
+        assertEquals("'diab':*", TextSearchQuery.toTsQuery("diab**"));
+        assertEquals("('type' <-> 'diab':*)", TextSearchQuery.toTsQuery("\"type diab*\""));
+    }
+
+    @Test
+    public void operatorsAreQuoted() {
+        assertEquals("'a&b' & '!c' & 'd|e':*", TextSearchQuery.toTsQuery("a&b !c d|e*"));
+        assertEquals("'(x)' & '<->'", TextSearchQuery.toTsQuery("(x) <->"));
+    }
+
+    @Test
+    public void quotesAndBackslashesAreEscaped() {
+        assertEquals("'crohn''s'", TextSearchQuery.toTsQuery("crohn's"));
+        assertEquals("'a\\\\b'", TextSearchQuery.toTsQuery("a\\b"));
+        assertEquals("'\\\\''' & 'x'", TextSearchQuery.toTsQuery("\\' x"));
+    }
+
+    @Test
+    public void noWords() {
+        assertNull(TextSearchQuery.toTsQuery(null));
+        assertNull(TextSearchQuery.toTsQuery(""));
+        assertNull(TextSearchQuery.toTsQuery("  * \"\" \" * \""));
+    }
+
+    @Test
+    public void sliceInOrderOfRelevance() {
+        List<Object[]> matches = Arrays.asList(match(3L, 0.5f), match(1L, 0.25f), match(2L, 0.25f));
+        KeysetSlice<Long> slice = TextSearchQuery.toSlice(matches, 2, this::findAllButTwo, id -> id);
+        assertEquals(Arrays.asList(3L, 1L), slice.getContent());
+        assertEquals("0.25:1", slice.getNextAfter());
+    }
+
+    @Test
+    public void lastSlice() {
+        List<Object[]> matches = Arrays.asList(match(3L, 0.5f), match(2L, 0.25f), match(1L, 0.125f));
+        KeysetSlice<Long> slice = TextSearchQuery.toSlice(matches, 3, this::findAllButTwo, id -> id);
+        assertEquals(Arrays.asList(3L, 1L), slice.getContent());
+        assertNull(slice.getNextAfter());
+    }
+
+    @Test
+    public void emptySlice() {
+        KeysetSlice<Long> slice = TextSearchQuery.toSlice(Collections.emptyList(), 3, this::findAllButTwo, id -> id);
+        assertEquals(Collections.emptyList(), slice.getContent());
+        assertNull(slice.getNextAfter());
+    }
+
+    @Test
+    public void rankedCursor() {
+        TextSearchQuery.Cursor cursor = TextSearchQuery.Cursor.parse("0.1:42", true);
+        assertEquals(Float.valueOf(0.1f), cursor.getRank());
+        assertEquals(42, cursor.getId());
+        assertEquals("0.1:42", cursor.toString());
+        assertEquals(Float.valueOf(1.0E-5f), TextSearchQuery.Cursor.parse("1.0E-5:42", true).getRank());
+    }
+
+    @Test
+    public void unrankedCursor() {
+        TextSearchQuery.Cursor cursor = TextSearchQuery.Cursor.parse("42", false);
+        assertNull(cursor.getRank());
+        assertEquals(42, cursor.getId());
+    }
+
+    @Test
+    public void invalidCursors() {
+        for (String after : Arrays.asList("42", "0.1", "0.1:", ":42", "x:42", "0.1:x", "NaN:42", "Infinity:42")) {
+            assertInvalidCursor(after, true);
+        }
+        for (String after : Arrays.asList("", "0.1:42", "x")) {
+            assertInvalidCursor(after, false);
+        }
+    }
+
+    private void assertInvalidCursor(String after, boolean ranked) {
+        try {
+            TextSearchQuery.Cursor.parse(after, ranked);
+            fail("Cursor " + after + " should be invalid");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Please provide the after parameter as given by the next link", e.getMessage());
+        }
+    }
+
+    private Object[] match(long id, float rank) {
+        return new Object[]{BigInteger.valueOf(id), rank};
+    }
+
+    /**
+     * Loads the entities with the given IDs, in ascending order, except that with ID 2, as if the user could not see it
+     */
+    private List<Long> findAllButTwo(List<Long> ids) {
+        return ids.stream().filter(id -> id != 2).sorted().collect(Collectors.toList());
+    }
+
+}
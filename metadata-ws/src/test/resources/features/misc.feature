@@ -108,3 +108,174 @@ Feature: Miscellaneous functions
       | FILE               | file              | {"name": "nothing important"}                   |
       | SAMPLE             | sample            | {"name": "nothing important"}                   |
       | WEB_RESOURCE       | webResource       | {"resourceUrl": "http://nothing.important.com"} |
+
+  Scenario Outline: verify listing metadata objects issues a number of SQL statements independent of the page size
+    Given I set authorization with testuser having default role
+    And there are 20 studies with 2 analyses of 2 samples each
+    When I start counting SQL statements
+    And I request GET <URL>
+    Then the response code should be 200
+    And at most <STATEMENTS> SQL statements should have been issued
+
+    Examples:
+      | URL                         | STATEMENTS |
+      | /studies                    | 2          |
+      | /studies/search             | 1          |
+      | /analyses                   | 3          |
+      | /analyses/search            | 1          |
+      | /samples                    | 2          |
+      | /samples/search             | 1          |
+      | /reference-sequences/search | 1          |
+
+  Scenario Outline: verify repeated lookups of taxonomies and reference sequences are answered from the cache
+    Given I set authorization with testuser having default role
+    And there are 1 studies with 1 analyses of 1 samples each
+    When I request GET <URL>
+    Then the response code should be 200
+    When I start counting SQL statements
+    And I request GET <URL>
+    Then the response code should be 200
+    And at most 0 SQL statements should have been issued
+
+    Examples:
+      | URL                                                                   |
+      | /taxonomies/search/findByTaxonomyId?taxonomyId=9606                   |
+      | /taxonomies/search/findByTaxonomyGenus?taxonomyId=9605                |
+      | /reference-sequences/search/findByAccession?accession=GCA_000001405.3 |
+
+  Scenario: verify cached lookups of taxonomies and reference sequences reflect changes made through the API
+    Given I set authorization with testoperator having SERVICE_OPERATOR role
+    When I request GET /taxonomies/search/findByTaxonomyId?taxonomyId=9606
+    Then the response code should be 404
+    When I request GET /reference-sequences/search/findByAccession?accession=GCA_000001405.3
+    Then the response code should be 404
+
+    When I request POST /taxonomies with JSON payload:
+    """
+    {
+      "taxonomyId": 9606
+    }
+    """
+    Then set the URL to TAXONOMY
+    And the response code should be 201
+    When I request GET /taxonomies/search/findByTaxonomyId?taxonomyId=9606
+    Then the response code should be 200
+    And the response should contain field name with value Homo sapiens
+
+    When I request POST /reference-sequences with JSON-like payload:
+    """
+      "name": "GRCh37",
+      "patch": "p2",
+      "accession": "GCA_000001405.3",
+      "type": "GENOME_ASSEMBLY",
+      "taxonomy": "TAXONOMY"
+    """
+    Then set the URL to REFERENCE_SEQUENCE
+    And the response code should be 201
+    When I request GET /reference-sequences/search/findByAccession?accession=GCA_000001405.3
+    Then the response code should be 200
+    And the response should contain field name with value GRCh37
+
+    When I request PATCH REFERENCE_SEQUENCE with content {"name": "GRCh37.p2"}
+    Then the response code should be 2xx
+    When I request GET /reference-sequences/search/findByAccession?accession=GCA_000001405.3
+    Then the response code should be 200
+    And the response should contain field name with value GRCh37.p2
+    When I request GET with value of REFERENCE_SEQUENCE
+    Then the response should contain field name with value GRCh37.p2
+
+  Scenario: verify the use of the cache is reported in the metrics
+    Given I set authorization with testuser having default role
+    And there are 1 studies with 1 analyses of 1 samples each
+    When I request GET /taxonomies/search/findByTaxonomyId?taxonomyId=9606
+    And I request GET /taxonomies/search/findByTaxonomyId?taxonomyId=9606
+    And I request GET /actuator/metrics
+    Then the response code should be 200
+    And the response should contain field ['cache.Taxonomy.size'] with a numeric value
+    And the response should contain field ['cache.Taxonomy.evictions'] with a numeric value
+    And the response should contain field ['cache.StandardQueryCache.hit.ratio'] with a numeric value
+    And the response should contain field ['cache.StandardQueryCache.miss.ratio'] with a numeric value
+
+  Scenario: verify changes to a study only evict the publications it links to from the cache
+    Given I set authorization with testoperator having SERVICE_OPERATOR role
+    When I create a study with Study1 for accession
+    And set the URL to STUDY1
+    Then the response code should be 201
+    When I request POST /publications with JSON payload:
+    """
+    {
+      "publicationId": "publication-of-study"
+    }
+    """
+    And set the URL to PUBLICATION1
+    Then the response code should be 201
+    When I request POST /publications with JSON payload:
+    """
+    {
+      "publicationId": "publication-of-no-study"
+    }
+    """
+    And set the URL to PUBLICATION2
+    Then the response code should be 201
+    When I request PATCH STUDY1 with list PUBLICATION1 of publications
+    Then the response code should be 2xx
+    When I request GET with value of PUBLICATION2
+    Then the response code should be 200
+
+    When I request PATCH STUDY1 with content {"name": "Study1 renamed"}
+    Then the response code should be 2xx
+    When I start counting SQL statements
+    And I request GET with value of PUBLICATION2
+    Then the response code should be 200
+    And at most 0 SQL statements should have been issued
+
+  Scenario Outline: verify unchanged lists of metadata objects are not sent again to clients which have them
+    Given I set authorization with testuser having default role
+    And there are 2 studies with 1 analyses of 1 samples each
+    When I request GET <URL>
+    Then the response code should be 200
+    And the response should have an ETag header
+    And the response should have no Last-Modified header
+    And the Cache-Control header should contain private, no-cache
+    When I keep the ETag of the response
+    And I request GET <URL> with If-None-Match set to the kept ETag
+    Then the response code should be 304
+    And the response should have an ETag header
+
+    Examples:
+      | URL                                                    |
+      | /studies                                               |
+      | /studies/search                                        |
+      | /analyses/search?type=CASE_CONTROL                     |
+      | /samples                                               |
+      | /taxonomies                                            |
+      | /taxonomies/search/findByTaxonomyGenus?taxonomyId=9605 |
+
+  Scenario: verify metadata objects are only sent again to clients which have them if they have changed
+    Given I set authorization with testoperator having SERVICE_OPERATOR role
+    When I request POST /taxonomies with JSON payload:
+    """
+    {
+      "taxonomyId": 9606
+    }
+    """
+    Then set the URL to TAXONOMY
+    And the response code should be 201
+
+    When I request GET with value of TAXONOMY
+    Then the response code should be 200
+    And the response should have an ETag header
+    And the response should have a Last-Modified header
+    When I keep the ETag of the response
+    And I request GET TAXONOMY with If-None-Match set to the kept ETag
+    Then the response code should be 304
+    When I request GET TAXONOMY with If-Modified-Since set to the start of the day in 1 day
+    Then the response code should be 304
+    When I request GET TAXONOMY with If-Modified-Since set to the start of the day in 0 days
+    Then the response code should be 200
+
+    When I request PATCH TAXONOMY with content {"name": "Homo sapiens sapiens"}
+    Then the response code should be 2xx
+    When I request GET TAXONOMY with If-None-Match set to the kept ETag
+    Then the response code should be 200
+    And the response should contain field name with value Homo sapiens sapiens
@@ -294,3 +294,246 @@ Feature: Transitive release date control for child objects of a Study
     Then the response code should be 200
     When I request GET with value of WEBRESOURCE1
     Then the response code should be 404
+
+  Scenario: Lists of entities should only contain released entities, and unreleased ones if provided access
+    Given I set authorization with testoperator having SERVICE_OPERATOR role
+    When I request POST taxonomy with 9606 for ID
+    And set the URL to TAXONOMY
+    Then the response code should be 201
+
+    When I request POST /reference-sequences with JSON-like payload:
+    """
+          "name": "GRCh37",
+          "patch": "p2",
+          "accession": "GCA_000001407.3",
+          "type": "GENOME_ASSEMBLY",
+          "taxonomy": "TAXONOMY"
+    """
+    And set the URL to REFERENCE_SEQUENCE
+    Then the response code should be 201
+
+    When I create a study with releasedStudy for accession
+    And set the URL to STUDY
+    Then the response code should be 201
+    When I create a study with unreleasedStudy for accession
+    And set the URL to STUDY1
+    Then the response code should be 201
+    When I create a study with unreleasedStudy1 for accession
+    And set the URL to STUDY2
+    Then the response code should be 201
+
+    When I create an analysis with Analysis for accession, REFERENCE_SEQUENCE for reference sequence and STUDY for study
+    Then the response code should be 201
+    When I create an analysis with Analysis1 for accession, REFERENCE_SEQUENCE for reference sequence and STUDY1 for study
+    And set the URL to ANALYSIS1
+    Then the response code should be 201
+    When I create an analysis with Analysis2 for accession, REFERENCE_SEQUENCE for reference sequence and STUDY2 for study
+    And set the URL to ANALYSIS2
+    Then the response code should be 201
+
+    When I request POST /files with JSON payload:
+    """
+    {
+      "accessionVersionId": {
+        "accession": "File1",
+        "version": 1
+        },
+      "hash": "Hash1",
+      "name": "File1",
+      "size": 100,
+      "type": "TSV"
+    }
+    """
+    And set the URL to FILE1
+    Then the response code should be 201
+    When I request POST /files with JSON payload:
+    """
+    {
+      "accessionVersionId": {
+        "accession": "File2",
+        "version": 1
+        },
+      "hash": "Hash2",
+      "name": "File2",
+      "size": 100,
+      "type": "TSV"
+    }
+    """
+    And set the URL to FILE2
+    Then the response code should be 201
+    When I request PATCH ANALYSIS1 with list FILE1 of files
+    Then the response code should be 2xx
+    When I request PATCH ANALYSIS2 with list FILE2 of files
+    Then the response code should be 2xx
+
+    When I request POST /webResources with JSON payload:
+    """
+    {
+      "type": "CENTER_WEB",
+      "resourceUrl": "http://test-release-date.example.com"
+    }
+    """
+    And set the URL to WEBRESOURCE
+    Then the response code should be 201
+    When I request POST /webResources with JSON payload:
+    """
+    {
+      "type": "CENTER_WEB",
+      "resourceUrl": "http://test-release-date1.example.com"
+    }
+    """
+    And set the URL to WEBRESOURCE1
+    Then the response code should be 201
+    When I request PATCH STUDY with list WEBRESOURCE of resources
+    Then the response code should be 2xx
+    When I request PATCH STUDY2 with list WEBRESOURCE1 of resources
+    Then the response code should be 2xx
+
+    When I request PATCH STUDY1 with patch and day tomorrow
+    Then the response code should be 2xx
+    When I request PATCH STUDY2 with patch and day tomorrow
+    Then the response code should be 2xx
+
+    When I request GET /studies
+    Then the response should contain 3 studies
+    When I request GET /analyses
+    Then the response should contain 3 analyses
+    When I request GET /webResources
+    Then the response should contain 2 webResources
+    When I request GET /files
+    Then the response should contain 2 files
+
+    When I set authorization with testuser having default role
+    And I request GET /studies
+    Then the response should contain 2 studies
+    And the response should contain field _embedded.studies[1].accessionVersionId.accession with value unreleasedStudy
+    When I request GET /analyses
+    Then the response should contain 2 analyses
+    When I request GET /webResources
+    Then the response should contain 1 webResources
+    When I request GET /files
+    Then the response should contain 1 files
+    And the response should contain field _embedded.files[0].accessionVersionId.accession with value File1
+    When I request elaborate find for the studies with the parameters: accessionVersionId.accession=unreleasedStudy1
+    Then the response should contain no study
+
+  Scenario Outline: Files should no longer be released by the study of an analysis they are removed from
+    Given I set authorization with testoperator having SERVICE_OPERATOR role
+    When I request POST taxonomy with 9606 for ID
+    And set the URL to TAXONOMY
+    Then the response code should be 201
+    When I request POST /reference-sequences with JSON-like payload:
+    """
+          "name": "GRCh37",
+          "patch": "p2",
+          "accession": "GCA_000001407.3",
+          "type": "GENOME_ASSEMBLY",
+          "taxonomy": "TAXONOMY"
+    """
+    And set the URL to REFERENCE_SEQUENCE
+    Then the response code should be 201
+
+    # Study1 is released, Study2 is not
+    When I create a study with Study1 for accession
+    And set the URL to STUDY1
+    Then the response code should be 201
+    When I create a study with Study2 for accession
+    And set the URL to STUDY2
+    Then the response code should be 201
+    When I request PATCH STUDY2 with patch and day tomorrow
+    Then the response code should be 2xx
+    When I create an analysis with Analysis1 for accession, REFERENCE_SEQUENCE for reference sequence and STUDY1 for study
+    And set the URL to ANALYSIS1
+    Then the response code should be 201
+    When I create an analysis with Analysis2 for accession, REFERENCE_SEQUENCE for reference sequence and STUDY2 for study
+    And set the URL to ANALYSIS2
+    Then the response code should be 201
+
+    # File1 only belongs to Analysis1, File2 to both analyses
+    When I request POST /files with JSON payload:
+    """
+    {
+      "accessionVersionId": {
+        "accession": "File1",
+        "version": 1
+        },
+      "hash": "Hash1",
+      "name": "File1",
+      "size": 100,
+      "type": "TSV"
+    }
+    """
+    And set the URL to FILE1
+    Then the response code should be 201
+    When I request POST /files with JSON payload:
+    """
+    {
+      "accessionVersionId": {
+        "accession": "File2",
+        "version": 1
+        },
+      "hash": "Hash2",
+      "name": "File2",
+      "size": 100,
+      "type": "TSV"
+    }
+    """
+    And set the URL to FILE2
+    Then the response code should be 201
+    When I request PATCH ANALYSIS1 with list FILE1,FILE2 of files
+    Then the response code should be 2xx
+    When I request PATCH ANALYSIS2 with list FILE2 of files
+    Then the response code should be 2xx
+    When I set authorization with testuser having default role
+    And I request GET with value of FILE2
+    Then the response code should be 2xx
+
+    # Removing File2 from Analysis1 leaves it only in the unreleased Study2
+    When I set authorization with testoperator having SERVICE_OPERATOR role
+    And I request <REMOVAL>
+    Then the response code should be 2xx
+    When I set authorization with testuser having default role
+    And I request GET with value of FILE1
+    Then the response code should be 2xx
+    When I request GET with value of FILE2
+    Then the response code should be 4xx
+
+    Examples:
+      | REMOVAL                                        |
+      | PATCH ANALYSIS1 with list FILE1 of files       |
+      | DELETE for the files of FILE2 of the ANALYSIS1 |
+      | DELETE with value of ANALYSIS1                 |
+
+  Scenario: Publications should follow the release date of their study when it is patched through its patch endpoint
+    Given I set authorization with testoperator having SERVICE_OPERATOR role
+    When I create a study with Study1 for accession
+    And set the URL to STUDY1
+    Then the response code should be 201
+    When I request POST /publications with JSON payload:
+    """
+    {
+      "publicationId": "publication-patch-endpoint"
+    }
+    """
+    And set the URL to PUBLICATION1
+    Then the response code should be 201
+    When I request PATCH STUDY1 with list PUBLICATION1 of publications
+    Then the response code should be 2xx
+
+    When I set authorization with testuser having default role
+    And I request GET with value of PUBLICATION1
+    Then the response code should be 2xx
+
+    When I set authorization with testoperator having SERVICE_OPERATOR role
+    And I request PATCH STUDY1 with patch and release day tomorrow
+    Then the response code should be 2xx
+    When I set authorization with testuser having default role
+    And I request GET with value of PUBLICATION1
+    Then the response code should be 4xx
+
+    When I set authorization with testoperator having SERVICE_OPERATOR role
+    And I request PATCH STUDY1 with patch and release day yesterday
+    Then the response code should be 2xx
+    When I set authorization with testuser having default role
+    And I request GET with value of PUBLICATION1
+    Then the response code should be 2xx
@@ -128,6 +128,126 @@ Feature: study object
       | taxonomy-name | name=Primates     | 3 | STUDY_HOMO_SAPIENS,STUDY_PAN_TROGLODYTES,STUDY_PAN_PANISCUS |
       | taxonomy-name | name=None         | 0 | NONE                                                        |
 
+  Scenario: search studies by taxonomy after an analysis is moved to another study
+    Given I set authorization with testoperator having SERVICE_OPERATOR role
+    When I request POST taxonomy with 9606 for ID
+    Then set the URL to TAXONOMY_SPECIES_HOMO_SAPIENS
+    When I request POST /reference-sequences with JSON-like payload:
+    """
+      "name": "GRCh37",
+      "patch": "p2",
+      "accession": "GCA_000001405.3",
+      "type": "GENOME_ASSEMBLY",
+      "taxonomy": "TAXONOMY_SPECIES_HOMO_SAPIENS"
+    """
+    Then set the URL to REFERENCE_SEQUENCE_HOMO_SAPIENS
+    When I request POST /studies with JSON-like payload:
+    """
+    "accessionVersionId": {
+      "accession": "testhuman1",
+      "version": 1
+    },
+    "name": "test human study 1",
+    "deprecated": false,
+    "releaseDate": today
+    """
+    Then set the URL to STUDY_1
+    When I request POST /studies with JSON-like payload:
+    """
+    "accessionVersionId": {
+      "accession": "testhuman2",
+      "version": 1
+    },
+    "name": "test human study 2",
+    "deprecated": false,
+    "releaseDate": today
+    """
+    Then set the URL to STUDY_2
+    When I create an analysis with Analysis1 for accession, REFERENCE_SEQUENCE_HOMO_SAPIENS for reference sequence and STUDY_1 for study
+    Then set the URL to ANALYSIS
+    When I request elaborate search for the studies base taxonomy-id and with the parameters: id=9606
+    Then the response should contain 1 studies
+    And the href of the study of studies has items STUDY_1
+
+    When I request PATCH ANALYSIS with study STUDY_2
+    Then the response code should be 2xx
+    When I request elaborate search for the studies base taxonomy-id and with the parameters: id=9606
+    Then the response should contain 1 studies
+    And the href of the study of studies has items STUDY_2
+
+  Scenario: search projects by taxonomy after a study is moved to another project
+    Given I set authorization with testoperator having SERVICE_OPERATOR role
+    When I request POST taxonomy with 9606 for ID
+    Then set the URL to TAXONOMY_SPECIES_HOMO_SAPIENS
+    When I request POST /reference-sequences with JSON-like payload:
+    """
+      "name": "GRCh37",
+      "patch": "p2",
+      "accession": "GCA_000001405.3",
+      "type": "GENOME_ASSEMBLY",
+      "taxonomy": "TAXONOMY_SPECIES_HOMO_SAPIENS"
+    """
+    Then set the URL to REFERENCE_SEQUENCE_HOMO_SAPIENS
+    When I request POST /studies with JSON-like payload:
+    """
+    "accessionVersionId": {
+      "accession": "testhuman1",
+      "version": 1
+    },
+    "name": "test human study 1",
+    "deprecated": false,
+    "releaseDate": today
+    """
+    Then set the URL to STUDY_1
+    When I create an analysis with Analysis1 for accession, REFERENCE_SEQUENCE_HOMO_SAPIENS for reference sequence and STUDY_1 for study
+    Then set the URL to ANALYSIS
+    When I request POST /projects with JSON payload:
+    """
+    {
+      "accessionVersionId": {
+        "accession": "testproject1",
+        "version": 1
+      },
+      "name": "test project 1",
+      "description": "Nothing important",
+      "center": "EBI",
+      "deprecated": false,
+      "releaseDate": "2018-01-01"
+    }
+    """
+    Then set the URL to PROJECT_1
+    When I request POST /projects with JSON payload:
+    """
+    {
+      "accessionVersionId": {
+        "accession": "testproject2",
+        "version": 1
+      },
+      "name": "test project 2",
+      "description": "Nothing important",
+      "center": "EBI",
+      "deprecated": false,
+      "releaseDate": "2018-01-01"
+    }
+    """
+    Then set the URL to PROJECT_2
+    When I request PATCH STUDY_1 with project PROJECT_1
+    Then the response code should be 2xx
+    When I request elaborate search for the projects base taxonomy-id and with the parameters: id=9606
+    Then the response should contain 1 projects
+    And the href of the project of projects has items PROJECT_1
+
+    When I request PATCH STUDY_1 with project PROJECT_2
+    Then the response code should be 2xx
+    When I request elaborate search for the projects base taxonomy-id and with the parameters: id=9606
+    Then the response should contain 1 projects
+    And the href of the project of projects has items PROJECT_2
+
+    When I request PATCH STUDY_1 with content {"project": null}
+    Then the response code should be 2xx
+    When I request elaborate search for the projects base taxonomy-id and with the parameters: id=9606
+    Then the response should contain 0 projects
+
   Scenario Outline: search various studies by release date
     Given I set authorization with testoperator having SERVICE_OPERATOR role
     When I request POST /taxonomies with JSON payload:
@@ -487,6 +607,69 @@ Feature: study object
       | size=1           | STUDY2 |
       | size=1&sort=name | STUDY1 |
 
+  Scenario: search studies by keyset pages
+    Given I set authorization with testoperator having SERVICE_OPERATOR role
+    When I request POST /taxonomies with JSON payload:
+    """
+    {
+      "taxonomyId": 9606
+    }
+    """
+    Then set the URL to TAXONOMY
+    When I request POST /studies with JSON-like payload:
+    """
+    "accessionVersionId": {
+      "accession": "EGAS0001",
+      "version": 1
+    },
+    "name": "test human A",
+    "deprecated": false,
+    "releaseDate": today
+    """
+    Then set the URL to STUDY1
+    When I request POST /studies with JSON-like payload:
+    """
+    "accessionVersionId": {
+      "accession": "EGAS0002",
+      "version": 1
+    },
+    "name": "test human B",
+    "deprecated": false,
+    "releaseDate": today
+    """
+    Then set the URL to STUDY2
+    When I request POST /studies with JSON-like payload:
+    """
+    "accessionVersionId": {
+      "accession": "EGAS0003",
+      "version": 1
+    },
+    "name": "test human C",
+    "deprecated": false,
+    "releaseDate": today
+    """
+    Then set the URL to STUDY3
+
+    When I request GET /studies/search/text?searchTerm=human&size=2
+    Then the response code should be 200
+    And the response should contain 2 studies
+    And the href of the study of studies has items STUDY1,STUDY2
+    And the response should contain a next link
+
+    When I request GET for the next page
+    Then the response code should be 200
+    And the response should contain one study
+    And the href of the study of studies has items STUDY3
+    And the response should contain no next link
+
+    When I request GET /studies/search/text?searchTerm=human
+    Then the response code should be 200
+    And the response should contain 3 studies
+    And the response should contain no next link
+
+    When I request GET /studies/search/text?searchTerm=human&after=not-a-cursor
+    Then the response code should be 400
+
   Scenario Outline: search various public studies
     Given I set authorization with testoperator having SERVICE_OPERATOR role
     # Create a common taxonomy